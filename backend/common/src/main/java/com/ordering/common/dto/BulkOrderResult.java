@@ -0,0 +1,30 @@
+package com.ordering.common.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Outcome of one order in a bulk request; {@code index} is its position in the request.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkOrderResult implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
+    private int index;
+    private Long orderId;
+    private boolean success;
+    private String error;
+    
+    public static BulkOrderResult created(int index, Long orderId) {
+        return new BulkOrderResult(index, orderId, true, null);
+    }
+    
+    public static BulkOrderResult failed(int index, String error) {
+        return new BulkOrderResult(index, null, false, error);
+    }
+}
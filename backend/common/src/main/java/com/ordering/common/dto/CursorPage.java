@@ -0,0 +1,28 @@
+package com.ordering.common.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.io.Serializable;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * One page of a keyset-paginated listing. Pass {@code nextCursor} back to get the following page.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CursorPage<T> implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
+    private List<T> items;
+    private String nextCursor;
+    private boolean hasMore;
+    
+    public <R> CursorPage<R> map(Function<? super T, ? extends R> mapper) {
+        List<R> mapped = items.stream().map(mapper).collect(Collectors.toList());
+        return new CursorPage<>(mapped, nextCursor, hasMore);
+    }
+}
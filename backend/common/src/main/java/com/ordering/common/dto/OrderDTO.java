@@ -1,5 +1,8 @@
 package com.ordering.common.dto;
 
+import com.fasterxml.jackson.annotation.JsonGetter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.util.RawValue;
 import lombok.Data;
 import java.io.Serializable;
 import java.math.BigDecimal;
@@ -18,4 +21,18 @@ public class OrderDTO implements Serializable {
     private String paymentMethod;
     private String deliveryAddress;
     private LocalDateTime createdAt;
+    private Long version;
+    
+    // Line items exactly as stored with the order; when set, written out verbatim as "items"
+    @JsonIgnore
+    private String itemsJson;
+    
+    /**
+     * Serializes "items" from the stored JSON without parsing it, falling back to the list.
+     * Requests still bind "items" to the list through its setter.
+     */
+    @JsonGetter("items")
+    public Object itemsForResponse() {
+        return itemsJson != null ? new RawValue(itemsJson) : items;
+    }
 }
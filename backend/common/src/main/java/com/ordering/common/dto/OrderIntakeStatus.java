@@ -0,0 +1,30 @@
+package com.ordering.common.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Progress of an order accepted by the asynchronous intake. {@code status} is PENDING,
+ * PROCESSING, COMMITTED or FAILED. {@code orderId} is reserved when the order is accepted;
+ * {@code orderUrl} is set once the order exists.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderIntakeStatus implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
+    private Long orderId;
+    private Long userId;
+    private String status;
+    private String error;
+    private int attempts;
+    private LocalDateTime acceptedAt;
+    private LocalDateTime updatedAt;
+    private String statusUrl;
+    private String orderUrl;
+}
@@ -0,0 +1,65 @@
+package com.ordering.common.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Encodes a keyset pagination position on (created_at, id) into an opaque URL-safe cursor.
+ * Cross-shard listings use the same single cursor: the last row of the merged page.
+ */
+public final class CursorCodec {
+    
+    private CursorCodec() {
+    }
+    
+    public static final class Position {
+        private final LocalDateTime createdAt;
+        private final String id;
+        
+        public Position(LocalDateTime createdAt, String id) {
+            this.createdAt = createdAt;
+            this.id = id;
+        }
+        
+        public LocalDateTime getCreatedAt() { return createdAt; }
+        
+        public String getId() { return id; }
+        
+        public long getLongId() {
+            try {
+                return Long.parseLong(id);
+            } catch (NumberFormatException e) {
+                throw new InvalidCursorException("Invalid cursor", e);
+            }
+        }
+    }
+    
+    public static String encode(Position position) {
+        String raw = position.getCreatedAt() + "|" + position.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * @return the position, or null for a null or blank cursor (first page)
+     * @throws InvalidCursorException if the cursor was not produced by this codec
+     */
+    public static Position decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 2);
+            if (parts.length != 2) {
+                throw new InvalidCursorException("Invalid cursor", null);
+            }
+            return new Position(LocalDateTime.parse(parts[0]), parts[1]);
+        } catch (InvalidCursorException e) {
+            throw e;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidCursorException("Invalid cursor", e);
+        }
+    }
+}
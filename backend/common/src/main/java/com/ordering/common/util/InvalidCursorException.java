@@ -0,0 +1,15 @@
+package com.ordering.common.util;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * A pagination cursor that was not produced by {@link CursorCodec}, or no longer fits the listing.
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidCursorException extends IllegalArgumentException {
+    
+    public InvalidCursorException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
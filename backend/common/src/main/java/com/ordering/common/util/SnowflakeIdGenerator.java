@@ -0,0 +1,104 @@
+package com.ordering.common.util;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Generates 64-bit, time-ordered, globally unique IDs that carry the routing bucket of their row.
+ *
+ * <pre>
+ * | 1 bit unused | 41 bits millis since EPOCH | 10 bits bucket | 5 bits node | 7 bits sequence |
+ * </pre>
+ *
+ * The bucket can be read back with {@link #bucketOf(long)}, so a lookup by ID can be routed
+ * to one shard without knowing the user, and keeps working after the bucket is moved.
+ */
+public class SnowflakeIdGenerator {
+
+    /** 2024-01-01T00:00:00Z */
+    public static final long EPOCH = 1704067200000L;
+
+    private static final int SEQUENCE_BITS = 7;
+    private static final int NODE_BITS = 5;
+    private static final int BUCKET_BITS = 10;
+
+    public static final int MAX_NODE = (1 << NODE_BITS) - 1;
+    public static final int MAX_BUCKET = (1 << BUCKET_BITS) - 1;
+    private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+
+    private static final int NODE_SHIFT = SEQUENCE_BITS;
+    private static final int BUCKET_SHIFT = SEQUENCE_BITS + NODE_BITS;
+    private static final int TIMESTAMP_SHIFT = SEQUENCE_BITS + NODE_BITS + BUCKET_BITS;
+
+    /**
+     * 2025-01-01T00:00:00Z. No ID was generated before this, so every generated ID is at least
+     * {@link #MIN_GENERATED_ID} (about 1.3e17), far above any legacy auto-increment value.
+     */
+    public static final long GENERATED_SINCE = 1735689600000L;
+    public static final long MIN_GENERATED_ID = (GENERATED_SINCE - EPOCH) << TIMESTAMP_SHIFT;
+
+    private final long nodeId;
+    private long lastTimestamp = -1L;
+    private long sequence = 0L;
+
+    // Not synchronized: a virtual thread waiting on a contended monitor pins its carrier thread
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public SnowflakeIdGenerator(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE);
+        }
+        this.nodeId = nodeId;
+    }
+
+    public long nextId(int bucket) {
+        if (bucket < 0 || bucket > MAX_BUCKET) {
+            throw new IllegalArgumentException("Bucket must be between 0 and " + MAX_BUCKET);
+        }
+
+        long now = System.currentTimeMillis();
+        if (now < GENERATED_SINCE) {
+            // The ID would be indistinguishable from a legacy one
+            throw new IllegalStateException("System clock is before " + GENERATED_SINCE + " ms; refusing to generate IDs");
+        }
+
+        long timestamp;
+        long seq;
+        lock.lock();
+        try {
+            if (now > lastTimestamp) {
+                lastTimestamp = now;
+                sequence = 0;
+            } else if (++sequence > MAX_SEQUENCE) {
+                // Sequence exhausted (or clock stepped back): borrow the next millisecond
+                // rather than block or hand out duplicates
+                lastTimestamp++;
+                sequence = 0;
+            }
+            timestamp = lastTimestamp;
+            seq = sequence;
+        } finally {
+            lock.unlock();
+        }
+
+        return ((timestamp - EPOCH) << TIMESTAMP_SHIFT)
+            | ((long) bucket << BUCKET_SHIFT)
+            | (nodeId << NODE_SHIFT)
+            | seq;
+    }
+
+    public static int bucketOf(long id) {
+        return (int) ((id >>> BUCKET_SHIFT) & MAX_BUCKET);
+    }
+
+    public static long timestampOf(long id) {
+        return (id >>> TIMESTAMP_SHIFT) + EPOCH;
+    }
+
+    /**
+     * IDs from this generator are all at least {@link #MIN_GENERATED_ID}; anything smaller is a
+     * legacy auto-increment ID and carries no bucket.
+     */
+    public static boolean isGenerated(long id) {
+        return id >= MIN_GENERATED_ID;
+    }
+}
@@ -1,5 +1,6 @@
 package com.ordering.orderservicemongo.controller;
 
+import com.ordering.common.dto.CursorPage;
 import com.ordering.orderservicemongo.document.Order;
 import com.ordering.orderservicemongo.service.MongoOrderService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -28,6 +29,13 @@ public class MongoOrderController {
         return orderService.getOrdersByUserId(userId);
     }
     
+    @GetMapping("/user/{userId}/page")
+    public CursorPage<Order> getUserOrdersPage(@PathVariable Long userId,
+                                               @RequestParam(required = false) String cursor,
+                                               @RequestParam(defaultValue = "20") int size) {
+        return orderService.getOrdersByUserId(userId, cursor, size);
+    }
+    
     @PutMapping("/{id}/status")
     public Order updateStatus(@PathVariable String id, @RequestBody Map<String, String> body) {
         return orderService.updateOrderStatus(id, body.get("status"));
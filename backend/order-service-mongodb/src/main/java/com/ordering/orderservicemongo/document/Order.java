@@ -2,6 +2,7 @@ package com.ordering.orderservicemongo.document;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 import java.math.BigDecimal;
@@ -9,6 +10,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Document(collection = "orders")
+@CompoundIndex(name = "user_created_id_idx", def = "{'user_id': 1, 'created_at': -1, '_id': -1}")
 @Data
 public class Order {
     @Id
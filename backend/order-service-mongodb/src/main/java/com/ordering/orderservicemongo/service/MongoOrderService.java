@@ -1,8 +1,15 @@
 package com.ordering.orderservicemongo.service;
 
+import com.ordering.common.dto.CursorPage;
+import com.ordering.common.util.CursorCodec;
 import com.ordering.orderservicemongo.document.Order;
 import com.ordering.orderservicemongo.repository.MongoOrderRepository;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -12,6 +19,11 @@ public class MongoOrderService {
     @Autowired
     private MongoOrderRepository orderRepository;
     
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    private static final int MAX_PAGE_SIZE = 100;
+    
     public Order createOrder(Order order) {
         order.setCreatedAt(LocalDateTime.now());
         order.setUpdatedAt(LocalDateTime.now());
@@ -27,6 +39,35 @@ public class MongoOrderService {
         return orderRepository.findByUserId(userId);
     }
     
+    /**
+     * Keyset page of a user's orders on (created_at, _id), newest first.
+     */
+    public CursorPage<Order> getOrdersByUserId(Long userId, String cursor, int requestedSize) {
+        int size = Math.min(Math.max(requestedSize, 1), MAX_PAGE_SIZE);
+        CursorCodec.Position after = CursorCodec.decode(cursor);
+        
+        Criteria criteria = Criteria.where("user_id").is(userId);
+        if (after != null) {
+            criteria = criteria.orOperator(
+                Criteria.where("created_at").lt(after.getCreatedAt()),
+                Criteria.where("created_at").is(after.getCreatedAt()).and("_id").lt(new ObjectId(after.getId()))
+            );
+        }
+        Query query = new Query(criteria)
+            .with(Sort.by(Sort.Order.desc("created_at"), Sort.Order.desc("_id")))
+            .limit(size + 1);
+        List<Order> orders = mongoTemplate.find(query, Order.class);
+        
+        boolean hasMore = orders.size() > size;
+        List<Order> page = hasMore ? orders.subList(0, size) : orders;
+        String nextCursor = null;
+        if (hasMore) {
+            Order last = page.get(page.size() - 1);
+            nextCursor = CursorCodec.encode(new CursorCodec.Position(last.getCreatedAt(), last.getId()));
+        }
+        return new CursorPage<>(page, nextCursor, hasMore);
+    }
+    
     public Order updateOrderStatus(String id, String status) {
         Order order = getOrderById(id);
         order.setStatus(status);
@@ -0,0 +1,25 @@
+package com.ordering.orderservice.bus;
+
+import lombok.Data;
+
+/**
+ * One preallocated ring-buffer slot. Slots are reused, so consumers copy what they need
+ * before the sequence moves on.
+ */
+@Data
+public class OrderEvent {
+    
+    private String eventType;
+    private Long orderId;
+    private Long userId;
+    
+    // System.nanoTime() at publish, for end-to-end latency
+    private long publishedAt;
+    
+    void set(String eventType, Long orderId, Long userId) {
+        this.eventType = eventType;
+        this.orderId = orderId;
+        this.userId = userId;
+        this.publishedAt = System.nanoTime();
+    }
+}
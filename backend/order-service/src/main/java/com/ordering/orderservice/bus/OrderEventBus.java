@@ -0,0 +1,150 @@
+package com.ordering.orderservice.bus;
+
+import com.lmax.disruptor.BatchEventProcessorBuilder;
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.BusySpinWaitStrategy;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.SleepingWaitStrategy;
+import com.lmax.disruptor.TimeoutException;
+import com.lmax.disruptor.WaitStrategy;
+import com.lmax.disruptor.YieldingWaitStrategy;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.EventProcessorFactory;
+import com.lmax.disruptor.dsl.ProducerType;
+import com.ordering.orderservice.config.EventBusProperties;
+import com.ordering.orderservice.listener.OrderEventHandler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Order events delivered inside the JVM through a preallocated ring buffer (LMAX Disruptor),
+ * with no broker and no serialization. Every consumer sees every slot but only handles the
+ * users in its slice ({@code userId % consumers}), so one user's events run in publish order
+ * while different users run in parallel. A consumer takes whatever has been published since
+ * its last pass as one batch, up to {@code event-bus.max-batch-size}.
+ * <p>
+ * There is no redelivery: an event whose handler throws is logged and counted, and an event
+ * still in the ring when the JVM dies is lost. Use a broker-backed profile where that matters.
+ */
+@Slf4j
+public class OrderEventBus {
+    
+    private final Disruptor<OrderEvent> disruptor;
+    private final RingBuffer<OrderEvent> ringBuffer;
+    
+    public OrderEventBus(EventBusProperties properties, OrderEventHandler handler, MeterRegistry meterRegistry) {
+        AtomicInteger threads = new AtomicInteger();
+        disruptor = new Disruptor<>(OrderEvent::new, properties.getRingSize(),
+                                    r -> new Thread(r, "order-event-bus-" + threads.getAndIncrement()),
+                                    ProducerType.MULTI, waitStrategy(properties.getWaitStrategy()));
+        
+        BatchEventProcessorBuilder builder = new BatchEventProcessorBuilder().setMaxBatchSize(properties.getMaxBatchSize());
+        @SuppressWarnings("unchecked")
+        EventProcessorFactory<OrderEvent>[] consumers = new EventProcessorFactory[properties.getConsumers()];
+        for (int i = 0; i < consumers.length; i++) {
+            BatchingConsumer consumer = new BatchingConsumer(i, consumers.length, handler, meterRegistry);
+            consumers[i] = (ring, barrierSequences) -> builder.build(ring, ring.newBarrier(barrierSequences), consumer);
+        }
+        disruptor.handleEventsWith(consumers);
+        ringBuffer = disruptor.start();
+        
+        Gauge.builder("event.bus.remaining.capacity", ringBuffer, RingBuffer::remainingCapacity).register(meterRegistry);
+        log.info("In-process event bus started: {} slots, {} consumers, {} wait strategy",
+                 properties.getRingSize(), consumers.length, properties.getWaitStrategy());
+    }
+    
+    /**
+     * Claims the next slot and publishes into it; waits for space when the ring is full
+     */
+    public void publish(String eventType, Long orderId, Long userId) {
+        ringBuffer.publishEvent((event, sequence, type, id, user) -> event.set(type, id, user),
+                                eventType, orderId, userId);
+    }
+    
+    /**
+     * Lets the consumers drain what is already in the ring, then stops them
+     */
+    public void shutdown() {
+        try {
+            disruptor.shutdown(10, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Event bus did not drain within 10s; {} events dropped",
+                     ringBuffer.getBufferSize() - ringBuffer.remainingCapacity());
+            disruptor.halt();
+        }
+    }
+    
+    private static WaitStrategy waitStrategy(EventBusProperties.WaitStrategy strategy) {
+        switch (strategy) {
+            case BUSY_SPIN:
+                return new BusySpinWaitStrategy();
+            case YIELDING:
+                return new YieldingWaitStrategy();
+            case SLEEPING:
+                return new SleepingWaitStrategy();
+            default:
+                return new BlockingWaitStrategy();
+        }
+    }
+    
+    private static class BatchingConsumer implements EventHandler<OrderEvent> {
+        
+        private final int ordinal;
+        private final int consumers;
+        private final OrderEventHandler handler;
+        private final DistributionSummary batchSize;
+        private final Timer latency;
+        private final Counter processed;
+        private final Counter failures;
+        
+        // Events of the current batch that fell in this consumer's slice
+        private int handled;
+        
+        BatchingConsumer(int ordinal, int consumers, OrderEventHandler handler, MeterRegistry meterRegistry) {
+            this.ordinal = ordinal;
+            this.consumers = consumers;
+            this.handler = handler;
+            this.batchSize = DistributionSummary.builder("event.bus.batch.size").register(meterRegistry);
+            this.latency = Timer.builder("event.bus.latency").register(meterRegistry);
+            this.processed = Counter.builder("event.bus.processed").register(meterRegistry);
+            this.failures = Counter.builder("event.bus.failures").register(meterRegistry);
+        }
+        
+        @Override
+        public void onBatchStart(long batchSize, long queueDepth) {
+            handled = 0;
+        }
+        
+        @Override
+        public void onEvent(OrderEvent event, long sequence, boolean endOfBatch) {
+            long key = event.getUserId() != null ? event.getUserId() : event.getOrderId();
+            if (Math.floorMod(key, consumers) == ordinal) {
+                handle(event);
+            }
+            // The ring batch holds every consumer's events; record only this consumer's share
+            if (endOfBatch && handled > 0) {
+                batchSize.record(handled);
+            }
+        }
+        
+        private void handle(OrderEvent event) {
+            handled++;
+            try {
+                handler.handle(event.getEventType(), event.getOrderId());
+                processed.increment();
+            } catch (RuntimeException e) {
+                failures.increment();
+                log.error("Error processing {} for order {}", event.getEventType(), event.getOrderId(), e);
+            }
+            latency.record(System.nanoTime() - event.getPublishedAt(), TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.ordering.orderservice.config;
+
+import com.ordering.orderservice.bus.OrderEventBus;
+import com.ordering.orderservice.listener.OrderEventHandler;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Single-node mode: order events go from the outbox relay to the listeners' handler logic
+ * through an in-process ring buffer instead of a broker.
+ */
+@Configuration
+@Profile("inprocess")
+@EnableConfigurationProperties(EventBusProperties.class)
+public class EventBusConfig {
+    
+    @Bean(destroyMethod = "shutdown")
+    public OrderEventBus orderEventBus(EventBusProperties properties, OrderEventHandler handler,
+                                       MeterRegistry meterRegistry) {
+        return new OrderEventBus(properties, handler, meterRegistry);
+    }
+}
@@ -0,0 +1,48 @@
+package com.ordering.orderservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Binds {@code event-bus.*}, the in-process ring buffer used by the {@code inprocess} profile.
+ */
+@Data
+@ConfigurationProperties(prefix = "event-bus")
+public class EventBusProperties {
+    
+    public enum WaitStrategy {
+        /**
+         * Consumers park on a lock until signalled; lowest CPU, highest wake-up latency.
+         */
+        BLOCKING,
+        /**
+         * Spin, then yield, then sleep briefly; a middle ground for mixed workloads.
+         */
+        SLEEPING,
+        /**
+         * Spin, then Thread.yield(); low latency, keeps a core busy while idle.
+         */
+        YIELDING,
+        /**
+         * Never gives up the core; lowest latency, needs a dedicated core per consumer.
+         */
+        BUSY_SPIN
+    }
+    
+    /**
+     * Slots preallocated in the ring; must be a power of two. Publishers wait when it is full.
+     */
+    private int ringSize = 65536;
+    
+    /**
+     * Consumer threads. Each owns the events of a fixed slice of users, so one user's events stay in order.
+     */
+    private int consumers = 4;
+    
+    /**
+     * A consumer hands at most this many events to the handler at once; smaller batches lower latency.
+     */
+    private int maxBatchSize = 256;
+    
+    private WaitStrategy waitStrategy = WaitStrategy.BLOCKING;
+}
@@ -0,0 +1,34 @@
+package com.ordering.orderservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Binds {@code event-retry.*}: the retry tiers shared by the Kafka retry topics and the
+ * RabbitMQ retry queues. Tier N holds a failed event for {@code initialDelayMs * multiplier^N}
+ * before it is redelivered; an event that fails every tier goes to the dead-letter topic or queue.
+ */
+@Data
+@ConfigurationProperties(prefix = "event-retry")
+public class EventRetryProperties {
+    
+    private int tiers = 3;
+    
+    private long initialDelayMs = 1000;
+    
+    private double multiplier = 5.0;
+    
+    /**
+     * Upper bound for the replay endpoint's rate, in events per second.
+     */
+    private int maxReplayRate = 500;
+    
+    /**
+     * Upper bound for events moved by one replay call; the call runs synchronously.
+     */
+    private int maxReplayLimit = 1000;
+    
+    public long delayMs(int tier) {
+        return (long) (initialDelayMs * Math.pow(multiplier, tier));
+    }
+}
@@ -0,0 +1,65 @@
+package com.ordering.orderservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Binds {@code idempotency.*}. Processed events are remembered for two windows: the current
+ * one and the one before it, both in the local Bloom filters and in Redis. {@code idempotency.keys}
+ * configures the {@code Idempotency-Key} header on order creation.
+ */
+@Data
+@ConfigurationProperties(prefix = "idempotency")
+public class IdempotencyProperties {
+    
+    private boolean enabled = true;
+    
+    private long windowMs = 3600000;
+    
+    /**
+     * Events one window's Bloom filter is sized for; past this the false-positive rate climbs.
+     */
+    private long expectedInsertions = 200000;
+    
+    private double falsePositiveProbability = 0.01;
+    
+    /**
+     * How often the local filters pick up events recorded in Redis by other instances.
+     */
+    private long refreshIntervalMs = 30000;
+    
+    private String keyPrefix = "order-events:processed:";
+    
+    private Keys keys = new Keys();
+    
+    @Data
+    public static class Keys {
+        private boolean enabled = true;
+        
+        /**
+         * How long a completed request's response is replayed for retries with the same key.
+         */
+        private long ttlMs = 86400000;
+        
+        /**
+         * How long duplicates wait for the first request before getting 409.
+         */
+        private long inFlightTimeoutMs = 30000;
+        
+        /**
+         * Lifetime of the in-progress marker if its request stops renewing it (the instance died).
+         * Until then retries get 409 rather than running the order a second time.
+         */
+        private long markerTtlMs = 3600000;
+        
+        /**
+         * How often a running request renews its marker. A marker not renewed for three
+         * intervals is treated as abandoned.
+         */
+        private long heartbeatIntervalMs = 5000;
+        
+        private int maxKeyLength = 255;
+        
+        private String keyPrefix = "order-requests:idempotency:";
+    }
+}
@@ -1,35 +1,78 @@
 package com.ordering.orderservice.config;
 
+import com.ordering.orderservice.sharding.ShardRouter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.kafka.clients.admin.AdminClientConfig;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.*;
+import org.springframework.kafka.listener.ContainerProperties;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Configuration
 @EnableKafka
 @Profile("kafka")
+@EnableConfigurationProperties(KafkaProducerProperties.class)
 public class KafkaConfig {
     
     @Value("${spring.kafka.bootstrap-servers:localhost:9092}")
     private String bootstrapServers;
     
+    @Autowired
+    private KafkaProducerProperties producerProperties;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    private ShardRouter shardRouter;
+    
+    @Autowired
+    private EventRetryProperties retryProperties;
+    
+    @Autowired
+    private WorkerThreads workerThreads;
+    
     public static final String ORDER_CREATED_TOPIC = "order-created";
     public static final String ORDER_PAYMENT_TOPIC = "order-payment";
     public static final String ORDER_NOTIFICATION_TOPIC = "order-notification";
     
+    // Listener concurrency matches this, so every partition gets its own consumer thread
+    public static final int TOPIC_PARTITIONS = 3;
+    
+    public static final String RETRY_CONSUMER_GROUP = "order-service-retry";
+    
+    /**
+     * Events that keep failing pass through {@code <topic>-retry-0..N-1} and end in {@code <topic>-dlt}
+     */
+    public static String retryTopic(String topic, int tier) {
+        return topic + "-retry-" + tier;
+    }
+    
+    public static String deadLetterTopic(String topic) {
+        return topic + "-dlt";
+    }
+    
+    @Value("${kafka-consumer.max-poll-records:500}")
+    private int maxPollRecords;
+    
     // Producer Configuration
     @Bean
     public ProducerFactory<String, String> producerFactory() {
@@ -40,7 +83,19 @@ public class KafkaConfig {
         config.put(ProducerConfig.ACKS_CONFIG, "all");
         config.put(ProducerConfig.RETRIES_CONFIG, 3);
         config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
-        return new DefaultKafkaProducerFactory<>(config);
+        // Batching per kafka-producer.profile
+        config.put(ProducerConfig.LINGER_MS_CONFIG, producerProperties.resolveLingerMs());
+        config.put(ProducerConfig.BATCH_SIZE_CONFIG, producerProperties.resolveBatchSize());
+        config.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, producerProperties.resolveCompressionType());
+        config.put(ProducerConfig.BUFFER_MEMORY_CONFIG, producerProperties.resolveBufferMemory());
+        // Events are keyed by user ID; a user always lands on the partition of their bucket
+        config.put(ProducerConfig.PARTITIONER_CLASS_CONFIG, UserBucketPartitioner.class);
+        config.put(UserBucketPartitioner.SHARD_ROUTER_CONFIG, shardRouter);
+        
+        DefaultKafkaProducerFactory<String, String> factory = new DefaultKafkaProducerFactory<>(config);
+        // Exposes the client's own kafka.producer.* metrics (record rates, batch sizes, request latency)
+        factory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return factory;
     }
     
     @Bean
@@ -58,6 +113,7 @@ public class KafkaConfig {
         config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
         config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
         config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
         return new DefaultKafkaConsumerFactory<>(config);
     }
     
@@ -66,14 +122,44 @@ public class KafkaConfig {
         ConcurrentKafkaListenerContainerFactory<String, String> factory = 
             new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        // Listeners get a whole poll at once and acknowledge it once; offsets commit per batch
+        factory.setBatchListener(true);
+        factory.setConcurrency(TOPIC_PARTITIONS);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        useVirtualConsumerThreads(factory);
         return factory;
     }
     
+    /**
+     * Retry-topic consumers, one container per tier: one thread, batch listener, manual acks so a
+     * record that is not yet due can be nacked with a sleep instead of holding the consumer
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> retryListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = 
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.setBatchListener(true);
+        factory.setConcurrency(1);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        useVirtualConsumerThreads(factory);
+        return factory;
+    }
+    
+    /**
+     * Boot only switches the listener containers it configures itself; these factories are our own
+     */
+    private void useVirtualConsumerThreads(ConcurrentKafkaListenerContainerFactory<String, String> factory) {
+        if (workerThreads.isVirtual()) {
+            factory.getContainerProperties().setListenerTaskExecutor(new VirtualThreadTaskExecutor("kafka-consumer-"));
+        }
+    }
+    
     // Topic Creation
     @Bean
     public NewTopic orderCreatedTopic() {
         return TopicBuilder.name(ORDER_CREATED_TOPIC)
-                .partitions(3)
+                .partitions(TOPIC_PARTITIONS)
                 .replicas(1)
                 .build();
     }
@@ -81,7 +167,7 @@ public class KafkaConfig {
     @Bean
     public NewTopic orderPaymentTopic() {
         return TopicBuilder.name(ORDER_PAYMENT_TOPIC)
-                .partitions(3)
+                .partitions(TOPIC_PARTITIONS)
                 .replicas(1)
                 .build();
     }
@@ -89,11 +175,23 @@ public class KafkaConfig {
     @Bean
     public NewTopic orderNotificationTopic() {
         return TopicBuilder.name(ORDER_NOTIFICATION_TOPIC)
-                .partitions(3)
+                .partitions(TOPIC_PARTITIONS)
                 .replicas(1)
                 .build();
     }
     
+    @Bean
+    public KafkaAdmin.NewTopics retryTopics() {
+        List<NewTopic> topics = new ArrayList<>();
+        for (String topic : List.of(ORDER_CREATED_TOPIC, ORDER_PAYMENT_TOPIC, ORDER_NOTIFICATION_TOPIC)) {
+            for (int tier = 0; tier < retryProperties.getTiers(); tier++) {
+                topics.add(TopicBuilder.name(retryTopic(topic, tier)).partitions(TOPIC_PARTITIONS).replicas(1).build());
+            }
+            topics.add(TopicBuilder.name(deadLetterTopic(topic)).partitions(TOPIC_PARTITIONS).replicas(1).build());
+        }
+        return new KafkaAdmin.NewTopics(topics.toArray(new NewTopic[0]));
+    }
+    
     // Admin Configuration
     @Bean
     public KafkaAdmin kafkaAdmin() {
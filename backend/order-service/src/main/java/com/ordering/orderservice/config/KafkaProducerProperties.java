@@ -0,0 +1,59 @@
+package com.ordering.orderservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Binds {@code kafka-producer.*}: a batching profile plus optional per-setting overrides.
+ */
+@Data
+@ConfigurationProperties(prefix = "kafka-producer")
+public class KafkaProducerProperties {
+    
+    public enum Profile {
+        /**
+         * Send as soon as a record arrives; small, uncompressed batches.
+         */
+        LATENCY(0, 16384, "none", 33554432L),
+        /**
+         * Wait briefly so records to the same partition share a compressed batch.
+         */
+        THROUGHPUT(20, 131072, "lz4", 67108864L);
+        
+        private final int lingerMs;
+        private final int batchSize;
+        private final String compressionType;
+        private final long bufferMemory;
+        
+        Profile(int lingerMs, int batchSize, String compressionType, long bufferMemory) {
+            this.lingerMs = lingerMs;
+            this.batchSize = batchSize;
+            this.compressionType = compressionType;
+            this.bufferMemory = bufferMemory;
+        }
+    }
+    
+    private Profile profile = Profile.THROUGHPUT;
+    
+    // Unset values come from the profile
+    private Integer lingerMs;
+    private Integer batchSize;
+    private String compressionType;
+    private Long bufferMemory;
+    
+    public int resolveLingerMs() {
+        return lingerMs != null ? lingerMs : profile.lingerMs;
+    }
+    
+    public int resolveBatchSize() {
+        return batchSize != null ? batchSize : profile.batchSize;
+    }
+    
+    public String resolveCompressionType() {
+        return compressionType != null ? compressionType : profile.compressionType;
+    }
+    
+    public long resolveBufferMemory() {
+        return bufferMemory != null ? bufferMemory : profile.bufferMemory;
+    }
+}
@@ -1,14 +1,54 @@
 package com.ordering.orderservice.config;
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 @Configuration
+@EnableConfigurationProperties(EventRetryProperties.class)
 public class RabbitMQConfig {
     public static final String ORDER_EXCHANGE = "order-exchange";
     public static final String ORDER_QUEUE = "order-queue";
     public static final String PAYMENT_QUEUE = "payment-queue";
     public static final String NOTIFICATION_QUEUE = "notification-queue";
     
+    public static final String RETRY_EXCHANGE = "order-retry-exchange";
+    public static final String DEAD_LETTER_EXCHANGE = "order-dlx";
+    
+    /**
+     * Main queue for each routing key
+     */
+    public static final Map<String, String> QUEUES = Map.of(
+        "order.created", ORDER_QUEUE,
+        "order.payment", PAYMENT_QUEUE,
+        "order.notification", NOTIFICATION_QUEUE);
+    
+    @Autowired
+    private EventRetryProperties retryProperties;
+    
+    public static String retryRoutingKey(String routingKey, int tier) {
+        return routingKey + ".retry." + tier;
+    }
+    
+    public static String deadLetterQueue(String routingKey) {
+        return QUEUES.get(routingKey) + ".dlq";
+    }
+    
+    /**
+     * JSON instead of Java serialization; Spring Boot applies it to the template and listener containers
+     */
+    @Bean
+    public MessageConverter jsonMessageConverter() {
+        return new Jackson2JsonMessageConverter();
+    }
+    
     @Bean
     public TopicExchange orderExchange() {
         return new TopicExchange(ORDER_EXCHANGE);
@@ -43,4 +83,33 @@ public class RabbitMQConfig {
     public Binding notificationBinding() {
         return BindingBuilder.bind(notificationQueue()).to(orderExchange()).with("order.notification");
     }
+    
+    /**
+     * Per queue, one retry queue per tier and a dead-letter queue. A retry queue has no consumers:
+     * messages sit there for the tier's TTL and then dead-letter back to {@code order-exchange}
+     * under their original routing key. The main queues are left as they are, since changing
+     * the arguments of an existing durable queue fails its declaration.
+     */
+    @Bean
+    public Declarables retryTopology() {
+        DirectExchange retryExchange = new DirectExchange(RETRY_EXCHANGE);
+        DirectExchange deadLetterExchange = new DirectExchange(DEAD_LETTER_EXCHANGE);
+        List<Declarable> declarables = new ArrayList<>(List.of(retryExchange, deadLetterExchange));
+        
+        QUEUES.forEach((routingKey, queueName) -> {
+            for (int tier = 0; tier < retryProperties.getTiers(); tier++) {
+                Queue retryQueue = QueueBuilder.durable(queueName + ".retry." + tier)
+                    .ttl((int) retryProperties.delayMs(tier))
+                    .deadLetterExchange(ORDER_EXCHANGE)
+                    .deadLetterRoutingKey(routingKey)
+                    .build();
+                declarables.add(retryQueue);
+                declarables.add(BindingBuilder.bind(retryQueue).to(retryExchange).with(retryRoutingKey(routingKey, tier)));
+            }
+            Queue deadLetterQueue = QueueBuilder.durable(deadLetterQueue(routingKey)).build();
+            declarables.add(deadLetterQueue);
+            declarables.add(BindingBuilder.bind(deadLetterQueue).to(deadLetterExchange).with(routingKey));
+        });
+        return new Declarables(declarables);
+    }
 }
@@ -0,0 +1,13 @@
+package com.ordering.orderservice.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Redis holds the processed-event sets behind the idempotency guard and the stored responses
+ * for {@code Idempotency-Key} requests, both through the auto-configured {@code StringRedisTemplate}.
+ */
+@Configuration
+@EnableConfigurationProperties(IdempotencyProperties.class)
+public class RedisConfig {
+}
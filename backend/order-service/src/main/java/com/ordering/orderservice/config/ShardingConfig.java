@@ -1,18 +1,30 @@
 package com.ordering.orderservice.config;
 
+import com.ordering.common.util.SnowflakeIdGenerator;
+import com.ordering.orderservice.sharding.GuardedShardDataSource;
+import com.ordering.orderservice.sharding.ShardGuard;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.sql.DataSource;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Configuration
+@EnableConfigurationProperties(ShardingProperties.class)
 public class ShardingConfig {
     
     @Value("${spring.datasource.username}")
@@ -24,33 +36,81 @@ public class ShardingConfig {
     @Value("${spring.datasource.base-url:jdbc:mysql://localhost:3306}")
     private String baseUrl;
     
-    private static final int NUM_SHARDS = 4;
+    @Value("${sharding.node-id:0}")
+    private int nodeId;
+    
+    @Autowired
+    private ShardingProperties shardingProperties;
+    
+    // JdbcTemplate and TransactionTemplate are thread-safe, so one per shard is enough
+    private final Map<Integer, JdbcTemplate> jdbcTemplates = new ConcurrentHashMap<>();
+    private final Map<Integer, TransactionTemplate> transactionTemplates = new ConcurrentHashMap<>();
+    
+    private final Map<Integer, List<HikariDataSource>> replicaDataSources = new ConcurrentHashMap<>();
     
     /**
-     * Create datasources for all order database shards
+     * Create datasources for all order database shards, each behind its own bulkhead and circuit breaker
      */
     @Bean
     public Map<Integer, DataSource> shardDataSources() {
         Map<Integer, DataSource> dataSources = new HashMap<>();
+        List<String> databases = shardingProperties.resolveDatabases();
         
-        for (int i = 0; i < NUM_SHARDS; i++) {
-            HikariConfig config = new HikariConfig();
-            config.setJdbcUrl(baseUrl + "/order_db_" + i + "?createDatabaseIfNotExist=true");
-            config.setUsername(username);
-            config.setPassword(password);
-            config.setDriverClassName("com.mysql.cj.jdbc.Driver");
-            config.setMaximumPoolSize(10);
-            config.setMinimumIdle(2);
-            config.setConnectionTimeout(30000);
-            config.setIdleTimeout(600000);
-            config.setMaxLifetime(1800000);
+        for (int i = 0; i < databases.size(); i++) {
+            HikariConfig config = poolConfig("shard-" + i, baseUrl + "/" + databases.get(i) + "?createDatabaseIfNotExist=true");
+            config.setMaximumPoolSize(shardingProperties.getPool().getInitialSize());
+            config.setConnectionTimeout(shardingProperties.getResilience().getConnectionTimeoutMs());
             
-            dataSources.put(i, new HikariDataSource(config));
+            ShardGuard guard = new ShardGuard(i, shardingProperties.getResilience());
+            dataSources.put(i, new GuardedShardDataSource(new HikariDataSource(config), guard));
         }
         
         return dataSources;
     }
     
+    private HikariConfig poolConfig(String poolName, String jdbcUrl) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(poolName);
+        config.setJdbcUrl(jdbcUrl);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setDriverClassName("com.mysql.cj.jdbc.Driver");
+        config.setMaximumPoolSize(10);
+        config.setMinimumIdle(2);
+        config.setConnectionTimeout(30000);
+        config.setIdleTimeout(600000);
+        config.setMaxLifetime(1800000);
+        // Let the driver collapse JDBC batches into multi-row INSERTs
+        config.addDataSourceProperty("rewriteBatchedStatements", "true");
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", "250");
+        return config;
+    }
+    
+    /**
+     * Read-only pools for a shard's replicas, built on first use; empty when none are configured
+     */
+    public List<HikariDataSource> getReplicaDataSources(int shardIndex) {
+        return replicaDataSources.computeIfAbsent(shardIndex, i -> {
+            List<String> urls = shardingProperties.getReplicas().getUrls().getOrDefault(i, List.of());
+            List<HikariDataSource> replicas = new ArrayList<>();
+            for (int r = 0; r < urls.size(); r++) {
+                HikariConfig config = poolConfig("shard-" + i + "-replica-" + r, urls.get(r));
+                config.setReadOnly(true);
+                // A dead replica should fail over to the primary quickly, not hold the request
+                config.setConnectionTimeout(2000);
+                config.setInitializationFailTimeout(-1);
+                replicas.add(new HikariDataSource(config));
+            }
+            return replicas;
+        });
+    }
+    
+    @PreDestroy
+    public void closeReplicas() {
+        replicaDataSources.values().forEach(pools -> pools.forEach(HikariDataSource::close));
+    }
+    
     /**
      * Primary datasource for default operations (shard 0)
      */
@@ -61,25 +121,45 @@ public class ShardingConfig {
     }
     
     /**
-     * Determine which shard to use based on user_id
-     * Shard key: user_id % NUM_SHARDS
+     * Order ID generator; every order-service instance needs a distinct sharding.node-id
      */
-    public int getShardIndex(Long userId) {
-        return (int) (userId % NUM_SHARDS);
+    @Bean
+    public SnowflakeIdGenerator orderIdGenerator() {
+        return new SnowflakeIdGenerator(nodeId);
+    }
+    
+    public GuardedShardDataSource getGuardedDataSource(int shardIndex) {
+        return (GuardedShardDataSource) getDataSourceForShard(shardIndex);
+    }
+    
+    public int getNumShards() {
+        return shardDataSources().size();
+    }
+    
+    public String getDatabaseName(int shardIndex) {
+        return shardingProperties.resolveDatabases().get(shardIndex);
     }
     
     /**
      * Get datasource for specific shard
      */
     public DataSource getDataSourceForShard(int shardIndex) {
-        return shardDataSources().get(shardIndex);
+        DataSource dataSource = shardDataSources().get(shardIndex);
+        if (dataSource == null) {
+            throw new IllegalArgumentException("Unknown shard: " + shardIndex);
+        }
+        return dataSource;
+    }
+    
+    public JdbcTemplate getJdbcTemplate(int shardIndex) {
+        return jdbcTemplates.computeIfAbsent(shardIndex, i -> new JdbcTemplate(getDataSourceForShard(i)));
     }
     
     /**
-     * Get datasource based on user_id
+     * Local transactions on one shard, independent of the JPA transaction manager
      */
-    public DataSource getDataSourceForUser(Long userId) {
-        int shardIndex = getShardIndex(userId);
-        return getDataSourceForShard(shardIndex);
+    public TransactionTemplate getTransactionTemplate(int shardIndex) {
+        return transactionTemplates.computeIfAbsent(shardIndex,
+            i -> new TransactionTemplate(new DataSourceTransactionManager(getDataSourceForShard(i))));
     }
 }
@@ -0,0 +1,156 @@
+package com.ordering.orderservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binds the {@code sharding.*} block of application.yml.
+ */
+@Data
+@ConfigurationProperties(prefix = "sharding")
+public class ShardingProperties {
+    
+    private boolean enabled = true;
+    
+    /**
+     * Number of order databases. Defaults to the size of {@link #databases} when that is set.
+     */
+    private int numShards = 4;
+    
+    /**
+     * Database names in shard order; shard N is the Nth entry. Defaults to order_db_0..order_db_{numShards-1}.
+     */
+    private List<String> databases = new ArrayList<>();
+    
+    /**
+     * Users hash to a fixed number of virtual buckets, and buckets map to shards through
+     * the routing table. Never change this after data has been written.
+     */
+    private int virtualBuckets = 1024;
+    
+    private Routing routing = new Routing();
+    
+    private Replicas replicas = new Replicas();
+    
+    private Resilience resilience = new Resilience();
+    
+    private PoolSizing pool = new PoolSizing();
+    
+    private GroupCommit groupCommit = new GroupCommit();
+    
+    @Data
+    public static class Routing {
+        /**
+         * How often each instance re-reads the bucket-to-shard table.
+         */
+        private long refreshIntervalMs = 30000;
+    }
+    
+    @Data
+    public static class Replicas {
+        /**
+         * Replica JDBC URLs per shard index. Shards without an entry read from their primary.
+         */
+        private Map<Integer, List<String>> urls = new HashMap<>();
+        
+        /**
+         * Replicas further behind than this are skipped until they catch up.
+         */
+        private long maxLagSeconds = 5;
+        
+        private long lagCheckIntervalMs = 5000;
+        
+        /**
+         * After a user writes, their reads stay on the primary for this long.
+         */
+        private long readYourWritesMs = 10000;
+    }
+    
+    @Data
+    public static class Resilience {
+        /**
+         * How long a caller waits for a pooled connection before the shard counts as failing.
+         */
+        private long connectionTimeoutMs = 2000;
+        
+        /**
+         * Concurrent connections one shard may hand out; callers beyond that are rejected.
+         */
+        private int maxConcurrent = 30;
+        
+        private long bulkheadWaitMs = 50;
+        
+        /**
+         * Failures within {@link #failureWindowMs} that open the circuit.
+         */
+        private int failureThreshold = 5;
+        
+        private long failureWindowMs = 10000;
+        
+        /**
+         * How long an open circuit rejects calls before letting one trial through.
+         */
+        private long openDurationMs = 10000;
+    }
+    
+    @Data
+    public static class PoolSizing {
+        private int initialSize = 10;
+        private int minSize = 5;
+        private int maxSize = 30;
+        
+        /**
+         * Grow the pool when the mean connection wait over an interval is above this.
+         */
+        private long targetAcquireMs = 5;
+        
+        private long resizeIntervalMs = 15000;
+    }
+    
+    @Data
+    public static class GroupCommit {
+        /**
+         * Coalesce concurrent single-order inserts per shard into shared transactions.
+         */
+        private boolean enabled = false;
+        
+        private int maxBatchSize = 100;
+        
+        /**
+         * How long a writer waits for more inserts after the first; 0 takes only what is already queued.
+         */
+        private long maxWaitMicros = 2000;
+        
+        /**
+         * Concurrent transactions per shard; each writer builds its own batches.
+         */
+        private int writersPerShard = 2;
+        
+        private int queueCapacity = 10000;
+        
+        /**
+         * Longest a caller waits for its order's batch to commit before giving up on it.
+         */
+        private long commitTimeoutMs = 5000;
+    }
+    
+    public List<String> resolveDatabases() {
+        if (!databases.isEmpty()) {
+            if (databases.size() != numShards) {
+                throw new IllegalStateException("sharding.num-shards (" + numShards + ") does not match "
+                    + "the " + databases.size() + " entries in sharding.databases");
+            }
+            return databases;
+        }
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < numShards; i++) {
+            names.add("order_db_" + i);
+        }
+        return names;
+    }
+}
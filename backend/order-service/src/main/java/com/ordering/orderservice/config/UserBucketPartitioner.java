@@ -0,0 +1,60 @@
+package com.ordering.orderservice.config;
+
+import com.ordering.orderservice.sharding.ShardRouter;
+import org.apache.kafka.clients.producer.Partitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.utils.Utils;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Places events keyed by user ID on partition {@code bucket % numPartitions}. The bucket of a
+ * user never changes, so neither does the partition, and a user's events stay in order even
+ * while their bucket moves between shards. This only guarantees per-user ordering: partitions
+ * are not aligned with shards ({@link KafkaConfig#TOPIC_PARTITIONS} is 3 against 4 shards),
+ * so one partition's consumer still touches every shard.
+ * Keys that are not user IDs fall back to the usual murmur2 hash, and unkeyed records
+ * to a random partition.
+ */
+public class UserBucketPartitioner implements Partitioner {
+    
+    /**
+     * Producer config entry holding the {@link ShardRouter} instance.
+     */
+    public static final String SHARD_ROUTER_CONFIG = "order.shard.router";
+    
+    private ShardRouter shardRouter;
+    
+    @Override
+    public void configure(Map<String, ?> configs) {
+        shardRouter = (ShardRouter) configs.get(SHARD_ROUTER_CONFIG);
+    }
+    
+    @Override
+    public int partition(String topic, Object key, byte[] keyBytes, Object value, byte[] valueBytes, Cluster cluster) {
+        int numPartitions = cluster.partitionsForTopic(topic).size();
+        if (keyBytes == null) {
+            return ThreadLocalRandom.current().nextInt(numPartitions);
+        }
+        Long userId = parseUserId(key);
+        if (userId == null || shardRouter == null) {
+            return Utils.toPositive(Utils.murmur2(keyBytes)) % numPartitions;
+        }
+        
+        // Not the routed shard: that changes when the bucket migrates, and so would the partition
+        return shardRouter.getBucket(userId) % numPartitions;
+    }
+    
+    private static Long parseUserId(Object key) {
+        try {
+            return key != null ? Long.valueOf(key.toString()) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,45 @@
+package com.ordering.orderservice.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread factories for the service's own executors. With {@code spring.threads.virtual.enabled}
+ * on a Java 21+ runtime they hand out virtual threads, like Tomcat and the listener containers;
+ * otherwise named daemon platform threads.
+ */
+@Component
+public class WorkerThreads {
+
+    @Autowired
+    private Environment environment;
+
+    public boolean isVirtual() {
+        return Threading.VIRTUAL.isActive(environment);
+    }
+
+    /**
+     * Threads named {@code <prefix>-1}, {@code <prefix>-2}, ...
+     */
+    public ThreadFactory factory(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory threads = isVirtual()
+            ? new VirtualThreadTaskExecutor().getVirtualThreadFactory()
+            : r -> {
+                Thread t = new Thread(r);
+                t.setDaemon(true);
+                return t;
+            };
+        return r -> {
+            Thread t = threads.newThread(r);
+            t.setName(prefix + "-" + count.incrementAndGet());
+            return t;
+        };
+    }
+}
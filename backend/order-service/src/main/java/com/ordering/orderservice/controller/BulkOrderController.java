@@ -0,0 +1,28 @@
+package com.ordering.orderservice.controller;
+
+import com.ordering.common.dto.ApiResponse;
+import com.ordering.common.dto.BulkOrderResult;
+import com.ordering.common.dto.OrderDTO;
+import com.ordering.orderservice.service.ShardedOrderService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/orders")
+public class BulkOrderController {
+    
+    @Autowired
+    private ShardedOrderService shardedOrderService;
+    
+    @PostMapping("/bulk")
+    public ApiResponse<List<BulkOrderResult>> createOrders(@RequestBody List<OrderDTO> orders) {
+        List<BulkOrderResult> results = shardedOrderService.createOrders(orders);
+        long failed = results.stream().filter(r -> !r.isSuccess()).count();
+        if (failed > 0) {
+            return new ApiResponse<>(true, failed + " of " + results.size() + " orders rejected", results);
+        }
+        return ApiResponse.success(results);
+    }
+}
@@ -0,0 +1,54 @@
+package com.ordering.orderservice.controller;
+
+import com.ordering.common.dto.ApiResponse;
+import com.ordering.orderservice.config.EventRetryProperties;
+import com.ordering.orderservice.listener.DeadLetterReplayer;
+import com.ordering.orderservice.outbox.OutboxPublisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/orders/dead-letters")
+public class DeadLetterController {
+    
+    private static final List<String> EVENT_TYPES = List.of(
+        OutboxPublisher.ORDER_CREATED, OutboxPublisher.ORDER_PAYMENT, OutboxPublisher.ORDER_NOTIFICATION);
+    
+    // None in the in-process profile, which has no dead letters
+    @Autowired(required = false)
+    private DeadLetterReplayer deadLetterReplayer;
+    
+    @Autowired
+    private EventRetryProperties retryProperties;
+    
+    /**
+     * Re-inject dead-lettered events of one type, e.g. POST /api/orders/dead-letters/order.created/replay?limit=100&ratePerSecond=20
+     */
+    @PostMapping("/{eventType}/replay")
+    public ApiResponse<Map<String, Object>> replay(@PathVariable String eventType,
+                                                   @RequestParam(defaultValue = "100") int limit,
+                                                   @RequestParam(defaultValue = "50") int ratePerSecond) {
+        if (deadLetterReplayer == null) {
+            throw new RuntimeException("Dead-letter replay needs a broker-backed outbox.publisher");
+        }
+        if (!EVENT_TYPES.contains(eventType)) {
+            throw new RuntimeException("Unknown event type: " + eventType);
+        }
+        if (limit < 1 || ratePerSecond < 1) {
+            throw new RuntimeException("limit and ratePerSecond must be positive");
+        }
+        int rate = Math.min(ratePerSecond, retryProperties.getMaxReplayRate());
+        int max = Math.min(limit, retryProperties.getMaxReplayLimit());
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("eventType", eventType);
+        result.put("ratePerSecond", rate);
+        result.put("limit", max);
+        result.put("replayed", deadLetterReplayer.replay(eventType, max, rate));
+        return ApiResponse.success(result);
+    }
+}
@@ -1,22 +1,84 @@
 package com.ordering.orderservice.controller;
 import com.ordering.common.dto.ApiResponse;
+import com.ordering.common.dto.CursorPage;
 import com.ordering.common.dto.OrderDTO;
+import com.ordering.common.dto.OrderIntakeStatus;
+import com.ordering.orderservice.idempotency.IdempotencyKeyException;
+import com.ordering.orderservice.idempotency.IdempotentRequestStore;
+import com.ordering.orderservice.service.InvalidVersionException;
+import com.ordering.orderservice.service.OrderIntakeFullException;
+import com.ordering.orderservice.service.OrderIntakeService;
 import com.ordering.orderservice.service.OrderService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import java.net.URI;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 @RestController
 @RequestMapping("/api/orders")
 public class OrderController {
     @Autowired private OrderService orderService;
+    @Autowired private OrderIntakeService orderIntakeService;
+    @Autowired private IdempotentRequestStore idempotentRequestStore;
     
+    @Value("${order-intake.mode:sync}")
+    private String intakeMode;
+    
+    /**
+     * Creates the order before responding, or, in async intake mode (order-intake.mode=async, or
+     * the request sends "Prefer: respond-async"), queues it and answers 202 with a status URL.
+     * With an "Idempotency-Key" header, retries of the same request get the first response back.
+     */
     @PostMapping
-    public ApiResponse<OrderDTO> createOrder(@RequestBody Map<String, Object> request) {
-        Long userId = ((Number) request.get("userId")).longValue();
+    public ResponseEntity<ApiResponse<?>> createOrder(@RequestBody Map<String, Object> request,
+                                                      @RequestHeader(value = "Prefer", required = false) String prefer,
+                                                      @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        Number userIdValue = (Number) request.get("userId");
+        Long userId = userIdValue != null ? userIdValue.longValue() : null;
         String paymentMethod = (String) request.get("paymentMethod");
         String deliveryAddress = (String) request.get("deliveryAddress");
-        return ApiResponse.success(orderService.createOrder(userId, paymentMethod, deliveryAddress));
+        boolean async = "async".equals(intakeMode) || (prefer != null && prefer.contains("respond-async"));
+        
+        if (idempotencyKey == null) {
+            return placeOrder(userId, paymentMethod, deliveryAddress, async);
+        }
+        // Keys are per user, so two users' clients cannot collide
+        return idempotentRequestStore.execute(String.valueOf(userId), idempotencyKey, request,
+                                              () -> placeOrder(userId, paymentMethod, deliveryAddress, async));
+    }
+    
+    private ResponseEntity<ApiResponse<?>> placeOrder(Long userId, String paymentMethod, String deliveryAddress,
+                                                      boolean async) {
+        if (async) {
+            OrderIntakeStatus accepted = orderIntakeService.submit(userId, paymentMethod, deliveryAddress);
+            return ResponseEntity.accepted()
+                                 .location(URI.create(accepted.getStatusUrl()))
+                                 .body(ApiResponse.success(accepted));
+        }
+        return ResponseEntity.ok(ApiResponse.success(orderService.createOrder(userId, paymentMethod, deliveryAddress)));
+    }
+    
+    @GetMapping("/intake/{orderId}")
+    public ApiResponse<OrderIntakeStatus> getIntakeStatus(@PathVariable Long orderId) {
+        return ApiResponse.success(orderIntakeService.getStatus(orderId));
+    }
+    
+    @ExceptionHandler(OrderIntakeFullException.class)
+    public ResponseEntity<ApiResponse<Void>> intakeFull(OrderIntakeFullException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                             .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                             .body(ApiResponse.error(e.getMessage()));
+    }
+    
+    @ExceptionHandler(IdempotencyKeyException.class)
+    public ResponseEntity<ApiResponse<Void>> idempotencyKeyRejected(IdempotencyKeyException e) {
+        return ResponseEntity.status(e.getStatus()).body(ApiResponse.error(e.getMessage()));
     }
     
     @GetMapping("/{id}")
@@ -29,13 +91,53 @@ public class OrderController {
         return ApiResponse.success(orderService.getOrdersByUserId(userId));
     }
     
+    @GetMapping("/user/{userId}/page")
+    public ApiResponse<CursorPage<OrderDTO>> getUserOrdersPage(@PathVariable Long userId,
+                                                               @RequestParam(required = false) String cursor,
+                                                               @RequestParam(defaultValue = "20") int size) {
+        return ApiResponse.success(orderService.getOrdersByUserId(userId, cursor, size));
+    }
+    
+    @GetMapping("/user/{userId}/range")
+    public ApiResponse<List<OrderDTO>> getUserOrdersInRange(
+            @PathVariable Long userId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "20") int size) {
+        return ApiResponse.success(orderService.getOrdersByUserId(userId, from, to, size));
+    }
+    
     @PostMapping("/{id}/payment")
     public ApiResponse<OrderDTO> processPayment(@PathVariable Long id) {
         return ApiResponse.success(orderService.processPayment(id));
     }
     
+    /**
+     * The expected version comes from an "If-Match" header (the order's version, quoted or not)
+     * or from "version" in the body; a value that is not a number is rejected with 400.
+     */
     @PutMapping("/{id}/status")
-    public ApiResponse<OrderDTO> updateStatus(@PathVariable Long id, @RequestBody Map<String, String> request) {
-        return ApiResponse.success(orderService.updateOrderStatus(id, request.get("status")));
+    public ApiResponse<OrderDTO> updateStatus(@PathVariable Long id, @RequestBody Map<String, String> request,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long version = parseVersion(ifMatch != null ? ifMatch : request.get("version"));
+        return ApiResponse.success(orderService.updateOrderStatus(id, request.get("status"), version));
+    }
+    
+    private static Long parseVersion(String value) {
+        if (value == null) {
+            return null;
+        }
+        String version = value.trim();
+        if (version.startsWith("W/")) {
+            version = version.substring(2);
+        }
+        if (version.length() >= 2 && version.startsWith("\"") && version.endsWith("\"")) {
+            version = version.substring(1, version.length() - 1);
+        }
+        try {
+            return Long.valueOf(version);
+        } catch (NumberFormatException e) {
+            throw new InvalidVersionException(value);
+        }
     }
 }
@@ -0,0 +1,93 @@
+package com.ordering.orderservice.controller;
+
+import com.ordering.common.dto.ApiResponse;
+import com.ordering.common.dto.CursorPage;
+import com.ordering.common.dto.OrderDTO;
+import com.ordering.orderservice.service.ShardedOrderService;
+import com.ordering.orderservice.sharding.ScatterGatherResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/orders/sharded")
+public class ShardedOrderController {
+    
+    @Autowired
+    private ShardedOrderService shardedOrderService;
+    
+    /**
+     * userId is optional for generated IDs and required for legacy IDs that exist on several shards
+     */
+    @GetMapping("/{id}")
+    public ApiResponse<OrderDTO> getOrder(@PathVariable Long id, @RequestParam(required = false) Long userId) {
+        if (userId != null) {
+            return ApiResponse.success(shardedOrderService.getOrderById(id, userId));
+        }
+        return ApiResponse.success(shardedOrderService.getOrderById(id));
+    }
+    
+    @GetMapping("/status/{status}")
+    public ApiResponse<List<OrderDTO>> getOrdersByStatus(@PathVariable String status,
+                                                         @RequestParam(defaultValue = "100") int limit,
+                                                         @RequestParam(defaultValue = "false") boolean includeItems) {
+        return toResponse(shardedOrderService.getOrdersByStatus(status, limit, includeItems));
+    }
+    
+    @GetMapping("/status/{status}/page")
+    public ApiResponse<CursorPage<OrderDTO>> getOrdersByStatusPage(@PathVariable String status,
+                                                                   @RequestParam(required = false) String cursor,
+                                                                   @RequestParam(defaultValue = "20") int size,
+                                                                   @RequestParam(defaultValue = "false") boolean includeItems) {
+        return ApiResponse.success(shardedOrderService.getOrdersByStatus(status, cursor, size, includeItems));
+    }
+    
+    @GetMapping("/user/{userId}/page")
+    public ApiResponse<CursorPage<OrderDTO>> getUserOrdersPage(@PathVariable Long userId,
+                                                               @RequestParam(required = false) String cursor,
+                                                               @RequestParam(defaultValue = "20") int size,
+                                                               @RequestParam(defaultValue = "false") boolean includeItems) {
+        return ApiResponse.success(shardedOrderService.getOrdersByUserId(userId, cursor, size, includeItems));
+    }
+    
+    @GetMapping("/user/{userId}/range")
+    public ApiResponse<CursorPage<OrderDTO>> getUserOrdersInRange(
+            @PathVariable Long userId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includeItems) {
+        return ApiResponse.success(shardedOrderService.getOrdersByUserId(userId, from, to, cursor, size, includeItems));
+    }
+    
+    @GetMapping("/status/{status}/range")
+    public ApiResponse<List<OrderDTO>> getOrdersByStatusInRange(
+            @PathVariable String status,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(defaultValue = "false") boolean includeItems) {
+        return toResponse(shardedOrderService.getOrdersByStatus(status, from, to, limit, includeItems));
+    }
+    
+    @GetMapping("/range")
+    public ApiResponse<List<OrderDTO>> getOrdersInRange(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(defaultValue = "false") boolean includeItems) {
+        return toResponse(shardedOrderService.getOrdersInRange(from, to, limit, includeItems));
+    }
+    
+    private ApiResponse<List<OrderDTO>> toResponse(ScatterGatherResult<OrderDTO> result) {
+        if (result.isPartial()) {
+            return new ApiResponse<>(true, "Partial result, shards not answering: " + result.getFailedShards(),
+                                     result.getRows());
+        }
+        return ApiResponse.success(result.getRows());
+    }
+}
@@ -1,15 +1,19 @@
 package com.ordering.orderservice.controller;
 
 import com.ordering.common.dto.ApiResponse;
-import com.ordering.orderservice.repository.ShardedOrderRepository;
+import com.ordering.orderservice.config.ShardingConfig;
 import com.ordering.orderservice.service.ShardedOrderService;
+import com.ordering.orderservice.sharding.ReplicaRouter;
+import com.ordering.orderservice.sharding.ShardRouter;
+import com.ordering.orderservice.sharding.ShardStatsSnapshot;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -19,17 +23,33 @@ public class ShardingStatsController {
     @Autowired
     private ShardedOrderService shardedOrderService;
     
+    @Autowired
+    private ShardingConfig shardingConfig;
+    
+    @Autowired
+    private ShardRouter shardRouter;
+    
+    @Autowired
+    private ReplicaRouter replicaRouter;
+    
     @GetMapping("/stats")
     public ApiResponse<Map<String, Object>> getShardingStats() {
         Map<String, Object> stats = new HashMap<>();
         
-        long totalOrders = shardedOrderService.getTotalOrderCount();
-        List<ShardedOrderRepository.ShardStats> shardStats = shardedOrderService.getShardStatistics();
+        ShardStatsSnapshot snapshot = shardedOrderService.getShardStatistics();
         
-        stats.put("totalOrders", totalOrders);
-        stats.put("numberOfShards", 4);
-        stats.put("shardDetails", shardStats);
-        stats.put("shardingStrategy", "Hash-based on user_id modulo 4");
+        stats.put("totalOrders", snapshot.getTotalOrders());
+        stats.put("numberOfShards", shardingConfig.getNumShards());
+        stats.put("shardDetails", snapshot.getShards());
+        stats.put("generatedAt", snapshot.getGeneratedAt());
+        stats.put("reconciledAt", snapshot.getReconciledAt());
+        // Age of the last recount against the shards; null until the first one succeeds
+        stats.put("secondsSinceReconcile", snapshot.getReconciledAt() != null
+                  ? Duration.between(snapshot.getReconciledAt(), Instant.now()).getSeconds() : null);
+        stats.put("shardingStrategy", "user_id modulo " + shardRouter.getNumBuckets()
+                  + " virtual buckets, buckets mapped to shards by routing table");
+        stats.put("bucketsPerShard", shardRouter.getBucketCountsByShard());
+        stats.put("replicas", replicaRouter.getReplicaStatus());
         stats.put("partitioningStrategy", "Range partitioning by year on created_at");
         
         return ApiResponse.success(stats);
@@ -1,18 +1,22 @@
 package com.ordering.orderservice.entity;
+import com.ordering.common.model.CartItem;
 import jakarta.persistence.*;
 import lombok.Data;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
 @Entity
 @Table(name = "orders")
 @Data
 public class Order {
+    // Assigned before insert from SnowflakeIdGenerator, never by the database: shard inserts put
+    // generated IDs in these tables, and AUTO_INCREMENT would continue right after them
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     @Column(nullable = false)
     private Long userId;
-    @Column(nullable = false, columnDefinition = "TEXT")
+    // JSON line items; sharded orders keep them in order_items instead and leave this null
+    @Column(columnDefinition = "TEXT")
     private String items;
     @Column(nullable = false)
     private BigDecimal totalAmount;
@@ -32,6 +36,21 @@ public class Order {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Bumped on every write; status transitions can require the version the caller last saw.
+    // Left null on new orders: JPA treats a versioned entity with a version as already stored,
+    // and seeds 0 itself on insert
+    @Version
+    @Column(nullable = false, columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private Long version;
+
+    // Status as read from the database, so the sharded repository can tell what changed
+    @Transient
+    private String loadedStatus;
+
+    // Line items of a sharded order: set before insert, and filled in by loadItems on request
+    @Transient
+    private List<CartItem> lineItems;
+
     // Auto-set the year
     @PrePersist
     protected void onCreate() {
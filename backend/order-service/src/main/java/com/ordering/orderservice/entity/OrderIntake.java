@@ -0,0 +1,34 @@
+package com.ordering.orderservice.entity;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A row of the {@code order_intake} queue: an order request accepted by the asynchronous
+ * intake, waiting to be committed. {@code orderId} is reserved when the request is accepted
+ * and becomes the ID of the order; {@code items} and {@code totalAmount} are the cart as it
+ * was validated then.
+ */
+@Data
+public class OrderIntake {
+    
+    public static final String PENDING = "PENDING";
+    public static final String PROCESSING = "PROCESSING";
+    public static final String COMMITTED = "COMMITTED";
+    public static final String FAILED = "FAILED";
+    
+    private Long orderId;
+    private Long userId;
+    private String paymentMethod;
+    private String deliveryAddress;
+    private String items;
+    private BigDecimal totalAmount;
+    private String status;
+    private String error;
+    private int attempts;
+    private LocalDateTime nextAttemptAt;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,66 @@
+package com.ordering.orderservice.entity;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Order lifecycle and the status moves it allows. Stored as its name in {@code orders.status}.
+ */
+public enum OrderStatus {
+    PENDING,
+    PAID,
+    PREPARING,
+    OUT_FOR_DELIVERY,
+    DELIVERED,
+    CANCELLED;
+    
+    private static final Map<OrderStatus, Set<OrderStatus>> NEXT = new EnumMap<>(OrderStatus.class);
+    
+    static {
+        NEXT.put(PENDING, EnumSet.of(PAID, CANCELLED));
+        NEXT.put(PAID, EnumSet.of(PREPARING, OUT_FOR_DELIVERY, DELIVERED, CANCELLED));
+        NEXT.put(PREPARING, EnumSet.of(OUT_FOR_DELIVERY, DELIVERED, CANCELLED));
+        NEXT.put(OUT_FOR_DELIVERY, EnumSet.of(DELIVERED));
+        NEXT.put(DELIVERED, EnumSet.noneOf(OrderStatus.class));
+        NEXT.put(CANCELLED, EnumSet.noneOf(OrderStatus.class));
+    }
+    
+    public boolean canMoveTo(OrderStatus next) {
+        return NEXT.get(this).contains(next);
+    }
+    
+    /**
+     * Every status an order may be in to move to {@code next}; used as the WHERE status IN (...) guard.
+     */
+    public static List<String> predecessorsOf(OrderStatus next) {
+        return Arrays.stream(values())
+            .filter(s -> s.canMoveTo(next))
+            .map(Enum::name)
+            .collect(Collectors.collectingAndThen(Collectors.toList(), Collections::unmodifiableList));
+    }
+    
+    /**
+     * Statuses the order may be in for the move to apply: just {@code from} when the caller
+     * names one, otherwise every legal predecessor of {@code to}. Empty if the move is illegal.
+     */
+    public static List<String> allowedFrom(OrderStatus from, OrderStatus to) {
+        if (from != null) {
+            return from.canMoveTo(to) ? List.of(from.name()) : List.of();
+        }
+        return predecessorsOf(to);
+    }
+    
+    public static OrderStatus parse(String status) {
+        try {
+            return valueOf(status.trim().toUpperCase());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new RuntimeException("Unknown order status: " + status);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.ordering.orderservice.idempotency;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter over strings, sized from the expected insertions and target
+ * false-positive probability. Never gives a false negative: {@link #mightContain} is
+ * false only for keys that were definitely never added.
+ */
+public class BloomFilter {
+    
+    private final AtomicLongArray words;
+    private final long numBits;
+    private final int numHashes;
+    private final AtomicLong bitsSet = new AtomicLong();
+    
+    public BloomFilter(long expectedInsertions, double falsePositiveProbability) {
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        int numWords = (int) Math.max(1, (bits + 63) / 64);
+        this.words = new AtomicLongArray(numWords);
+        this.numBits = numWords * 64L;
+        this.numHashes = (int) Math.max(1, Math.round((double) numBits / expectedInsertions * Math.log(2)));
+    }
+    
+    public void put(String key) {
+        long hash = hash64(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= numHashes; i++) {
+            setBit(index(h1, h2, i));
+        }
+    }
+    
+    public boolean mightContain(String key) {
+        long hash = hash64(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= numHashes; i++) {
+            long bit = index(h1, h2, i);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * False-positive probability at the current fill, (bits set / bits)^k
+     */
+    public double expectedFalsePositiveRate() {
+        return Math.pow((double) bitsSet.get() / numBits, numHashes);
+    }
+    
+    private long index(int h1, int h2, int i) {
+        // Double hashing: the i-th probe is h1 + i * h2
+        int combined = h1 + i * h2;
+        return (combined & Integer.MAX_VALUE) % numBits;
+    }
+    
+    private void setBit(long bit) {
+        int word = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        long current;
+        do {
+            current = words.get(word);
+            if ((current & mask) != 0) {
+                return;
+            }
+        } while (!words.compareAndSet(word, current, current | mask));
+        bitsSet.incrementAndGet();
+    }
+    
+    /**
+     * FNV-1a over the UTF-8 bytes, finished with the MurmurHash3 mixer so both halves are well spread
+     */
+    private static long hash64(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
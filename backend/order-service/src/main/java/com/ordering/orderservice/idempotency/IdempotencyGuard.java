@@ -0,0 +1,157 @@
+package com.ordering.orderservice.idempotency;
+
+import com.ordering.orderservice.config.IdempotencyProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Runs a listener's side effect at most once per event, across redeliveries. Processed events
+ * are recorded in a Redis set per time window (expiring after two windows) and in a local Bloom
+ * filter per window. A check asks the Bloom filters first: a miss means the event is new and
+ * costs no network call. Only a possible hit is confirmed against Redis, which also tells
+ * true duplicates from false positives.
+ * <p>
+ * Other instances' records reach the local filters through {@link #refresh}, so a redelivery
+ * that moves to another instance within {@code idempotency.refresh-interval-ms} of the first
+ * delivery can still run twice. If Redis cannot be reached to confirm a possible hit, the
+ * check throws and the event goes through the listener's normal retry path.
+ */
+@Component
+@Slf4j
+public class IdempotencyGuard implements MeterBinder {
+    
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+    
+    @Autowired
+    private IdempotencyProperties properties;
+    
+    // Window index -> filter; only the current and previous windows are kept
+    private final ConcurrentSkipListMap<Long, BloomFilter> filters = new ConcurrentSkipListMap<>();
+    
+    private Counter checks;
+    private Counter possibleHits;
+    private Counter duplicates;
+    private Counter falsePositives;
+    private Counter recordFailures;
+    
+    /**
+     * Runs {@code action} unless this event was already processed; returns whether it ran
+     */
+    public boolean runOnce(String eventType, Long id, Runnable action) {
+        if (!properties.isEnabled()) {
+            action.run();
+            return true;
+        }
+        String member = eventType + ":" + id;
+        if (isDuplicate(member)) {
+            log.info("Skipping duplicate {} for {}", eventType, id);
+            return false;
+        }
+        action.run();
+        record(member);
+        return true;
+    }
+    
+    private boolean isDuplicate(String member) {
+        checks.increment();
+        long window = currentWindow();
+        for (long w = window; w >= window - 1; w--) {
+            BloomFilter filter = filters.get(w);
+            if (filter == null || !filter.mightContain(member)) {
+                continue;
+            }
+            possibleHits.increment();
+            if (Boolean.TRUE.equals(redisTemplate.opsForSet().isMember(setKey(w), member))) {
+                duplicates.increment();
+                return true;
+            }
+            falsePositives.increment();
+        }
+        return false;
+    }
+    
+    private void record(String member) {
+        long window = currentWindow();
+        filter(window).put(member);
+        byte[] key = setKey(window).getBytes(StandardCharsets.UTF_8);
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.setCommands().sAdd(key, member.getBytes(StandardCharsets.UTF_8));
+                connection.keyCommands().pExpire(key, 2 * properties.getWindowMs());
+                return null;
+            });
+        } catch (RuntimeException e) {
+            // The side effect already ran; this instance still remembers it through its Bloom filter
+            recordFailures.increment();
+            log.warn("Could not record processed event {} in Redis", member, e);
+        }
+    }
+    
+    /**
+     * Loads events recorded by every instance into the local filters; also warms them after a restart
+     */
+    @Scheduled(fixedDelayString = "${idempotency.refresh-interval-ms:30000}")
+    public void refresh() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long window = currentWindow();
+        filters.headMap(window - 1).clear();
+        for (long w = window - 1; w <= window; w++) {
+            BloomFilter filter = filter(w);
+            try (Cursor<String> members = redisTemplate.opsForSet()
+                     .scan(setKey(w), ScanOptions.scanOptions().count(1000).build())) {
+                members.forEachRemaining(filter::put);
+            } catch (RuntimeException e) {
+                log.warn("Could not refresh idempotency filter for window {}", w, e);
+            }
+        }
+    }
+    
+    private BloomFilter filter(long window) {
+        return filters.computeIfAbsent(window, w ->
+            new BloomFilter(properties.getExpectedInsertions(), properties.getFalsePositiveProbability()));
+    }
+    
+    private long currentWindow() {
+        return System.currentTimeMillis() / properties.getWindowMs();
+    }
+    
+    private String setKey(long window) {
+        return properties.getKeyPrefix() + window;
+    }
+    
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        checks = Counter.builder("idempotency.checks").register(registry);
+        possibleHits = Counter.builder("idempotency.bloom.possible.hits").register(registry);
+        duplicates = Counter.builder("idempotency.duplicates").register(registry);
+        falsePositives = Counter.builder("idempotency.bloom.false.positives").register(registry);
+        recordFailures = Counter.builder("idempotency.record.failures").register(registry);
+        
+        // Observed: false positives among events that were actually new
+        Gauge.builder("idempotency.bloom.false.positive.rate", this, guard -> {
+            double fresh = guard.checks.count() - guard.duplicates.count();
+            return fresh > 0 ? guard.falsePositives.count() / fresh : 0.0;
+        }).register(registry);
+        // Predicted from the current window's fill
+        Gauge.builder("idempotency.bloom.expected.false.positive.rate", this, guard -> {
+            BloomFilter filter = guard.filters.get(guard.currentWindow());
+            return filter != null ? filter.expectedFalsePositiveRate() : 0.0;
+        }).register(registry);
+    }
+}
@@ -0,0 +1,21 @@
+package com.ordering.orderservice.idempotency;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * An {@code Idempotency-Key} request that cannot be answered: the key is malformed, was first
+ * used with a different request body, or its first request is still running.
+ */
+public class IdempotencyKeyException extends RuntimeException {
+    
+    private final HttpStatus status;
+    
+    public IdempotencyKeyException(HttpStatus status, String message) {
+        super(message);
+        this.status = status;
+    }
+    
+    public HttpStatus getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,386 @@
+package com.ordering.orderservice.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.ordering.common.dto.ApiResponse;
+import com.ordering.orderservice.config.IdempotencyProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs a request at most once per {@code Idempotency-Key}. The first request claims the key in
+ * Redis with an in-progress marker, runs, and replaces the marker with its response, which is
+ * kept for {@code idempotency.keys.ttl-ms}. Later requests with the key get that response back
+ * from a single Redis read.
+ * <p>
+ * Duplicates that arrive while the first request is still running wait for it: on the same
+ * instance they join its in-flight future, on other instances they poll the key until the
+ * response appears or {@code in-flight-timeout-ms} passes, and then get {@code 409}. A key
+ * reused with a different request body gets {@code 422}. Failed requests are not stored, so a
+ * retry after an error runs again. If Redis is unreachable the request runs without the check.
+ * <p>
+ * The running request renews its marker every {@code heartbeat-interval-ms}, so however long it
+ * takes, the marker cannot expire under it and let a retry run the order again. A marker that
+ * has stopped being renewed belongs to a request whose instance died with the outcome unknown;
+ * retries get {@code 409} straight away until it expires after {@code marker-ttl-ms}.
+ */
+@Component
+@Slf4j
+public class IdempotentRequestStore implements MeterBinder {
+    
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    
+    // Drop the in-progress marker only if it is still ours; it may have expired and been re-claimed
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+        Long.class);
+    
+    // Extend the in-progress marker only while it is still ours
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end",
+        Long.class);
+    
+    private static final long MAX_POLL_MS = 500;
+    
+    // Heartbeats a marker can miss before it counts as abandoned
+    private static final int MISSED_HEARTBEATS = 3;
+    
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+    
+    @Autowired
+    private IdempotencyProperties properties;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    // Redis key -> request running on this instance
+    private final ConcurrentHashMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    
+    private ScheduledExecutorService heartbeats;
+    
+    private Counter executions;
+    private Counter replays;
+    private Counter waits;
+    private Counter conflicts;
+    private Counter unavailable;
+    
+    @PostConstruct
+    public void init() {
+        heartbeats = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "idempotency-heartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        heartbeats.shutdownNow();
+    }
+    
+    /**
+     * Stored form of a key's state; {@code status} is 0 while the first request is running
+     */
+    @Data
+    static class StoredResponse {
+        private String fingerprint;
+        private String owner;
+        private int status;
+        private String location;
+        private String body;
+    }
+    
+    private record InFlight(String fingerprint, CompletableFuture<ResponseEntity<ApiResponse<?>>> result) {
+    }
+    
+    /**
+     * Runs {@code action} for the first request with this key in {@code scope}, or returns the response it produced
+     *
+     * @param request the request body; a retry must send the same one
+     */
+    public ResponseEntity<ApiResponse<?>> execute(String scope, String key, Object request,
+                                                  Supplier<ResponseEntity<ApiResponse<?>>> action) {
+        IdempotencyProperties.Keys config = properties.getKeys();
+        if (!config.isEnabled()) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > config.getMaxKeyLength()) {
+            throw new IdempotencyKeyException(HttpStatus.BAD_REQUEST,
+                "Idempotency-Key must be 1 to " + config.getMaxKeyLength() + " characters");
+        }
+        String redisKey = config.getKeyPrefix() + scope + ":" + key;
+        String fingerprint = fingerprint(request);
+        
+        InFlight mine = new InFlight(fingerprint, new CompletableFuture<>());
+        InFlight running = inFlight.putIfAbsent(redisKey, mine);
+        if (running != null) {
+            checkFingerprint(running.fingerprint(), fingerprint);
+            waits.increment();
+            return await(running.result(), config.getInFlightTimeoutMs());
+        }
+        
+        try {
+            ResponseEntity<ApiResponse<?>> response = claimAndRun(redisKey, fingerprint, action);
+            mine.result().complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            mine.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(redisKey, mine);
+        }
+    }
+    
+    private ResponseEntity<ApiResponse<?>> claimAndRun(String redisKey, String fingerprint,
+                                                       Supplier<ResponseEntity<ApiResponse<?>>> action) {
+        IdempotencyProperties.Keys config = properties.getKeys();
+        StoredResponse marker = new StoredResponse();
+        marker.setFingerprint(fingerprint);
+        marker.setOwner(UUID.randomUUID().toString());
+        String markerJson = write(marker);
+        
+        long deadline = System.currentTimeMillis() + config.getInFlightTimeoutMs();
+        long pollMs = 20;
+        boolean waited = false;
+        while (true) {
+            boolean claimed;
+            String stored = null;
+            try {
+                claimed = Boolean.TRUE.equals(redisTemplate.opsForValue()
+                    .setIfAbsent(redisKey, markerJson, Duration.ofMillis(config.getMarkerTtlMs())));
+                if (!claimed) {
+                    stored = redisTemplate.opsForValue().get(redisKey);
+                }
+            } catch (DataAccessException e) {
+                unavailable.increment();
+                log.warn("Redis unavailable, creating order without idempotency check for {}", redisKey, e);
+                return action.get();
+            }
+            if (claimed) {
+                return runAndStore(redisKey, marker, markerJson, action);
+            }
+            if (stored == null) {
+                // The other request's claim expired or was released between the two calls
+                continue;
+            }
+            
+            StoredResponse existing = read(stored);
+            checkFingerprint(existing.getFingerprint(), fingerprint);
+            if (existing.getStatus() != 0) {
+                replays.increment();
+                return replay(existing);
+            }
+            if (!waited) {
+                waits.increment();
+                waited = true;
+            }
+            if (isAbandoned(redisKey)) {
+                conflicts.increment();
+                throw new IdempotencyKeyException(HttpStatus.CONFLICT,
+                    "The first request with this Idempotency-Key did not finish and its outcome is unknown; " +
+                    "check your orders before retrying");
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                conflicts.increment();
+                throw new IdempotencyKeyException(HttpStatus.CONFLICT,
+                    "A request with this Idempotency-Key is still being processed; retry later");
+            }
+            sleep(pollMs);
+            pollMs = Math.min(pollMs * 2, MAX_POLL_MS);
+        }
+    }
+    
+    private ResponseEntity<ApiResponse<?>> runAndStore(String redisKey, StoredResponse marker, String markerJson,
+                                                       Supplier<ResponseEntity<ApiResponse<?>>> action) {
+        ResponseEntity<ApiResponse<?>> response;
+        ScheduledFuture<?> heartbeat = startHeartbeat(redisKey, markerJson);
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            heartbeat.cancel(false);
+            release(redisKey, markerJson);
+            throw e;
+        }
+        heartbeat.cancel(false);
+        executions.increment();
+        
+        StoredResponse done = new StoredResponse();
+        done.setFingerprint(marker.getFingerprint());
+        done.setOwner(marker.getOwner());
+        done.setStatus(response.getStatusCode().value());
+        URI location = response.getHeaders().getLocation();
+        done.setLocation(location != null ? location.toString() : null);
+        done.setBody(write(response.getBody()));
+        try {
+            redisTemplate.opsForValue().set(redisKey, write(done), Duration.ofMillis(properties.getKeys().getTtlMs()));
+        } catch (DataAccessException e) {
+            // The order exists; a retry after the marker expires would create it again
+            log.error("Could not store response for {}; retries with this key are not deduplicated", redisKey, e);
+        }
+        return response;
+    }
+    
+    private ScheduledFuture<?> startHeartbeat(String redisKey, String markerJson) {
+        long intervalMs = properties.getKeys().getHeartbeatIntervalMs();
+        String ttlMs = String.valueOf(properties.getKeys().getMarkerTtlMs());
+        return heartbeats.scheduleAtFixedRate(() -> {
+            try {
+                redisTemplate.execute(RENEW_SCRIPT, List.of(redisKey), markerJson, ttlMs);
+            } catch (DataAccessException e) {
+                log.warn("Could not renew {}; duplicates may see it as abandoned", redisKey, e);
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Every renewal resets the marker's TTL, so Redis' remaining TTL tells how long ago the
+     * owner last renewed it, without comparing clocks between instances
+     */
+    private boolean isAbandoned(String redisKey) {
+        IdempotencyProperties.Keys config = properties.getKeys();
+        Long remainingMs;
+        try {
+            remainingMs = redisTemplate.getExpire(redisKey, TimeUnit.MILLISECONDS);
+        } catch (DataAccessException e) {
+            return false;
+        }
+        if (remainingMs == null || remainingMs < 0) {
+            // Gone, or a stored response without expiry; the next poll reads it again
+            return false;
+        }
+        return config.getMarkerTtlMs() - remainingMs > MISSED_HEARTBEATS * config.getHeartbeatIntervalMs();
+    }
+    
+    private void release(String redisKey, String markerJson) {
+        try {
+            redisTemplate.execute(RELEASE_SCRIPT, List.of(redisKey), markerJson);
+        } catch (DataAccessException e) {
+            log.warn("Could not release {}; retries wait for the claim to expire", redisKey, e);
+        }
+    }
+    
+    private ResponseEntity<ApiResponse<?>> replay(StoredResponse stored) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(stored.getStatus()).header(REPLAYED_HEADER, "true");
+        if (stored.getLocation() != null) {
+            builder.location(URI.create(stored.getLocation()));
+        }
+        try {
+            ApiResponse<?> body = objectMapper.readValue(stored.getBody(), ApiResponse.class);
+            return builder.body(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable stored response", e);
+        }
+    }
+    
+    private ResponseEntity<ApiResponse<?>> await(CompletableFuture<ResponseEntity<ApiResponse<?>>> result,
+                                                 long timeoutMs) {
+        try {
+            ResponseEntity<ApiResponse<?>> response = result.get(timeoutMs, TimeUnit.MILLISECONDS);
+            return ResponseEntity.status(response.getStatusCode())
+                                 .headers(response.getHeaders())
+                                 .header(REPLAYED_HEADER, "true")
+                                 .body(response.getBody());
+        } catch (TimeoutException e) {
+            conflicts.increment();
+            throw new IdempotencyKeyException(HttpStatus.CONFLICT,
+                "A request with this Idempotency-Key is still being processed; retry later");
+        } catch (ExecutionException e) {
+            // The first request failed; its duplicates report the same error
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the first request", e);
+        }
+    }
+    
+    private void checkFingerprint(String stored, String fingerprint) {
+        if (!stored.equals(fingerprint)) {
+            conflicts.increment();
+            throw new IdempotencyKeyException(HttpStatus.UNPROCESSABLE_ENTITY,
+                "Idempotency-Key was already used with a different request");
+        }
+    }
+    
+    /**
+     * SHA-256 of the request with map keys sorted, so field order does not matter
+     */
+    private String fingerprint(Object request) {
+        try {
+            byte[] json = objectMapper.writer()
+                                      .with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+                                      .writeValueAsBytes(request);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not fingerprint request", e);
+        }
+    }
+    
+    private String write(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize " + value.getClass().getSimpleName(), e);
+        }
+    }
+    
+    private StoredResponse read(String json) {
+        try {
+            return objectMapper.readValue(json, StoredResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable idempotency record", e);
+        }
+    }
+    
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the first request", e);
+        }
+    }
+    
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        executions = Counter.builder("idempotency.keys.executions").register(registry);
+        replays = Counter.builder("idempotency.keys.replays").register(registry);
+        waits = Counter.builder("idempotency.keys.waits").register(registry);
+        conflicts = Counter.builder("idempotency.keys.conflicts").register(registry);
+        unavailable = Counter.builder("idempotency.keys.unavailable").register(registry);
+    }
+}
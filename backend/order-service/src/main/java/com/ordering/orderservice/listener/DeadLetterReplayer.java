@@ -0,0 +1,29 @@
+package com.ordering.orderservice.listener;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Re-injects dead-lettered events into their main topic or queue, where they start again
+ * with a fresh retry budget. Events are moved one at a time and paced, so a replay cannot
+ * flood the consumers that just recovered.
+ */
+public interface DeadLetterReplayer {
+    
+    /**
+     * Moves up to {@code limit} dead-lettered events of this type, at most {@code ratePerSecond}
+     * per second. Returns how many were moved; fewer than the limit means the dead letters ran out.
+     */
+    int replay(String eventType, int limit, int ratePerSecond);
+    
+    /**
+     * Sleeps until the {@code sent}-th event is due under the given rate
+     */
+    static void pace(long startNanos, int sent, int ratePerSecond) {
+        long dueAt = startNanos + TimeUnit.SECONDS.toNanos(sent) / ratePerSecond;
+        long wait = dueAt - System.nanoTime();
+        if (wait > 0) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.ordering.orderservice.listener;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.ordering.orderservice.config.KafkaConfig.deadLetterTopic;
+
+/**
+ * Reads {@code <topic>-dlt} with its own consumer group and re-sends each record, key and value
+ * only, to the original topic. A record's offset is committed only after the re-send is acked,
+ * so an interrupted replay resumes where it stopped and never loses an event.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "outbox.publisher", havingValue = "kafka")
+public class KafkaDeadLetterReplayer implements DeadLetterReplayer {
+    
+    private static final String REPLAY_GROUP = "order-service-dlt-replay";
+    
+    // Empty polls in a row before the dead-letter topic counts as drained
+    private static final int MAX_EMPTY_POLLS = 3;
+    
+    @Autowired
+    private ConsumerFactory<String, String> consumerFactory;
+    
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+    
+    @Value("${outbox.confirm-timeout-ms:5000}")
+    private long sendTimeoutMs;
+    
+    // Concurrent replays would share the replay group and split the partitions; polls and acked
+    // sends block, so this is a lock rather than a monitor (no carrier pinning on virtual threads)
+    private final ReentrantLock replayLock = new ReentrantLock();
+    
+    @Override
+    public int replay(String eventType, int limit, int ratePerSecond) {
+        replayLock.lock();
+        try {
+            return replayLocked(eventType, limit, ratePerSecond);
+        } finally {
+            replayLock.unlock();
+        }
+    }
+    
+    private int replayLocked(String eventType, int limit, int ratePerSecond) {
+        String topic = eventType.replace('.', '-');
+        long start = System.nanoTime();
+        int replayed = 0;
+        
+        try (Consumer<String, String> consumer =
+                 consumerFactory.createConsumer(REPLAY_GROUP, "-replay")) {
+            consumer.subscribe(List.of(deadLetterTopic(topic)));
+            int emptyPolls = 0;
+            while (replayed < limit && emptyPolls < MAX_EMPTY_POLLS) {
+                List<ConsumerRecord<String, String>> records = new ArrayList<>();
+                consumer.poll(Duration.ofSeconds(1)).forEach(records::add);
+                emptyPolls = records.isEmpty() ? emptyPolls + 1 : 0;
+                
+                Map<TopicPartition, OffsetAndMetadata> done = new HashMap<>();
+                for (ConsumerRecord<String, String> record : records) {
+                    if (replayed >= limit) {
+                        break;
+                    }
+                    DeadLetterReplayer.pace(start, replayed, ratePerSecond);
+                    resend(new ProducerRecord<>(topic, record.key(), record.value()));
+                    done.put(new TopicPartition(record.topic(), record.partition()), new OffsetAndMetadata(record.offset() + 1));
+                    replayed++;
+                }
+                if (!done.isEmpty()) {
+                    consumer.commitSync(done);
+                }
+                // Anything polled past the limit is re-read from the committed offsets next time
+            }
+        }
+        
+        log.info("Replayed {} dead-lettered {} events", replayed, eventType);
+        return replayed;
+    }
+    
+    private void resend(ProducerRecord<String, String> record) {
+        try {
+            kafkaTemplate.send(record).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted replaying " + record.value() + " to " + record.topic(), e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Could not replay " + record.value() + " to " + record.topic(), e);
+        }
+    }
+}
@@ -1,95 +1,187 @@
 package com.ordering.orderservice.listener;
 
+import com.ordering.orderservice.config.EventRetryProperties;
+import com.ordering.orderservice.config.WorkerThreads;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.KafkaListenerConfigurer;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistrar;
+import org.springframework.kafka.config.MethodKafkaListenerEndpoint;
 import org.springframework.kafka.support.Acknowledgment;
-import org.springframework.kafka.support.KafkaHeaders;
-import org.springframework.messaging.handler.annotation.Header;
-import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.handler.annotation.support.DefaultMessageHandlerMethodFactory;
 import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
 
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static com.ordering.orderservice.config.KafkaConfig.*;
+
+/**
+ * Batch listeners: each call gets one poll's worth of records. Records are keyed by user ID
+ * and handed to key-ordered lanes: one user's events run in offset order while different
+ * users run in parallel. The batch is acknowledged once, after every record is done.
+ * A record that fails is forwarded to its topic's first retry tier rather than holding up
+ * the rest of the batch; each retry tier has its own consumer running {@link #handleRetry}
+ * once a record's backoff has elapsed, and records that fail every tier land in the
+ * dead-letter topic.
+ * Only if forwarding itself fails is the batch left unacknowledged and redelivered.
+ */
 @Component
 @Slf4j
 @Profile("kafka")
-public class KafkaOrderEventListener {
+public class KafkaOrderEventListener implements KafkaListenerConfigurer {
+    
+    private final KeyOrderedExecutor lanes;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    private EventRetryProperties retryProperties;
+    
+    @Autowired
+    @Qualifier("retryListenerContainerFactory")
+    private ConcurrentKafkaListenerContainerFactory<String, String> retryListenerContainerFactory;
+    
+    @Autowired
+    private KafkaRetryRouter retryRouter;
+    
+    @Autowired
+    private OrderEventHandler orderEventHandler;
+    
+    public KafkaOrderEventListener(@Value("${kafka-consumer.worker-threads:6}") int laneCount,
+                                   WorkerThreads workerThreads) {
+        this.lanes = new KeyOrderedExecutor(laneCount, workerThreads.factory("order-event-lane"));
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        lanes.shutdown();
+    }
     
     @KafkaListener(
-        topics = "order-created",
+        topics = ORDER_CREATED_TOPIC,
         groupId = "order-service-group",
         containerFactory = "kafkaListenerContainerFactory"
     )
-    public void handleOrderCreated(
-            @Payload String orderId,
-            @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
-            @Header(KafkaHeaders.OFFSET) long offset,
-            Acknowledgment acknowledgment) {
-        
-        log.info("Received order created event: orderId={}, partition={}, offset={}", 
-                 orderId, partition, offset);
-        
-        try {
-            // Process order created event
-            processOrderCreated(Long.parseLong(orderId));
-            
-            // Acknowledge message
-            acknowledgment.acknowledge();
-            
-        } catch (Exception e) {
-            log.error("Error processing order created event", e);
-            // Message will be retried
-        }
+    public void handleOrderCreated(List<ConsumerRecord<String, String>> records, Acknowledgment acknowledgment) {
+        process(ORDER_CREATED_TOPIC, records, acknowledgment);
     }
     
     @KafkaListener(
-        topics = "order-payment",
-        groupId = "order-service-group"
+        topics = ORDER_PAYMENT_TOPIC,
+        groupId = "order-service-group",
+        containerFactory = "kafkaListenerContainerFactory"
     )
-    public void handleOrderPayment(@Payload String orderId, Acknowledgment acknowledgment) {
-        log.info("Processing payment for order: {}", orderId);
-        
-        try {
-            // Process payment
-            processPayment(Long.parseLong(orderId));
-            acknowledgment.acknowledge();
-            
-        } catch (Exception e) {
-            log.error("Error processing payment event", e);
-        }
+    public void handleOrderPayment(List<ConsumerRecord<String, String>> records, Acknowledgment acknowledgment) {
+        process(ORDER_PAYMENT_TOPIC, records, acknowledgment);
     }
     
     @KafkaListener(
-        topics = "order-notification",
-        groupId = "order-service-group"
+        topics = ORDER_NOTIFICATION_TOPIC,
+        groupId = "order-service-group",
+        containerFactory = "kafkaListenerContainerFactory"
     )
-    public void handleOrderNotification(@Payload String orderId, Acknowledgment acknowledgment) {
-        log.info("Sending notification for order: {}", orderId);
+    public void handleOrderNotification(List<ConsumerRecord<String, String>> records, Acknowledgment acknowledgment) {
+        process(ORDER_NOTIFICATION_TOPIC, records, acknowledgment);
+    }
+    
+    /**
+     * One consumer per retry tier, each subscribed to that tier's topics. A nack pauses the
+     * whole consumer, so sharing one across tiers would hold 1 s retries behind a 25 s one.
+     * The tier count is configurable, hence registered here rather than with annotations.
+     */
+    @Override
+    public void configureKafkaListeners(KafkaListenerEndpointRegistrar registrar) {
+        DefaultMessageHandlerMethodFactory handlerMethodFactory = new DefaultMessageHandlerMethodFactory();
+        handlerMethodFactory.afterPropertiesSet();
+        Method handler = ReflectionUtils.findMethod(getClass(), "handleRetry", List.class, Acknowledgment.class);
         
-        try {
-            // Send notification (email, SMS, push)
-            sendNotification(Long.parseLong(orderId));
+        for (int tier = 0; tier < retryProperties.getTiers(); tier++) {
+            MethodKafkaListenerEndpoint<String, String> endpoint = new MethodKafkaListenerEndpoint<>();
+            endpoint.setId("order-retry-" + tier);
+            endpoint.setGroupId(RETRY_CONSUMER_GROUP);
+            endpoint.setTopicPattern(Pattern.compile("order-(created|payment|notification)-retry-" + tier));
+            endpoint.setBean(this);
+            endpoint.setMethod(handler);
+            endpoint.setMessageHandlerMethodFactory(handlerMethodFactory);
+            registrar.registerEndpoint(endpoint, retryListenerContainerFactory);
+        }
+    }
+    
+    /**
+     * Runs one tier's records. The tier has a fixed delay, so records within a partition become
+     * due in offset order: everything before the first record that is not yet due is run, and
+     * the batch is nacked at that record so this tier's container pauses and re-polls it when
+     * it is due. Other tiers keep consuming meanwhile.
+     */
+    public void handleRetry(List<ConsumerRecord<String, String>> records, Acknowledgment acknowledgment) {
+        long now = System.currentTimeMillis();
+        int due = 0;
+        while (due < records.size() && KafkaRetryRouter.dueAt(records.get(due)) <= now) {
+            due++;
+        }
+        
+        dispatch(records.subList(0, due));
+        if (due < records.size()) {
+            long wait = KafkaRetryRouter.dueAt(records.get(due)) - now;
+            acknowledgment.nack(due, Duration.ofMillis(wait));
+        } else {
             acknowledgment.acknowledge();
-            
-        } catch (Exception e) {
-            log.error("Error sending notification", e);
         }
     }
     
-    private void processOrderCreated(Long orderId) {
-        // Business logic for order creation
-        log.info("Order {} created successfully", orderId);
-        // Update analytics, send to warehouse, etc.
+    private void process(String topic, List<ConsumerRecord<String, String>> records, Acknowledgment acknowledgment) {
+        long start = System.nanoTime();
+        dispatch(records);
+        
+        acknowledgment.acknowledge();
+        Counter.builder("kafka.consumer.records.processed").tag("topic", topic)
+               .register(meterRegistry).increment(records.size());
+        Timer.builder("kafka.consumer.batch.duration").tag("topic", topic)
+             .register(meterRegistry).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        log.debug("Processed {} {} events", records.size(), topic);
     }
     
-    private void processPayment(Long orderId) {
-        // Business logic for payment processing
-        log.info("Payment processed for order {}", orderId);
-        // Update inventory, trigger fulfillment, etc.
+    private void dispatch(List<ConsumerRecord<String, String>> records) {
+        List<CompletableFuture<Void>> tasks = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, String> record : records) {
+            // Unkeyed records (from before keying) stay ordered within their partition
+            Object key = record.key() != null ? record.key() : record.partition();
+            tasks.add(lanes.submit(key, () -> handle(record)));
+        }
+        try {
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
     }
     
-    private void sendNotification(Long orderId) {
-        // Business logic for notifications
-        log.info("Notification sent for order {}", orderId);
-        // Send email, SMS, push notification, etc.
+    private void handle(ConsumerRecord<String, String> record) {
+        try {
+            // Topics are named after the event type, order.created -> order-created
+            String eventType = KafkaRetryRouter.originalTopic(record).replace('-', '.');
+            orderEventHandler.handle(eventType, Long.parseLong(record.value()));
+        } catch (RuntimeException e) {
+            log.error("Error processing {} partition={} offset={}", record.topic(), record.partition(), record.offset(), e);
+            retryRouter.forward(record, e);
+        }
     }
 }
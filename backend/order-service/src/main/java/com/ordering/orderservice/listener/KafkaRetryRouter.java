@@ -0,0 +1,109 @@
+package com.ordering.orderservice.listener;
+
+import com.ordering.orderservice.config.EventRetryProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.ordering.orderservice.config.KafkaConfig.deadLetterTopic;
+import static com.ordering.orderservice.config.KafkaConfig.retryTopic;
+
+/**
+ * Moves a failed record to the next retry tier, or to the dead-letter topic after the last one.
+ * The forwarded copy keeps its key (so it stays on its user's partition) and carries the original
+ * topic, the attempt count and the time it becomes due. Sends wait for the ack: the caller only
+ * commits the failed offset once the copy is safely on the next topic.
+ */
+@Component
+@Slf4j
+@Profile("kafka")
+public class KafkaRetryRouter {
+    
+    public static final String ORIGINAL_TOPIC_HEADER = "x-original-topic";
+    public static final String ATTEMPT_HEADER = "x-retry-attempt";
+    public static final String DUE_AT_HEADER = "x-retry-due-at";
+    public static final String EXCEPTION_HEADER = "x-exception";
+    
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+    
+    @Autowired
+    private EventRetryProperties retryProperties;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${outbox.confirm-timeout-ms:5000}")
+    private long sendTimeoutMs;
+    
+    public void forward(ConsumerRecord<String, String> record, Exception error) {
+        String originalTopic = originalTopic(record);
+        int attempt = attempt(record);
+        boolean exhausted = attempt >= retryProperties.getTiers();
+        String target = exhausted ? deadLetterTopic(originalTopic) : retryTopic(originalTopic, attempt);
+        
+        ProducerRecord<String, String> copy = new ProducerRecord<>(target, record.key(), record.value());
+        copy.headers().add(ORIGINAL_TOPIC_HEADER, bytes(originalTopic));
+        copy.headers().add(ATTEMPT_HEADER, bytes(String.valueOf(attempt + 1)));
+        copy.headers().add(EXCEPTION_HEADER, bytes(String.valueOf(error.getMessage())));
+        if (!exhausted) {
+            long dueAt = System.currentTimeMillis() + retryProperties.delayMs(attempt);
+            copy.headers().add(DUE_AT_HEADER, bytes(String.valueOf(dueAt)));
+        }
+        
+        try {
+            kafkaTemplate.send(copy).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted forwarding " + record.value() + " to " + target, e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Could not forward " + record.value() + " to " + target, e);
+        }
+        
+        Counter.builder(exhausted ? "kafka.consumer.dead.lettered" : "kafka.consumer.retried")
+               .tag("topic", originalTopic)
+               .register(meterRegistry).increment();
+        if (exhausted) {
+            log.error("Event {} from {} dead-lettered after {} attempts", record.value(), originalTopic, attempt + 1);
+        } else {
+            log.warn("Event {} from {} moved to {} (attempt {})", record.value(), originalTopic, target, attempt + 1);
+        }
+    }
+    
+    public static String originalTopic(ConsumerRecord<String, String> record) {
+        String topic = header(record, ORIGINAL_TOPIC_HEADER);
+        return topic != null ? topic : record.topic();
+    }
+    
+    public static int attempt(ConsumerRecord<String, String> record) {
+        String attempt = header(record, ATTEMPT_HEADER);
+        return attempt != null ? Integer.parseInt(attempt) : 0;
+    }
+    
+    public static long dueAt(ConsumerRecord<String, String> record) {
+        String dueAt = header(record, DUE_AT_HEADER);
+        return dueAt != null ? Long.parseLong(dueAt) : 0L;
+    }
+    
+    private static String header(ConsumerRecord<String, String> record, String name) {
+        Header header = record.headers().lastHeader(name);
+        return header != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+    }
+    
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,36 @@
+package com.ordering.orderservice.listener;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A fixed set of single-threaded lanes. Work is routed to a lane by key, so tasks with the
+ * same key run one after another in submission order while different keys run in parallel.
+ */
+public class KeyOrderedExecutor {
+    
+    private final ExecutorService[] lanes;
+    
+    public KeyOrderedExecutor(int laneCount, ThreadFactory threads) {
+        lanes = new ExecutorService[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = Executors.newSingleThreadExecutor(threads);
+        }
+    }
+    
+    public CompletableFuture<Void> submit(Object key, Runnable task) {
+        return CompletableFuture.runAsync(task, lanes[Math.floorMod(key.hashCode(), lanes.length)]);
+    }
+    
+    public int getLaneCount() {
+        return lanes.length;
+    }
+    
+    public void shutdown() {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.ordering.orderservice.listener;
+
+import com.ordering.orderservice.idempotency.IdempotencyGuard;
+import com.ordering.orderservice.outbox.OutboxPublisher;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * What happens when an order event arrives, whichever transport delivered it: the RabbitMQ
+ * and Kafka listeners and the in-process event bus all end up here. Events that were already
+ * processed (redeliveries, replays) are skipped by {@link IdempotencyGuard}.
+ */
+@Component
+@Slf4j
+public class OrderEventHandler {
+    
+    private final Map<String, Consumer<Long>> handlers = Map.of(
+        OutboxPublisher.ORDER_CREATED, this::processOrderCreated,
+        OutboxPublisher.ORDER_PAYMENT, this::processPayment,
+        OutboxPublisher.ORDER_NOTIFICATION, this::sendNotification);
+    
+    @Autowired
+    private IdempotencyGuard idempotencyGuard;
+    
+    /**
+     * Runs the handler for an event type such as {@code order.created}; exceptions propagate
+     * so the caller can retry
+     */
+    public void handle(String eventType, Long orderId) {
+        Consumer<Long> handler = handlers.get(eventType);
+        if (handler == null) {
+            throw new IllegalArgumentException("Unknown event type: " + eventType);
+        }
+        idempotencyGuard.runOnce(eventType, orderId, () -> handler.accept(orderId));
+    }
+    
+    private void processOrderCreated(Long orderId) {
+        // Business logic for order creation
+        log.info("Order {} created successfully", orderId);
+        // Update analytics, send to warehouse, etc.
+    }
+    
+    private void processPayment(Long orderId) {
+        // Business logic for payment processing
+        log.info("Payment processed for order {}", orderId);
+        // Update inventory, trigger fulfillment, etc.
+    }
+    
+    private void sendNotification(Long orderId) {
+        // Business logic for notifications
+        log.info("Notification sent for order {}", orderId);
+        // Send email, SMS, push notification, etc.
+    }
+}
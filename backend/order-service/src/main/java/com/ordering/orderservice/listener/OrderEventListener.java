@@ -1,23 +1,51 @@
 package com.ordering.orderservice.listener;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A message that fails is handed to {@link RabbitRetryRouter} and acknowledged, so it waits
+ * out its backoff in a retry queue rather than being requeued in front of healthy messages.
+ * The in-process profile has no broker, so no RabbitMQ consumers are started there.
+ */
 @Component
 @Slf4j
+@Profile("!inprocess")
 public class OrderEventListener {
     
+    @Autowired
+    private RabbitRetryRouter retryRouter;
+    
+    @Autowired
+    private OrderEventHandler orderEventHandler;
+    
     @RabbitListener(queues = "order-queue")
-    public void handleOrderCreated(Long orderId) {
-        log.info("Order created: {}", orderId);
+    public void handleOrderCreated(Long orderId,
+                                   @Header(name = RabbitRetryRouter.ATTEMPT_HEADER, required = false) Integer attempt) {
+        handle("order.created", orderId, attempt);
     }
     
     @RabbitListener(queues = "payment-queue")
-    public void handlePayment(Long orderId) {
-        log.info("Processing payment for order: {}", orderId);
+    public void handlePayment(Long orderId,
+                              @Header(name = RabbitRetryRouter.ATTEMPT_HEADER, required = false) Integer attempt) {
+        handle("order.payment", orderId, attempt);
     }
     
     @RabbitListener(queues = "notification-queue")
-    public void handleNotification(Long orderId) {
-        log.info("Sending notification for order: {}", orderId);
+    public void handleNotification(Long orderId,
+                                   @Header(name = RabbitRetryRouter.ATTEMPT_HEADER, required = false) Integer attempt) {
+        handle("order.notification", orderId, attempt);
+    }
+    
+    private void handle(String routingKey, Long orderId, Integer attempt) {
+        try {
+            orderEventHandler.handle(routingKey, orderId);
+        } catch (RuntimeException e) {
+            log.error("Error processing {} for order {}", routingKey, orderId, e);
+            retryRouter.forward(routingKey, orderId, attempt, e);
+        }
     }
 }
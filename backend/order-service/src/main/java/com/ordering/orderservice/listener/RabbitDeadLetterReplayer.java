@@ -0,0 +1,84 @@
+package com.ordering.orderservice.listener;
+
+import com.ordering.orderservice.config.RabbitMQConfig;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.GetResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pulls messages off {@code <queue>.dlq} one at a time and republishes them to {@code order-exchange}
+ * under their original routing key, without the retry headers. Each message is acked on the
+ * dead-letter queue only after the broker has confirmed the republish (within
+ * {@code outbox.confirm-timeout-ms}). Without a confirm the replay stops with an error and the
+ * unacked message returns to the dead-letter queue when the channel closes.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "outbox.publisher", havingValue = "rabbit", matchIfMissing = true)
+public class RabbitDeadLetterReplayer implements DeadLetterReplayer {
+    
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+    
+    @Value("${outbox.confirm-timeout-ms:5000}")
+    private long confirmTimeoutMs;
+    
+    // One replay at a time per instance; a lock rather than synchronized so a replay blocked on
+    // the broker does not pin the carrier of a virtual request thread
+    private final ReentrantLock replayLock = new ReentrantLock();
+    
+    @Override
+    public int replay(String eventType, int limit, int ratePerSecond) {
+        replayLock.lock();
+        try {
+            return replayLocked(eventType, limit, ratePerSecond);
+        } finally {
+            replayLock.unlock();
+        }
+    }
+    
+    private int replayLocked(String eventType, int limit, int ratePerSecond) {
+        String queue = RabbitMQConfig.deadLetterQueue(eventType);
+        long start = System.nanoTime();
+        int replayed = 0;
+        
+        while (replayed < limit) {
+            DeadLetterReplayer.pace(start, replayed, ratePerSecond);
+            Boolean moved = rabbitTemplate.execute(channel -> {
+                GetResponse response = channel.basicGet(queue, false);
+                if (response == null) {
+                    return false;
+                }
+                Map<String, Object> headers = response.getProps().getHeaders() != null
+                    ? new HashMap<>(response.getProps().getHeaders()) : new HashMap<>();
+                headers.remove(RabbitRetryRouter.ATTEMPT_HEADER);
+                headers.remove(RabbitRetryRouter.EXCEPTION_HEADER);
+                AMQP.BasicProperties props = response.getProps().builder().headers(headers).build();
+                
+                // No-op if the template's channels are already in confirm mode
+                channel.confirmSelect();
+                channel.basicPublish(RabbitMQConfig.ORDER_EXCHANGE, eventType, props, response.getBody());
+                // Throws, closing the channel, on a nack or once the timeout passes
+                channel.waitForConfirmsOrDie(confirmTimeoutMs);
+                channel.basicAck(response.getEnvelope().getDeliveryTag(), false);
+                return true;
+            });
+            if (!Boolean.TRUE.equals(moved)) {
+                break;
+            }
+            replayed++;
+        }
+        
+        log.info("Replayed {} dead-lettered {} events", replayed, eventType);
+        return replayed;
+    }
+}
@@ -0,0 +1,88 @@
+package com.ordering.orderservice.listener;
+
+import com.ordering.orderservice.config.EventRetryProperties;
+import com.ordering.orderservice.config.RabbitMQConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Moves a failed message to the retry queue for its next tier, or to the dead-letter queue
+ * after the last one. The attempt count travels in a header, which survives the retry queue's
+ * dead-lettering back to the main exchange. The republish waits for its publisher confirm
+ * (up to {@code outbox.confirm-timeout-ms}); if it is nacked, returned as unroutable or never
+ * confirmed, the exception propagates from the listener and the container requeues the
+ * original message instead, so a message is only dropped once the broker holds its copy.
+ */
+@Component
+@Slf4j
+public class RabbitRetryRouter {
+    
+    public static final String ATTEMPT_HEADER = "x-retry-attempt";
+    public static final String EXCEPTION_HEADER = "x-exception";
+    
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+    
+    @Autowired
+    private EventRetryProperties retryProperties;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${outbox.confirm-timeout-ms:5000}")
+    private long confirmTimeoutMs;
+    
+    public void forward(String routingKey, Long orderId, Integer previousAttempts, Exception error) {
+        int attempt = previousAttempts != null ? previousAttempts : 0;
+        boolean exhausted = attempt >= retryProperties.getTiers();
+        String exchange = exhausted ? RabbitMQConfig.DEAD_LETTER_EXCHANGE : RabbitMQConfig.RETRY_EXCHANGE;
+        String key = exhausted ? routingKey : RabbitMQConfig.retryRoutingKey(routingKey, attempt);
+        
+        CorrelationData correlation = new CorrelationData();
+        rabbitTemplate.convertAndSend(exchange, key, orderId, message -> {
+            message.getMessageProperties().setHeader(ATTEMPT_HEADER, attempt + 1);
+            message.getMessageProperties().setHeader(EXCEPTION_HEADER, String.valueOf(error.getMessage()));
+            return message;
+        }, correlation);
+        awaitConfirm(correlation, exchange, key);
+        
+        Counter.builder(exhausted ? "rabbit.consumer.dead.lettered" : "rabbit.consumer.retried")
+               .tag("routingKey", routingKey)
+               .register(meterRegistry).increment();
+        if (exhausted) {
+            log.error("Event {} for order {} dead-lettered after {} attempts", routingKey, orderId, attempt + 1);
+        } else {
+            log.warn("Event {} for order {} retrying in {} ms (attempt {})",
+                     routingKey, orderId, retryProperties.delayMs(attempt), attempt + 1);
+        }
+    }
+    
+    private void awaitConfirm(CorrelationData correlation, String exchange, String key) {
+        CorrelationData.Confirm confirm;
+        try {
+            confirm = correlation.getFuture().get(confirmTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmqpException("Interrupted waiting for the confirm of " + exchange + "/" + key, e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new AmqpException("No confirm for " + exchange + "/" + key, e);
+        }
+        if (!confirm.isAck()) {
+            throw new AmqpException("Broker nacked " + exchange + "/" + key + ": " + confirm.getReason());
+        }
+        if (correlation.getReturned() != null) {
+            throw new AmqpException(exchange + "/" + key + " was unroutable: " + correlation.getReturned().getReplyText());
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.ordering.orderservice.outbox;
+
+import com.ordering.orderservice.bus.OrderEventBus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Hands events to the in-process ring buffer. An event counts as delivered once it is in the
+ * ring; the relay then deletes its row, so events still queued are lost if the JVM dies.
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.publisher", havingValue = "inprocess")
+public class InProcessOutboxPublisher implements OutboxPublisher {
+    
+    @Autowired
+    private OrderEventBus eventBus;
+    
+    @Override
+    public void publish(List<OutboxEvent> events) {
+        for (OutboxEvent event : events) {
+            eventBus.publish(event.getEventType(), event.getAggregateId(), event.getUserId());
+        }
+    }
+}
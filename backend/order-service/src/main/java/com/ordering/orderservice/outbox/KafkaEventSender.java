@@ -0,0 +1,78 @@
+package com.ordering.orderservice.outbox;
+
+import com.ordering.orderservice.config.KafkaProducerProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Non-blocking sends with delivery metrics. Each send returns at once; when the broker
+ * acks or the send fails, a completion handler records:
+ * <ul>
+ *   <li>{@code kafka.send.ack.latency} - send to ack, per topic</li>
+ *   <li>{@code kafka.send.failures} - per topic</li>
+ *   <li>{@code kafka.send.batch.fill.ratio} - average batch size over the configured batch.size</li>
+ * </ul>
+ */
+@Component
+@Profile("kafka")
+@Slf4j
+public class KafkaEventSender implements MeterBinder {
+    
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+    
+    @Autowired
+    private KafkaProducerProperties producerProperties;
+    
+    private MeterRegistry registry;
+    
+    public CompletableFuture<SendResult<String, String>> send(String topic, String key, String value) {
+        long start = System.nanoTime();
+        return kafkaTemplate.send(topic, key, value).whenComplete((result, error) -> {
+            if (registry == null) {
+                return;
+            }
+            if (error == null) {
+                Timer.builder("kafka.send.ack.latency").tag("topic", topic).publishPercentileHistogram()
+                     .register(registry).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            } else {
+                Counter.builder("kafka.send.failures").tag("topic", topic).register(registry).increment();
+                log.warn("Send to {} failed", topic, error);
+            }
+        });
+    }
+    
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+        Gauge.builder("kafka.send.batch.fill.ratio", this, sender -> sender.producerMetric("batch-size-avg")
+                      / sender.producerProperties.resolveBatchSize())
+             .register(registry);
+    }
+    
+    private double producerMetric(String name) {
+        for (Map.Entry<MetricName, ? extends Metric> entry : kafkaTemplate.metrics().entrySet()) {
+            if (entry.getKey().name().equals(name) && entry.getKey().group().equals("producer-metrics")) {
+                Object value = entry.getValue().metricValue();
+                return value instanceof Number && !Double.isNaN(((Number) value).doubleValue())
+                    ? ((Number) value).doubleValue() : 0;
+            }
+        }
+        return 0;
+    }
+}
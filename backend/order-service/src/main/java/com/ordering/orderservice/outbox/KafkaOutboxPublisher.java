@@ -0,0 +1,50 @@
+package com.ordering.orderservice.outbox;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Sends the whole batch without blocking, so the producer can pack it into few requests,
+ * then waits for every ack (the producer runs with acks=all). Events are keyed by user ID,
+ * so one user's events share a partition and are consumed in order.
+ * Event types map to topics by replacing dots, e.g. {@code order.created -> order-created}.
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.publisher", havingValue = "kafka")
+public class KafkaOutboxPublisher implements OutboxPublisher {
+    
+    @Autowired
+    private KafkaEventSender sender;
+    
+    @Value("${outbox.confirm-timeout-ms:5000}")
+    private long confirmTimeoutMs;
+    
+    @Override
+    public void publish(List<OutboxEvent> events) {
+        CompletableFuture<?>[] sends = events.stream()
+            .map(event -> sender.send(topicFor(event.getEventType()),
+                                      event.getUserId() != null ? event.getUserId().toString() : null,
+                                      event.getAggregateId().toString()))
+            .toArray(CompletableFuture[]::new);
+        try {
+            CompletableFuture.allOf(sends).get(confirmTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for Kafka acks", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Kafka did not acknowledge " + events.size() + " outbox events", e);
+        }
+    }
+    
+    static String topicFor(String eventType) {
+        return eventType.replace('.', '-');
+    }
+}
@@ -0,0 +1,21 @@
+package com.ordering.orderservice.outbox;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * One pending row of a shard's {@code order_outbox}. {@code eventType} is the logical
+ * event, e.g. {@code order.created}; each publisher maps it to its own destination.
+ */
+@Data
+@AllArgsConstructor
+public class OutboxEvent {
+    private long id;
+    private String eventType;
+    private Long aggregateId;
+    // Message key; null only for rows written before the column existed
+    private Long userId;
+    private LocalDateTime createdAt;
+}
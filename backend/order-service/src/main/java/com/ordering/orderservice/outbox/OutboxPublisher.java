@@ -0,0 +1,16 @@
+package com.ordering.orderservice.outbox;
+
+import java.util.List;
+
+/**
+ * Sends a batch of outbox events to the broker. Must return only once the broker has
+ * confirmed every event, and throw otherwise; the relay then keeps the rows and retries.
+ */
+public interface OutboxPublisher {
+    
+    String ORDER_CREATED = "order.created";
+    String ORDER_PAYMENT = "order.payment";
+    String ORDER_NOTIFICATION = "order.notification";
+    
+    void publish(List<OutboxEvent> events);
+}
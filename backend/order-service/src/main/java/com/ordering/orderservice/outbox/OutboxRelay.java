@@ -0,0 +1,106 @@
+package com.ordering.orderservice.outbox;
+
+import com.ordering.orderservice.config.ShardingConfig;
+import com.ordering.orderservice.repository.OutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains every shard's outbox to the broker. Each batch is locked, published, confirmed
+ * and deleted inside one shard transaction: a failed publish rolls back and the rows are
+ * retried on the next poll. Delivery is at least once, so consumers must tolerate repeats.
+ */
+@Component
+@Slf4j
+public class OutboxRelay implements MeterBinder {
+    
+    @Autowired
+    private ShardingConfig shardingConfig;
+    
+    @Autowired
+    private OutboxRepository outboxRepository;
+    
+    @Autowired
+    private OutboxPublisher publisher;
+    
+    @Value("${outbox.batch-size:200}")
+    private int batchSize;
+    
+    @Value("${outbox.max-batches-per-poll:50}")
+    private int maxBatchesPerPoll;
+    
+    private final Map<Integer, AtomicLong> pending = new ConcurrentHashMap<>();
+    private final Map<Integer, AtomicLong> lagMillis = new ConcurrentHashMap<>();
+    private Counter published;
+    private Counter failures;
+    
+    @Scheduled(fixedDelayString = "${outbox.poll-interval-ms:200}")
+    public void relay() {
+        for (int shard = 0; shard < shardingConfig.getNumShards(); shard++) {
+            if (!shardingConfig.getGuardedDataSource(shard).getGuard().isAvailable()) {
+                continue;
+            }
+            try {
+                // A full batch means more is probably waiting
+                int batches = 0;
+                while (relayBatch(shard) == batchSize && ++batches < maxBatchesPerPoll) {
+                    log.debug("Outbox on shard {} still backed up after {} batches", shard, batches);
+                }
+                long[] backlog = outboxRepository.backlog(shard);
+                gaugeValue(pending, shard).set(backlog[0]);
+                gaugeValue(lagMillis, shard).set(backlog[1]);
+            } catch (RuntimeException e) {
+                if (failures != null) {
+                    failures.increment();
+                }
+                log.warn("Outbox relay on shard {} failed, will retry", shard, e);
+            }
+        }
+    }
+    
+    private int relayBatch(int shard) {
+        Integer relayed = shardingConfig.getTransactionTemplate(shard).execute(status -> {
+            List<OutboxEvent> events = outboxRepository.lockBatch(shard, batchSize);
+            if (events.isEmpty()) {
+                return 0;
+            }
+            publisher.publish(events);
+            outboxRepository.delete(shard, events);
+            return events.size();
+        });
+        if (relayed != null && published != null) {
+            published.increment(relayed);
+        }
+        return relayed != null ? relayed : 0;
+    }
+    
+    private AtomicLong gaugeValue(Map<Integer, AtomicLong> values, int shard) {
+        return values.computeIfAbsent(shard, s -> new AtomicLong());
+    }
+    
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        published = Counter.builder("outbox.published").register(registry);
+        failures = Counter.builder("outbox.publish.failures").register(registry);
+        for (int shard = 0; shard < shardingConfig.getNumShards(); shard++) {
+            String tag = String.valueOf(shard);
+            Gauge.builder("outbox.pending", gaugeValue(pending, shard), AtomicLong::get)
+                 .tag("shard", tag).register(registry);
+            // Age of the oldest unpublished event
+            Gauge.builder("outbox.lag", gaugeValue(lagMillis, shard), v -> v.get() / 1000.0)
+                 .tag("shard", tag).baseUnit("seconds").register(registry);
+        }
+    }
+}
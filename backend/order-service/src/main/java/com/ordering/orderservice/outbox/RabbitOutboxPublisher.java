@@ -0,0 +1,65 @@
+package com.ordering.orderservice.outbox;
+
+import com.ordering.orderservice.config.RabbitMQConfig;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Publishes to {@code order-exchange} with the event type as routing key. The whole batch is
+ * sent first and the correlated confirms are awaited afterwards, so the broker round trips
+ * overlap instead of costing one each. A nack, a missing confirm or an unroutable (returned)
+ * message fails the batch. Needs {@code publisher-confirm-type: correlated},
+ * {@code publisher-returns: true} and {@code template.mandatory: true}.
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.publisher", havingValue = "rabbit", matchIfMissing = true)
+public class RabbitOutboxPublisher implements OutboxPublisher {
+    
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+    
+    @Value("${outbox.confirm-timeout-ms:5000}")
+    private long confirmTimeoutMs;
+    
+    @Override
+    public void publish(List<OutboxEvent> events) {
+        List<CorrelationData> sent = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            CorrelationData correlation = new CorrelationData(String.valueOf(event.getId()));
+            rabbitTemplate.convertAndSend(RabbitMQConfig.ORDER_EXCHANGE, event.getEventType(),
+                                          event.getAggregateId(), correlation);
+            sent.add(correlation);
+        }
+        
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMs);
+        for (CorrelationData correlation : sent) {
+            CorrelationData.Confirm confirm;
+            try {
+                confirm = correlation.getFuture().get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AmqpException("Interrupted waiting for publisher confirms", e);
+            } catch (ExecutionException | TimeoutException e) {
+                throw new AmqpException("No confirm for outbox event " + correlation.getId(), e);
+            }
+            if (!confirm.isAck()) {
+                throw new AmqpException("Broker nacked outbox event " + correlation.getId() + ": " + confirm.getReason());
+            }
+            if (correlation.getReturned() != null) {
+                throw new AmqpException("Outbox event " + correlation.getId() + " was unroutable: "
+                    + correlation.getReturned().getReplyText());
+            }
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.ordering.orderservice.repository;
+
+import com.ordering.orderservice.config.ShardingConfig;
+import com.ordering.orderservice.entity.Order;
+import com.ordering.orderservice.sharding.BucketMigration;
+import com.ordering.orderservice.sharding.ShardRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Bucket-scoped bulk access used to move one virtual bucket between shards.
+ * Every query filters on MOD(user_id, virtualBuckets) = bucket.
+ */
+@Repository
+public class BucketMigrationRepository {
+
+    static final String CHECKPOINT_TABLE = "shard_bucket_migration";
+
+    // Only overwrite the same user's row, and never with an older version. Legacy ids are per-shard
+    // auto-increment values, so the target may hold another user's order under the same key;
+    // that row is kept and the bucket fails verification instead. version is assigned last so the
+    // other conditions still see the old value.
+    private static final String KEEP_NEWER = "user_id = VALUES(user_id) AND version <= VALUES(version)";
+    private static final String UPSERT_SQL = ShardedOrderRepository.INSERT_SQL +
+        " ON DUPLICATE KEY UPDATE " +
+        Stream.of("items", "total_amount", "status", "payment_method", "delivery_address", "updated_at", "version")
+              .map(column -> column + " = IF(" + KEEP_NEWER + ", VALUES(" + column + "), " + column + ")")
+              .collect(Collectors.joining(", "));
+
+    private static final String ORDER_CRC = "CRC32(CONCAT_WS('|', id, user_id, items, total_amount, status, " +
+        "payment_method, delivery_address, created_year, created_at, updated_at, version))";
+    private static final String ITEM_CRC = "CRC32(CONCAT_WS('|', order_id, line_no, user_id, menu_item_id, name, " +
+        "price, quantity, subtotal))";
+    private static final String ROW_STATE_SQL = "SELECT id, user_id, version, " + ORDER_CRC +
+        " AS crc, (SELECT COUNT(*) FROM order_items i WHERE i.order_id = o.id) AS item_count FROM orders o ";
+
+    @Autowired
+    private ShardingConfig shardingConfig;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    // Copies whole rows, including the items blob of orders written before order_items existed
+    private final RowMapper<Order> orderRowMapper = new OrderRowMapper(true);
+
+    public List<Order> findBucketBatch(int shardIndex, int bucket, long afterId, int limit) {
+        String sql = "SELECT * FROM orders WHERE id > ? AND MOD(user_id, ?) = ? ORDER BY id LIMIT ?";
+        return jdbc(shardIndex).query(sql, orderRowMapper, afterId, shardRouter.getNumBuckets(), bucket, limit);
+    }
+
+    public List<Order> findBucketChangedSince(int shardIndex, int bucket, LocalDateTime since, long afterId, int limit) {
+        String sql = "SELECT * FROM orders WHERE id > ? AND MOD(user_id, ?) = ? AND updated_at >= ? " +
+                     "ORDER BY id LIMIT ?";
+        return jdbc(shardIndex).query(sql, orderRowMapper, afterId, shardRouter.getNumBuckets(), bucket,
+                                      Timestamp.valueOf(since), limit);
+    }
+
+    /**
+     * What the reconcile pass and cleanup compare per order
+     */
+    public record RowState(long userId, long version, long crc, int itemCount) {
+    }
+
+    /**
+     * Insert rows on the target shard, or overwrite the same user's rows there unless the
+     * target already has a newer version, in one JDBC batch.
+     */
+    public void upsert(int shardIndex, List<Order> orders) {
+        List<Object[]> args = orders.stream().map(ShardedOrderRepository::insertArgs).collect(Collectors.toList());
+        jdbc(shardIndex).batchUpdate(UPSERT_SQL, args);
+    }
+
+    /**
+     * Copy the line items of the given orders to the target shard. Items never change after
+     * the order is written, so rows already on the target are left alone.
+     */
+    public void copyItems(int sourceShard, int targetShard, List<Order> orders) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        String ids = orders.stream().map(o -> "?").collect(Collectors.joining(", "));
+        List<Object[]> items = jdbc(sourceShard).query(
+            "SELECT " + ShardedOrderRepository.ITEM_COLUMNS + " FROM order_items WHERE order_id IN (" + ids + ")",
+            (rs, rowNum) -> new Object[] {
+                rs.getLong("order_id"), rs.getInt("line_no"), rs.getLong("user_id"), rs.getObject("menu_item_id"),
+                rs.getString("name"), rs.getBigDecimal("price"), rs.getObject("quantity"), rs.getBigDecimal("subtotal")
+            },
+            orders.stream().map(Order::getId).toArray());
+        if (!items.isEmpty()) {
+            jdbc(targetShard).batchUpdate(ShardedOrderRepository.ITEM_INSERT_SQL.replaceFirst("INSERT", "INSERT IGNORE"), items);
+        }
+    }
+
+    /**
+     * State of the bucket's orders with ids above {@code afterId}, in id order
+     */
+    public Map<Long, RowState> findBucketStates(int shardIndex, int bucket, long afterId, int limit) {
+        return queryStates(shardIndex, ROW_STATE_SQL + "WHERE o.id > ? AND MOD(o.user_id, ?) = ? ORDER BY o.id LIMIT ?",
+                           afterId, shardRouter.getNumBuckets(), bucket, limit);
+    }
+
+    /**
+     * State of the given orders on one shard; ids with no row there are left out
+     */
+    public Map<Long, RowState> findStates(int shardIndex, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        String placeholders = ids.stream().map(id -> "?").collect(Collectors.joining(", "));
+        return queryStates(shardIndex, ROW_STATE_SQL + "WHERE o.id IN (" + placeholders + ")", ids.toArray());
+    }
+
+    private Map<Long, RowState> queryStates(int shardIndex, String sql, Object... args) {
+        Map<Long, RowState> states = new LinkedHashMap<>();
+        jdbc(shardIndex).query(sql, rs -> {
+            states.put(rs.getLong("id"), new RowState(rs.getLong("user_id"), rs.getLong("version"),
+                                                      rs.getLong("crc"), rs.getInt("item_count")));
+        }, args);
+        return states;
+    }
+
+    public List<Order> findByIds(int shardIndex, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        String placeholders = ids.stream().map(id -> "?").collect(Collectors.joining(", "));
+        return jdbc(shardIndex).query("SELECT * FROM orders WHERE id IN (" + placeholders + ") ORDER BY id",
+                                      orderRowMapper, ids.toArray());
+    }
+
+    /**
+     * Row count and an order-independent checksum over every column of the bucket's orders,
+     * then the same for its order_items rows.
+     */
+    public long[] checksum(int shardIndex, int bucket) {
+        JdbcTemplate jdbcTemplate = jdbc(shardIndex);
+        long[] orders = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) AS cnt, COALESCE(SUM(" + ORDER_CRC + "), 0) AS crc FROM orders WHERE MOD(user_id, ?) = ?",
+            (rs, rowNum) -> new long[] { rs.getLong("cnt"), rs.getLong("crc") }, shardRouter.getNumBuckets(), bucket);
+        long[] items = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) AS cnt, COALESCE(SUM(" + ITEM_CRC + "), 0) AS crc FROM order_items WHERE MOD(user_id, ?) = ?",
+            (rs, rowNum) -> new long[] { rs.getLong("cnt"), rs.getLong("crc") }, shardRouter.getNumBuckets(), bucket);
+        return new long[] { orders[0], orders[1], items[0], items[1] };
+    }
+
+    public long countBucket(int shardIndex, int bucket) {
+        Long count = jdbc(shardIndex).queryForObject("SELECT COUNT(*) FROM orders WHERE MOD(user_id, ?) = ?",
+                                                     Long.class, shardRouter.getNumBuckets(), bucket);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Delete the given orders of one user bucket and their items. Ids are the ones cleanup
+     * found on the target, so nothing that was never copied is removed.
+     *
+     * @return order rows deleted
+     */
+    public int deleteOrders(int shardIndex, int bucket, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String placeholders = ids.stream().map(id -> "?").collect(Collectors.joining(", "));
+        List<Object> args = new ArrayList<>(ids);
+        args.add(shardRouter.getNumBuckets());
+        args.add(bucket);
+        JdbcTemplate jdbcTemplate = jdbc(shardIndex);
+        jdbcTemplate.update("DELETE FROM order_items WHERE order_id IN (" + placeholders + ") AND MOD(user_id, ?) = ?",
+                            args.toArray());
+        return jdbcTemplate.update("DELETE FROM orders WHERE id IN (" + placeholders + ") AND MOD(user_id, ?) = ?",
+                                   args.toArray());
+    }
+
+    // ---- checkpoints, kept next to the routing table in shard 0 ----
+
+    public void createCheckpointTable() {
+        catalog().execute("CREATE TABLE IF NOT EXISTS " + CHECKPOINT_TABLE + " (" +
+                          "bucket INT PRIMARY KEY, " +
+                          "source_shard INT NOT NULL, " +
+                          "target_shard INT NOT NULL, " +
+                          "state VARCHAR(20) NOT NULL, " +
+                          "last_copied_id BIGINT NOT NULL DEFAULT 0, " +
+                          "rows_copied BIGINT NOT NULL DEFAULT 0, " +
+                          "copy_since DATETIME NULL, " +
+                          "message VARCHAR(255), " +
+                          "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP)");
+    }
+
+    public void saveCheckpoint(BucketMigration migration) {
+        catalog().update("REPLACE INTO " + CHECKPOINT_TABLE +
+                         " (bucket, source_shard, target_shard, state, last_copied_id, rows_copied, copy_since, message) " +
+                         "VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                         migration.getBucket(),
+                         migration.getSourceShard(),
+                         migration.getTargetShard(),
+                         migration.getState().name(),
+                         migration.getLastCopiedId(),
+                         migration.getRowsCopied(),
+                         migration.getCopySince() != null ? Timestamp.valueOf(migration.getCopySince()) : null,
+                         migration.getMessage());
+    }
+
+    public BucketMigration loadCheckpoint(int bucket) {
+        List<Map<String, Object>> rows = catalog().queryForList(
+            "SELECT * FROM " + CHECKPOINT_TABLE + " WHERE bucket = ?", bucket);
+        if (rows.isEmpty()) {
+            return null;
+        }
+        Map<String, Object> row = rows.get(0);
+        BucketMigration migration = new BucketMigration(
+            bucket,
+            ((Number) row.get("source_shard")).intValue(),
+            ((Number) row.get("target_shard")).intValue());
+        migration.setState(BucketMigration.State.valueOf((String) row.get("state")));
+        migration.setLastCopiedId(((Number) row.get("last_copied_id")).longValue());
+        migration.setRowsCopied(((Number) row.get("rows_copied")).longValue());
+        Object copySince = row.get("copy_since");
+        if (copySince instanceof LocalDateTime) {
+            migration.setCopySince((LocalDateTime) copySince);
+        } else if (copySince instanceof Timestamp) {
+            migration.setCopySince(((Timestamp) copySince).toLocalDateTime());
+        }
+        migration.setMessage((String) row.get("message"));
+        return migration;
+    }
+
+    private JdbcTemplate jdbc(int shardIndex) {
+        return shardingConfig.getJdbcTemplate(shardIndex);
+    }
+
+    private JdbcTemplate catalog() {
+        return jdbc(0);
+    }
+}
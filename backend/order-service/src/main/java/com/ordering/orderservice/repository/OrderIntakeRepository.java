@@ -0,0 +1,154 @@
+package com.ordering.orderservice.repository;
+
+import com.ordering.orderservice.config.ShardingConfig;
+import com.ordering.orderservice.entity.OrderIntake;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * {@code order_intake}: the durable queue behind the asynchronous order intake, keyed by the
+ * order ID reserved when the request was accepted. It lives in order_db_0 next to the orders
+ * the JPA {@code OrderService} writes; the order's primary key is what stops a retried row
+ * from creating it twice.
+ * Workers take a row with a conditional update ({@link #claim}), so of several instances
+ * only one commits each order; a claim that is older than {@code staleMs} counts as
+ * abandoned and can be taken again. A failed attempt goes back to PENDING with the time of
+ * its next attempt ({@link #retryLater}).
+ */
+@Repository
+@Slf4j
+public class OrderIntakeRepository {
+    
+    static final String INTAKE_TABLE = "order_intake";
+    
+    private static final String COLUMNS = "order_id, user_id, payment_method, delivery_address, items, total_amount, " +
+                                          "status, error, attempts, next_attempt_at, created_at, updated_at";
+    
+    private static final RowMapper<OrderIntake> ROW_MAPPER = (rs, rowNum) -> {
+        OrderIntake intake = new OrderIntake();
+        intake.setOrderId(rs.getLong("order_id"));
+        intake.setUserId(rs.getLong("user_id"));
+        intake.setPaymentMethod(rs.getString("payment_method"));
+        intake.setDeliveryAddress(rs.getString("delivery_address"));
+        intake.setItems(rs.getString("items"));
+        intake.setTotalAmount(rs.getBigDecimal("total_amount"));
+        intake.setStatus(rs.getString("status"));
+        intake.setError(rs.getString("error"));
+        intake.setAttempts(rs.getInt("attempts"));
+        intake.setNextAttemptAt(rs.getTimestamp("next_attempt_at").toLocalDateTime());
+        intake.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        intake.setUpdatedAt(rs.getTimestamp("updated_at").toLocalDateTime());
+        return intake;
+    };
+    
+    @Autowired
+    private ShardingConfig shardingConfig;
+    
+    @PostConstruct
+    public void createTable() {
+        try {
+            jdbc().execute("CREATE TABLE IF NOT EXISTS " + INTAKE_TABLE + " (" +
+                           "order_id BIGINT PRIMARY KEY, " +
+                           "user_id BIGINT NOT NULL, " +
+                           "payment_method VARCHAR(255) NULL, " +
+                           "delivery_address VARCHAR(255) NULL, " +
+                           "items TEXT NOT NULL, " +
+                           "total_amount DECIMAL(10, 2) NOT NULL, " +
+                           "status VARCHAR(16) NOT NULL, " +
+                           "error VARCHAR(255) NULL, " +
+                           "attempts INT NOT NULL DEFAULT 0, " +
+                           "next_attempt_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3), " +
+                           "created_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3), " +
+                           "updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3), " +
+                           "INDEX idx_intake_status_next (status, next_attempt_at), " +
+                           "INDEX idx_intake_status_updated (status, updated_at))");
+        } catch (DataAccessException e) {
+            log.warn("Could not create {}", INTAKE_TABLE, e);
+        }
+    }
+    
+    /**
+     * Store a new PENDING row under its reserved order ID
+     */
+    public void insert(OrderIntake intake) {
+        jdbc().update(
+            "INSERT INTO " + INTAKE_TABLE + " (order_id, user_id, payment_method, delivery_address, items, total_amount, " +
+            "status) VALUES (?, ?, ?, ?, ?, ?, ?)",
+            intake.getOrderId(), intake.getUserId(), intake.getPaymentMethod(), intake.getDeliveryAddress(),
+            intake.getItems(), intake.getTotalAmount(), OrderIntake.PENDING);
+    }
+    
+    public OrderIntake find(Long orderId) {
+        List<OrderIntake> rows = jdbc().query(
+            "SELECT " + COLUMNS + " FROM " + INTAKE_TABLE + " WHERE order_id = ?", ROW_MAPPER, orderId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+    
+    /**
+     * Take a pending row, or one whose previous claim has gone stale. Returns false if another worker has it.
+     */
+    public boolean claim(Long orderId, long staleMs) {
+        return jdbc().update(
+            "UPDATE " + INTAKE_TABLE + " SET status = ?, attempts = attempts + 1, updated_at = CURRENT_TIMESTAMP(3) " +
+            "WHERE order_id = ? AND (status = ? OR (status = ? AND updated_at < CURRENT_TIMESTAMP(3) - INTERVAL ? MICROSECOND))",
+            OrderIntake.PROCESSING, orderId, OrderIntake.PENDING, OrderIntake.PROCESSING, staleMs * 1000) > 0;
+    }
+    
+    /**
+     * Move a claimed row to COMMITTED or FAILED
+     */
+    public void finish(Long orderId, String status, String error) {
+        jdbc().update(
+            "UPDATE " + INTAKE_TABLE + " SET status = ?, error = ?, updated_at = CURRENT_TIMESTAMP(3) WHERE order_id = ?",
+            status, truncate(error), orderId);
+    }
+    
+    /**
+     * Put a claimed row back to PENDING, due again in {@code delayMs}
+     */
+    public void retryLater(Long orderId, String error, long delayMs) {
+        jdbc().update(
+            "UPDATE " + INTAKE_TABLE + " SET status = ?, error = ?, updated_at = CURRENT_TIMESTAMP(3), " +
+            "next_attempt_at = CURRENT_TIMESTAMP(3) + INTERVAL ? MICROSECOND WHERE order_id = ?",
+            OrderIntake.PENDING, truncate(error), delayMs * 1000, orderId);
+    }
+    
+    /**
+     * Rows no worker is on: pending rows that were due more than {@code staleMs} ago (e.g.
+     * queued or scheduled for retry by an instance that died), and claims older than that
+     */
+    public List<OrderIntake> findStale(long staleMs, int limit) {
+        return jdbc().query(
+            "SELECT " + COLUMNS + " FROM " + INTAKE_TABLE +
+            " WHERE (status = ? AND next_attempt_at < CURRENT_TIMESTAMP(3) - INTERVAL ? MICROSECOND)" +
+            " OR (status = ? AND updated_at < CURRENT_TIMESTAMP(3) - INTERVAL ? MICROSECOND)" +
+            " ORDER BY updated_at LIMIT ?",
+            ROW_MAPPER, OrderIntake.PENDING, staleMs * 1000, OrderIntake.PROCESSING, staleMs * 1000, limit);
+    }
+    
+    /**
+     * Delete finished rows older than the retention; returns how many went
+     */
+    public int purgeFinished(long retentionMs, int limit) {
+        return jdbc().update(
+            "DELETE FROM " + INTAKE_TABLE +
+            " WHERE status IN (?, ?) AND updated_at < CURRENT_TIMESTAMP(3) - INTERVAL ? MICROSECOND LIMIT ?",
+            OrderIntake.COMMITTED, OrderIntake.FAILED, retentionMs * 1000, limit);
+    }
+    
+    private static String truncate(String error) {
+        return error != null && error.length() > 255 ? error.substring(0, 255) : error;
+    }
+    
+    // Same DataSource as the JPA orders
+    private JdbcTemplate jdbc() {
+        return shardingConfig.getJdbcTemplate(0);
+    }
+}
@@ -1,8 +1,50 @@
 package com.ordering.orderservice.repository;
 import com.ordering.orderservice.entity.Order;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 public interface OrderRepository extends JpaRepository<Order, Long> {
     List<Order> findByUserId(Long userId);
     List<Order> findByStatus(String status);
+    
+    // Keyset pagination on (created_at, id); pass Pageable.ofSize(n) so no OFFSET is generated
+    List<Order> findByUserIdOrderByCreatedAtDescIdDesc(Long userId, Pageable pageable);
+    
+    @Query("SELECT o FROM Order o WHERE o.userId = :userId " +
+           "AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<Order> findByUserIdBefore(@Param("userId") Long userId,
+                                   @Param("createdAt") LocalDateTime createdAt,
+                                   @Param("id") Long id,
+                                   Pageable pageable);
+    
+    // createdYear is the partition key; bounding it lets MySQL skip the other yearly partitions
+    @Query("SELECT o FROM Order o WHERE o.userId = :userId " +
+           "AND o.createdYear BETWEEN :fromYear AND :toYear " +
+           "AND o.createdAt >= :from AND o.createdAt < :to " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<Order> findByUserIdInRange(@Param("userId") Long userId,
+                                    @Param("fromYear") Integer fromYear,
+                                    @Param("toYear") Integer toYear,
+                                    @Param("from") LocalDateTime from,
+                                    @Param("to") LocalDateTime to,
+                                    Pageable pageable);
+    
+    /**
+     * Move an order to {@code to} in one statement, only if its status is one of {@code from}
+     * and, when {@code version} is given, the version still matches. Returns rows updated (0 or 1).
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Order o SET o.status = :to, o.version = o.version + 1, o.updatedAt = :now " +
+           "WHERE o.id = :id AND o.status IN :from AND (:version IS NULL OR o.version = :version)")
+    int transition(@Param("id") Long id,
+                   @Param("from") Collection<String> from,
+                   @Param("to") String to,
+                   @Param("version") Long version,
+                   @Param("now") LocalDateTime now);
 }
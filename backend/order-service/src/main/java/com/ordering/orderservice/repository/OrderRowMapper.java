@@ -0,0 +1,44 @@
+package com.ordering.orderservice.repository;
+
+import com.ordering.orderservice.entity.Order;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps an {@code orders} row from any shard. List queries select only the header columns;
+ * the legacy {@code items} blob is mapped only when asked for.
+ */
+public class OrderRowMapper implements RowMapper<Order> {
+    
+    private final boolean withItems;
+    
+    public OrderRowMapper() {
+        this(false);
+    }
+    
+    public OrderRowMapper(boolean withItems) {
+        this.withItems = withItems;
+    }
+    
+    @Override
+    public Order mapRow(ResultSet rs, int rowNum) throws SQLException {
+        Order order = new Order();
+        order.setId(rs.getLong("id"));
+        order.setUserId(rs.getLong("user_id"));
+        order.setCreatedYear(rs.getInt("created_year"));
+        if (withItems) {
+            order.setItems(rs.getString("items"));
+        }
+        order.setTotalAmount(rs.getBigDecimal("total_amount"));
+        order.setStatus(rs.getString("status"));
+        order.setLoadedStatus(order.getStatus());
+        order.setPaymentMethod(rs.getString("payment_method"));
+        order.setDeliveryAddress(rs.getString("delivery_address"));
+        order.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        order.setUpdatedAt(rs.getTimestamp("updated_at").toLocalDateTime());
+        order.setVersion(rs.getLong("version"));
+        return order;
+    }
+}
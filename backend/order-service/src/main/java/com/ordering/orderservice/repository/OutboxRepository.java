@@ -0,0 +1,112 @@
+package com.ordering.orderservice.repository;
+
+import com.ordering.orderservice.config.ShardingConfig;
+import com.ordering.orderservice.entity.Order;
+import com.ordering.orderservice.outbox.OutboxEvent;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Per-shard {@code order_outbox}. Appends run on the caller's connection, so they commit or
+ * roll back with the order write around them; the relay drains the table in id order.
+ */
+@Repository
+@Slf4j
+public class OutboxRepository {
+    
+    static final String OUTBOX_TABLE = "order_outbox";
+    
+    private static final String APPEND_SQL =
+        "INSERT INTO " + OUTBOX_TABLE + " (event_type, aggregate_id, user_id) VALUES (?, ?, ?)";
+    
+    @Autowired
+    private ShardingConfig shardingConfig;
+    
+    @PostConstruct
+    public void createTables() {
+        for (int shard = 0; shard < shardingConfig.getNumShards(); shard++) {
+            try {
+                jdbc(shard).execute("CREATE TABLE IF NOT EXISTS " + OUTBOX_TABLE + " (" +
+                                    "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                                    "event_type VARCHAR(64) NOT NULL, " +
+                                    "aggregate_id BIGINT NOT NULL, " +
+                                    "user_id BIGINT NULL, " +
+                                    "created_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3))");
+                Integer userColumn = jdbc(shard).queryForObject(
+                    "SELECT COUNT(*) FROM information_schema.COLUMNS " +
+                    "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = 'user_id'",
+                    Integer.class, OUTBOX_TABLE);
+                if (userColumn != null && userColumn == 0) {
+                    jdbc(shard).execute("ALTER TABLE " + OUTBOX_TABLE + " ADD COLUMN user_id BIGINT NULL");
+                }
+            } catch (DataAccessException e) {
+                log.warn("Could not create {} on shard {}", OUTBOX_TABLE, shard, e);
+            }
+        }
+    }
+    
+    /**
+     * Append to the outbox of shard 0, the datasource the JPA order services write to.
+     * Joins the surrounding JPA transaction; the user ID, used as the message key, is
+     * copied from the order row in the same statement.
+     */
+    public void append(String eventType, Long orderId) {
+        jdbc(0).update("INSERT INTO " + OUTBOX_TABLE + " (event_type, aggregate_id, user_id) " +
+                       "SELECT ?, id, user_id FROM orders WHERE id = ?", eventType, orderId);
+    }
+    
+    public void append(int shardIndex, String eventType, Long orderId, Long userId) {
+        jdbc(shardIndex).update(APPEND_SQL, eventType, orderId, userId);
+    }
+    
+    public void appendAll(int shardIndex, String eventType, List<Order> orders) {
+        if (!orders.isEmpty()) {
+            jdbc(shardIndex).batchUpdate(APPEND_SQL, orders.stream()
+                .map(order -> new Object[] {eventType, order.getId(), order.getUserId()})
+                .collect(Collectors.toList()));
+        }
+    }
+    
+    /**
+     * Oldest pending events, locked for the caller's transaction. Rows locked by another
+     * relay are skipped rather than waited for, so several instances can drain one shard.
+     */
+    public List<OutboxEvent> lockBatch(int shardIndex, int limit) {
+        return jdbc(shardIndex).query(
+            "SELECT id, event_type, aggregate_id, user_id, created_at FROM " + OUTBOX_TABLE +
+            " ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED",
+            (rs, rowNum) -> new OutboxEvent(rs.getLong("id"), rs.getString("event_type"), rs.getLong("aggregate_id"),
+                                            rs.getObject("user_id", Long.class),
+                                            rs.getTimestamp("created_at").toLocalDateTime()),
+            limit);
+    }
+    
+    public void delete(int shardIndex, List<OutboxEvent> events) {
+        String ids = events.stream().map(e -> "?").collect(Collectors.joining(", "));
+        jdbc(shardIndex).update("DELETE FROM " + OUTBOX_TABLE + " WHERE id IN (" + ids + ")",
+                                events.stream().map(OutboxEvent::getId).toArray());
+    }
+    
+    /**
+     * Pending row count and the age of the oldest row in milliseconds, measured on the
+     * database clock so instance clock skew does not show up as lag.
+     */
+    public long[] backlog(int shardIndex) {
+        return jdbc(shardIndex).queryForObject(
+            "SELECT COUNT(*) AS pending, " +
+            "COALESCE(TIMESTAMPDIFF(MICROSECOND, MIN(created_at), CURRENT_TIMESTAMP(3)) DIV 1000, 0) AS lag_ms " +
+            "FROM " + OUTBOX_TABLE,
+            (rs, rowNum) -> new long[] { rs.getLong("pending"), rs.getLong("lag_ms") });
+    }
+    
+    private JdbcTemplate jdbc(int shardIndex) {
+        return shardingConfig.getJdbcTemplate(shardIndex);
+    }
+}
@@ -1,185 +1,700 @@
 package com.ordering.orderservice.repository;
 
+import com.ordering.common.dto.CursorPage;
+import com.ordering.common.model.CartItem;
+import com.ordering.common.util.CursorCodec;
+import com.ordering.common.util.InvalidCursorException;
+import com.ordering.common.util.SnowflakeIdGenerator;
 import com.ordering.orderservice.config.ShardingConfig;
+import com.ordering.orderservice.config.ShardingProperties;
 import com.ordering.orderservice.entity.Order;
+import com.ordering.orderservice.outbox.OutboxPublisher;
+import com.ordering.orderservice.sharding.AmbiguousOrderIdException;
+import com.ordering.orderservice.sharding.GroupCommitWriter;
+import com.ordering.orderservice.sharding.ScatterGatherExecutor;
+import com.ordering.orderservice.sharding.ReplicaRouter;
+import com.ordering.orderservice.sharding.ScatterGatherResult;
+import com.ordering.orderservice.sharding.ShardRouter;
+import com.ordering.orderservice.sharding.ShardStatsTracker;
+import com.ordering.orderservice.sharding.ShardUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
-import javax.sql.DataSource;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Repository
+@Slf4j
 public class ShardedOrderRepository {
     
     @Autowired
     private ShardingConfig shardingConfig;
     
-    private final RowMapper<Order> orderRowMapper = new RowMapper<Order>() {
-        @Override
-        public Order mapRow(ResultSet rs, int rowNum) throws SQLException {
-            Order order = new Order();
-            order.setId(rs.getLong("id"));
-            order.setUserId(rs.getLong("user_id"));
-            order.setItems(rs.getString("items"));
-            order.setTotalAmount(rs.getBigDecimal("total_amount"));
-            order.setStatus(rs.getString("status"));
-            order.setPaymentMethod(rs.getString("payment_method"));
-            order.setDeliveryAddress(rs.getString("delivery_address"));
-            order.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
-            order.setUpdatedAt(rs.getTimestamp("updated_at").toLocalDateTime());
-            return order;
+    @Autowired
+    private ShardRouter shardRouter;
+    
+    @Autowired
+    private ScatterGatherExecutor scatterGatherExecutor;
+    
+    @Autowired
+    private SnowflakeIdGenerator orderIdGenerator;
+    
+    @Autowired
+    private ShardStatsTracker shardStatsTracker;
+    
+    @Autowired
+    private ReplicaRouter replicaRouter;
+    
+    @Autowired
+    private OutboxRepository outboxRepository;
+    
+    @Autowired
+    private ShardingProperties shardingProperties;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    // Null unless sharding.group-commit.enabled
+    private GroupCommitWriter<Order> groupCommitWriter;
+    
+    @Value("${sharding.bulk.batch-size:500}")
+    private int bulkBatchSize;
+    
+    private static final Comparator<Order> NEWEST_FIRST = Comparator
+        .comparing(Order::getCreatedAt, Comparator.reverseOrder())
+        .thenComparing(Order::getId, Comparator.reverseOrder());
+    
+    private final RowMapper<Order> orderRowMapper = new OrderRowMapper();
+    
+    static final String INSERT_SQL =
+        "INSERT INTO orders (id, user_id, items, total_amount, status, payment_method, delivery_address, created_year, created_at, updated_at, version) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    /**
+     * Everything but the items blob; reads never need it, line items come from order_items.
+     */
+    static final String HEADER_COLUMNS =
+        "id, user_id, total_amount, status, payment_method, delivery_address, created_year, created_at, updated_at, version";
+    
+    static final String ITEM_COLUMNS = "order_id, line_no, user_id, menu_item_id, name, price, quantity, subtotal";
+    
+    static final String ITEM_INSERT_SQL =
+        "INSERT INTO order_items (" + ITEM_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    static final String UPDATE_SQL =
+        "UPDATE orders SET status = ?, payment_method = ?, delivery_address = ?, updated_at = ?, version = version + 1 " +
+        "WHERE id = ? AND user_id = ?";
+    
+    /**
+     * Bring older shard schemas up to date: create order_items, let orders.items be null now
+     * that new orders leave it empty, and add the version column used by conditional transitions.
+     */
+    @PostConstruct
+    public void ensureSchema() {
+        for (int shard = 0; shard < shardingConfig.getNumShards(); shard++) {
+            try {
+                JdbcTemplate jdbcTemplate = shardingConfig.getJdbcTemplate(shard);
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS order_items (" +
+                                     "order_id BIGINT NOT NULL, " +
+                                     "line_no INT NOT NULL, " +
+                                     "user_id BIGINT NOT NULL, " +
+                                     "menu_item_id BIGINT, " +
+                                     "name VARCHAR(255), " +
+                                     "price DECIMAL(10, 2), " +
+                                     "quantity INT, " +
+                                     "subtotal DECIMAL(10, 2), " +
+                                     "PRIMARY KEY (order_id, line_no), " +
+                                     "INDEX idx_user_id (user_id))");
+                Integer itemsRequired = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM information_schema.COLUMNS " +
+                    "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'orders' AND COLUMN_NAME = 'items' AND IS_NULLABLE = 'NO'",
+                    Integer.class);
+                if (itemsRequired != null && itemsRequired > 0) {
+                    jdbcTemplate.execute("ALTER TABLE orders MODIFY items TEXT NULL");
+                }
+                Integer ordersTable = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'orders'",
+                    Integer.class);
+                Integer versionColumn = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM information_schema.COLUMNS " +
+                    "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'orders' AND COLUMN_NAME = 'version'",
+                    Integer.class);
+                if (ordersTable != null && ordersTable > 0 && versionColumn != null && versionColumn == 0) {
+                    jdbcTemplate.execute("ALTER TABLE orders ADD COLUMN version BIGINT NOT NULL DEFAULT 0");
+                    log.info("Added version column to orders on shard {}", shard);
+                }
+            } catch (DataAccessException e) {
+                log.warn("Could not check the orders schema on shard {}", shard, e);
+            }
         }
-    };
+    }
+    
+    @PostConstruct
+    public void startGroupCommit() {
+        ShardingProperties.GroupCommit config = shardingProperties.getGroupCommit();
+        if (config.isEnabled()) {
+            groupCommitWriter = new GroupCommitWriter<>(shardingConfig.getNumShards(), config.getWritersPerShard(),
+                config.getMaxBatchSize(), config.getMaxWaitMicros(), config.getQueueCapacity(),
+                (shardIndex, orders) -> insertBatch(shardIndex, "INSERT", orders), meterRegistry);
+            log.info("Group commit enabled: up to {} orders per transaction, {}us wait",
+                     config.getMaxBatchSize(), config.getMaxWaitMicros());
+        }
+    }
+    
+    @PreDestroy
+    public void stopGroupCommit() {
+        if (groupCommitWriter != null) {
+            groupCommitWriter.shutdown();
+        }
+    }
     
     /**
-     * Save order to appropriate shard based on user_id
+     * Save order to appropriate shard based on user_id.
+     * New orders get a shard-encoding ID up front, so the insert is a single statement.
+     * While the user's bucket is being migrated every write is mirrored to the second shard.
      */
     public Order save(Order order) {
-        DataSource dataSource = shardingConfig.getDataSourceForUser(order.getUserId());
-        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        int bucket = shardRouter.getBucket(order.getUserId());
+        ShardRouter.Route route = shardRouter.getRoute(bucket);
+        JdbcTemplate jdbcTemplate = shardingConfig.getJdbcTemplate(route.getShard());
         
         if (order.getId() == null) {
             // Insert
-            String sql = "INSERT INTO orders (user_id, items, total_amount, status, payment_method, delivery_address, created_at, updated_at) " +
-                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
-            
-            jdbcTemplate.update(sql, 
-                order.getUserId(),
-                order.getItems(),
-                order.getTotalAmount(),
-                order.getStatus(),
-                order.getPaymentMethod(),
-                order.getDeliveryAddress(),
-                Timestamp.valueOf(order.getCreatedAt()),
-                Timestamp.valueOf(order.getUpdatedAt())
-            );
-            
-            // Get generated ID
-            Long id = jdbcTemplate.queryForObject("SELECT LAST_INSERT_ID()", Long.class);
-            order.setId(id);
+            order.setId(orderIdGenerator.nextId(bucket));
+            insert(order);
         } else {
             // Update
-            String sql = "UPDATE orders SET status = ?, payment_method = ?, delivery_address = ?, updated_at = ? " +
-                        "WHERE id = ? AND user_id = ?";
-            
-            jdbcTemplate.update(sql,
-                order.getStatus(),
-                order.getPaymentMethod(),
-                order.getDeliveryAddress(),
-                Timestamp.valueOf(order.getUpdatedAt()),
-                order.getId(),
-                order.getUserId()
-            );
+            if (jdbcTemplate.update(UPDATE_SQL, updateArgs(order)) > 0 && order.getCreatedYear() != null) {
+                shardStatsTracker.recordStatusChange(route.getShard(), order.getLoadedStatus(),
+                                                     order.getStatus(), order.getCreatedYear());
+                order.setLoadedStatus(order.getStatus());
+                replicaRouter.recordWrite(order.getUserId());
+            }
+            if (route.isDualWrite()) {
+                // Matches nothing if the row is not copied yet; the copier then brings the new state
+                mirror(route.getDualWriteShard(), UPDATE_SQL, updateArgs(order));
+            }
         }
         
         return order;
     }
     
     /**
-     * Find order by ID - requires userId to determine shard
+     * Insert a new order whose ID is already set. Fails with a DuplicateKeyException if an
+     * order with that ID exists on the shard. With group commit on, the order shares a
+     * transaction with concurrent inserts to the same shard; this returns once it has committed.
      */
-    public Order findByIdAndUserId(Long orderId, Long userId) {
-        DataSource dataSource = shardingConfig.getDataSourceForUser(userId);
-        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
-        
-        String sql = "SELECT * FROM orders WHERE id = ? AND user_id = ?";
+    public Order insert(Order order) {
+        ShardRouter.Route route = shardRouter.getRoute(shardRouter.getBucket(order.getUserId()));
+        order.setCreatedYear(order.getCreatedAt().getYear());
         
-        List<Order> orders = jdbcTemplate.query(sql, orderRowMapper, orderId, userId);
-        return orders.isEmpty() ? null : orders.get(0);
+        if (groupCommitWriter != null) {
+            awaitGroupCommit(route.getShard(), groupCommitWriter.submit(route.getShard(), order));
+        } else {
+            insertBatch(route.getShard(), "INSERT", List.of(order));
+        }
+        shardStatsTracker.recordInsert(route.getShard(), order.getStatus(), order.getCreatedYear());
+        order.setLoadedStatus(order.getStatus());
+        replicaRouter.recordWrite(order.getUserId());
+        if (route.isDualWrite()) {
+            // The copier may already have picked the row up from the primary shard
+            mirrorBatch(route.getDualWriteShard(), List.of(order));
+        }
+        return order;
+    }
+    
+    private void awaitGroupCommit(int shardIndex, CompletableFuture<Order> commit) {
+        try {
+            commit.get(shardingProperties.getGroupCommit().getCommitTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            // The batch may still commit; the caller only learns that it did not in time
+            throw new ShardUnavailableException(shardIndex, "group commit timed out");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ShardUnavailableException(shardIndex, "interrupted");
+        }
     }
     
     /**
-     * Find all orders for a user - queries specific shard
+     * Insert many new orders. Orders are grouped by shard and each group is written as
+     * JDBC batches of {@code sharding.bulk.batch-size}, one transaction per batch.
+     * A batch that fails is retried row by row so only the bad orders are rejected.
+     *
+     * @return one entry per order, in input order: null if written, otherwise the error
      */
-    public List<Order> findByUserId(Long userId) {
-        DataSource dataSource = shardingConfig.getDataSourceForUser(userId);
-        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    public List<String> insertAll(List<Order> orders) {
+        String[] errors = new String[orders.size()];
+        Map<Integer, List<Integer>> byShard = new TreeMap<>();
+        ShardRouter.Route[] routes = new ShardRouter.Route[orders.size()];
         
-        String sql = "SELECT * FROM orders WHERE user_id = ? ORDER BY created_at DESC";
+        for (int i = 0; i < orders.size(); i++) {
+            Order order = orders.get(i);
+            int bucket = shardRouter.getBucket(order.getUserId());
+            routes[i] = shardRouter.getRoute(bucket);
+            order.setId(orderIdGenerator.nextId(bucket));
+            order.setCreatedYear(order.getCreatedAt().getYear());
+            byShard.computeIfAbsent(routes[i].getShard(), k -> new ArrayList<>()).add(i);
+        }
         
-        return jdbcTemplate.query(sql, orderRowMapper, userId);
+        for (Map.Entry<Integer, List<Integer>> group : byShard.entrySet()) {
+            List<Integer> indexes = group.getValue();
+            for (int from = 0; from < indexes.size(); from += bulkBatchSize) {
+                List<Integer> chunk = indexes.subList(from, Math.min(from + bulkBatchSize, indexes.size()));
+                insertChunk(group.getKey(), chunk, orders, errors);
+                
+                // Mirror what landed for buckets that are being migrated
+                Map<Integer, List<Order>> mirrors = new TreeMap<>();
+                for (Integer i : chunk) {
+                    if (errors[i] == null) {
+                        Order order = orders.get(i);
+                        shardStatsTracker.recordInsert(group.getKey(), order.getStatus(), order.getCreatedYear());
+                        order.setLoadedStatus(order.getStatus());
+                        replicaRouter.recordWrite(order.getUserId());
+                    }
+                    if (errors[i] == null && routes[i].isDualWrite()) {
+                        mirrors.computeIfAbsent(routes[i].getDualWriteShard(), k -> new ArrayList<>())
+                               .add(orders.get(i));
+                    }
+                }
+                mirrors.forEach(this::mirrorBatch);
+            }
+        }
+        
+        return Arrays.asList(errors);
+    }
+    
+    private void insertChunk(int shardIndex, List<Integer> chunk, List<Order> orders, String[] errors) {
+        List<Order> batch = chunk.stream().map(orders::get).collect(Collectors.toList());
+        try {
+            insertBatch(shardIndex, "INSERT", batch);
+            return;
+        } catch (DataAccessException e) {
+            log.warn("Batch of {} orders failed on shard {}, retrying one by one", chunk.size(), shardIndex, e);
+        }
+        
+        // The batch was rolled back as a whole, so every row can be retried safely
+        for (Integer i : chunk) {
+            try {
+                insertBatch(shardIndex, "INSERT", List.of(orders.get(i)));
+            } catch (DataAccessException e) {
+                errors[i] = e.getMostSpecificCause().getMessage();
+            }
+        }
+    }
+    
+    /**
+     * Orders and their item rows as two JDBC batches in one shard transaction, plus their
+     * order.created outbox events. {@code verb} is INSERT, or INSERT IGNORE for mirrored
+     * writes the copier may have beaten; mirrors publish nothing.
+     */
+    private void insertBatch(int shardIndex, String verb, List<Order> orders) {
+        JdbcTemplate jdbcTemplate = shardingConfig.getJdbcTemplate(shardIndex);
+        List<Object[]> orderArgs = orders.stream().map(ShardedOrderRepository::insertArgs).collect(Collectors.toList());
+        List<Object[]> itemArgs = orders.stream().flatMap(o -> itemArgs(o).stream()).collect(Collectors.toList());
+        shardingConfig.getTransactionTemplate(shardIndex).executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERT_SQL.replaceFirst("INSERT", verb), orderArgs);
+            if (!itemArgs.isEmpty()) {
+                jdbcTemplate.batchUpdate(ITEM_INSERT_SQL.replaceFirst("INSERT", verb), itemArgs);
+            }
+            if ("INSERT".equals(verb)) {
+                outboxRepository.appendAll(shardIndex, OutboxPublisher.ORDER_CREATED, orders);
+            }
+        });
+    }
+    
+    private void mirrorBatch(int shardIndex, List<Order> orders) {
+        try {
+            insertBatch(shardIndex, "INSERT IGNORE", orders);
+        } catch (DataAccessException e) {
+            log.warn("Dual-write of {} orders to shard {} failed", orders.size(), shardIndex, e);
+        }
+    }
+    
+    static Object[] insertArgs(Order order) {
+        return new Object[] {
+            order.getId(),
+            order.getUserId(),
+            order.getItems(),
+            order.getTotalAmount(),
+            order.getStatus(),
+            order.getPaymentMethod(),
+            order.getDeliveryAddress(),
+            order.getCreatedYear(),
+            Timestamp.valueOf(order.getCreatedAt()),
+            Timestamp.valueOf(order.getUpdatedAt()),
+            order.getVersion() != null ? order.getVersion() : 0L
+        };
     }
     
     /**
-     * Find orders by status - queries ALL shards (scatter-gather)
+     * Move one order to {@code to} in a single conditional UPDATE: it applies only while the
+     * order is in one of {@code from} and, when {@code expectedVersion} is given, still at that
+     * version. No read happens first, so concurrent transitions cannot both win.
+     * {@code events} are appended to the shard's outbox in the same transaction.
+     *
+     * @return false if no row matched; the caller decides whether to read the order to explain why
      */
-    public List<Order> findByStatus(String status) {
-        List<Order> allOrders = new ArrayList<>();
+    public boolean transition(Long orderId, Long userId, List<String> from, String to, Long expectedVersion,
+                              List<String> events) {
+        ShardRouter.Route route = shardRouter.getRoute(shardRouter.getBucket(userId));
+        StringBuilder sql = new StringBuilder("UPDATE orders SET status = ?, version = version + 1, updated_at = ? ")
+            .append("WHERE id = ? AND user_id = ? AND status IN (")
+            .append(from.stream().map(s -> "?").collect(Collectors.joining(", ")))
+            .append(")");
+        List<Object> args = new ArrayList<>(List.of(to, Timestamp.valueOf(LocalDateTime.now()), orderId, userId));
+        args.addAll(from);
+        if (expectedVersion != null) {
+            sql.append(" AND version = ?");
+            args.add(expectedVersion);
+        }
         
-        // Query all shards
-        for (int i = 0; i < 4; i++) {
-            DataSource dataSource = shardingConfig.getDataSourceForShard(i);
-            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        JdbcTemplate jdbcTemplate = shardingConfig.getJdbcTemplate(route.getShard());
+        boolean applied;
+        if (events.isEmpty()) {
+            applied = jdbcTemplate.update(sql.toString(), args.toArray()) > 0;
+        } else {
+            applied = Boolean.TRUE.equals(shardingConfig.getTransactionTemplate(route.getShard()).execute(status -> {
+                if (jdbcTemplate.update(sql.toString(), args.toArray()) == 0) {
+                    return false;
+                }
+                events.forEach(event -> outboxRepository.append(route.getShard(), event, orderId, userId));
+                return true;
+            }));
+        }
+        if (!applied) {
+            return false;
+        }
+        replicaRouter.recordWrite(userId);
+        // With several possible predecessors the old status is unknown here; the next reconcile fixes the counts
+        if (from.size() == 1 && SnowflakeIdGenerator.isGenerated(orderId)) {
+            int createdYear = LocalDateTime.ofInstant(Instant.ofEpochMilli(SnowflakeIdGenerator.timestampOf(orderId)),
+                                                      ZoneId.systemDefault()).getYear();
+            shardStatsTracker.recordStatusChange(route.getShard(), from.get(0), to, createdYear);
+        }
+        if (route.isDualWrite()) {
+            // Without the version guard: the copy may lag a step behind, and the primary has already decided
+            mirror(route.getDualWriteShard(),
+                   "UPDATE orders SET status = ?, version = version + 1, updated_at = ? WHERE id = ? AND user_id = ?",
+                   new Object[] {to, args.get(1), orderId, userId});
+        }
+        return true;
+    }
+    
+    private static List<Object[]> itemArgs(Order order) {
+        List<CartItem> items = order.getLineItems() != null ? order.getLineItems() : List.of();
+        List<Object[]> args = new ArrayList<>(items.size());
+        for (int line = 0; line < items.size(); line++) {
+            CartItem item = items.get(line);
+            args.add(new Object[] {
+                order.getId(),
+                line,
+                order.getUserId(),
+                item.getMenuItemId(),
+                item.getName(),
+                item.getPrice(),
+                item.getQuantity(),
+                item.getSubtotal()
+            });
+        }
+        return args;
+    }
+    
+    /**
+     * Attach line items to a page of orders: one query per shard the page touches, reading
+     * order_items for all of the page's IDs at once. Orders written before order_items
+     * existed get their items blob instead, which is returned to the client as-is.
+     */
+    public void loadItems(List<Order> orders) {
+        Map<Integer, List<Order>> byShard = orders.stream()
+            .collect(Collectors.groupingBy(o -> shardRouter.getShardForUser(o.getUserId()), TreeMap::new, Collectors.toList()));
+        
+        byShard.forEach((shardIndex, shardOrders) -> {
+            Map<Long, Order> byId = new HashMap<>();
+            shardOrders.forEach(o -> {
+                o.setLineItems(new ArrayList<>());
+                byId.put(o.getId(), o);
+            });
+            // A page of one user's orders can honour read-your-writes; mixed pages read wherever
+            Long userId = shardOrders.stream().map(Order::getUserId).distinct().count() == 1
+                ? shardOrders.get(0).getUserId() : null;
+            Object[] args = byId.keySet().toArray();
+            String ids = Arrays.stream(args).map(id -> "?").collect(Collectors.joining(", "));
+            
+            replicaRouter.read(shardIndex, userId, jdbcTemplate -> {
+                jdbcTemplate.query("SELECT order_id, menu_item_id, name, price, quantity, subtotal FROM order_items " +
+                                   "WHERE order_id IN (" + ids + ") ORDER BY order_id, line_no", rs -> {
+                    CartItem item = new CartItem();
+                    item.setMenuItemId(rs.getObject("menu_item_id", Long.class));
+                    item.setName(rs.getString("name"));
+                    item.setPrice(rs.getBigDecimal("price"));
+                    item.setQuantity(rs.getObject("quantity", Integer.class));
+                    item.setSubtotal(rs.getBigDecimal("subtotal"));
+                    byId.get(rs.getLong("order_id")).getLineItems().add(item);
+                }, args);
+                return null;
+            });
             
-            String sql = "SELECT * FROM orders WHERE status = ? ORDER BY created_at DESC";
-            List<Order> shardOrders = jdbcTemplate.query(sql, orderRowMapper, status);
-            allOrders.addAll(shardOrders);
+            Object[] legacy = byId.values().stream().filter(o -> o.getLineItems().isEmpty()).map(Order::getId).toArray();
+            if (legacy.length > 0) {
+                String legacyIds = Arrays.stream(legacy).map(id -> "?").collect(Collectors.joining(", "));
+                replicaRouter.read(shardIndex, userId, jdbcTemplate -> {
+                    jdbcTemplate.query("SELECT id, items FROM orders WHERE id IN (" + legacyIds + ") AND items IS NOT NULL",
+                                       rs -> {
+                        byId.get(rs.getLong("id")).setItems(rs.getString("items"));
+                    }, legacy);
+                    return null;
+                });
+            }
+        });
+    }
+    
+    private static Object[] updateArgs(Order order) {
+        return new Object[] {
+            order.getStatus(),
+            order.getPaymentMethod(),
+            order.getDeliveryAddress(),
+            Timestamp.valueOf(order.getUpdatedAt()),
+            order.getId(),
+            order.getUserId()
+        };
+    }
+    
+    private void mirror(int shardIndex, String sql, Object[] args) {
+        try {
+            shardingConfig.getJdbcTemplate(shardIndex).update(sql, args);
+        } catch (DataAccessException e) {
+            // Never fail the user's write; the migration's catch-up and its reconcile pass after
+            // cutover re-copy whatever this left stale, and cleanup keeps rows the target lacks
+            log.warn("Dual-write to shard {} failed", shardIndex, e);
         }
+    }
+    
+    /**
+     * Find order by ID - requires userId to determine shard
+     */
+    public Order findByIdAndUserId(Long orderId, Long userId) {
+        JdbcTemplate jdbcTemplate = shardingConfig.getJdbcTemplate(shardRouter.getShardForUser(userId));
         
-        // Sort combined results
-        allOrders.sort((o1, o2) -> o2.getCreatedAt().compareTo(o1.getCreatedAt()));
+        String sql = "SELECT " + HEADER_COLUMNS + " FROM orders WHERE id = ? AND user_id = ?";
         
-        return allOrders;
+        List<Order> orders = jdbcTemplate.query(sql, orderRowMapper, orderId, userId);
+        return orders.isEmpty() ? null : orders.get(0);
     }
     
     /**
-     * Get total order count across all shards
+     * Find order by ID alone - the routing bucket is encoded in the ID.
+     * Legacy auto-increment IDs carry no shard, so those fall back to asking every shard. Every
+     * shard had its own sequence, so a legacy ID found on several shards is refused rather than
+     * answered with an arbitrary user's order, and so is a lookup some shard did not answer.
+     * Stays on the primary: the caller is usually fetching an order it just placed.
      */
-    public long getTotalOrderCount() {
-        long totalCount = 0;
+    public Order findById(Long orderId) {
+        String sql = "SELECT " + HEADER_COLUMNS + " FROM orders WHERE id = ?";
         
-        for (int i = 0; i < 4; i++) {
-            DataSource dataSource = shardingConfig.getDataSourceForShard(i);
-            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
-            
-            Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders", Long.class);
-            totalCount += (count != null ? count : 0);
+        if (SnowflakeIdGenerator.isGenerated(orderId)) {
+            JdbcTemplate jdbcTemplate = shardingConfig.getJdbcTemplate(shardRouter.getShardForOrderId(orderId));
+            List<Order> orders = jdbcTemplate.query(sql, orderRowMapper, orderId);
+            return orders.isEmpty() ? null : orders.get(0);
         }
         
-        return totalCount;
+        ScatterGatherResult<Order> result = scatterGatherExecutor.query(allShards(), shardIndex -> {
+            JdbcTemplate jdbcTemplate = shardingConfig.getJdbcTemplate(shardIndex);
+            return jdbcTemplate.query(sql, orderRowMapper, orderId);
+        }, NEWEST_FIRST, 0);
+        List<Order> orders = result.getRows();
+        if (orders.size() > 1) {
+            throw new AmbiguousOrderIdException(orderId, orders.size());
+        }
+        if (result.isPartial()) {
+            throw new ShardUnavailableException(result.getFailedShards().iterator().next(),
+                                                "cannot rule out legacy order " + orderId + " there");
+        }
+        return orders.isEmpty() ? null : orders.get(0);
     }
     
     /**
-     * Get shard statistics
+     * Find all orders for a user - queries specific shard
      */
-    public List<ShardStats> getShardStatistics() {
-        List<ShardStats> stats = new ArrayList<>();
+    public List<Order> findByUserId(Long userId) {
+        String sql = "SELECT " + HEADER_COLUMNS + " FROM orders WHERE user_id = ? ORDER BY created_at DESC";
         
-        for (int i = 0; i < 4; i++) {
-            DataSource dataSource = shardingConfig.getDataSourceForShard(i);
-            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
-            
-            Long orderCount = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders", Long.class);
-            
-            ShardStats shardStats = new ShardStats();
-            shardStats.setShardIndex(i);
-            shardStats.setOrderCount(orderCount != null ? orderCount : 0);
-            shardStats.setDatabaseName("order_db_" + i);
-            
-            stats.add(shardStats);
+        return replicaRouter.read(shardRouter.getShardForUser(userId), userId,
+                                  jdbcTemplate -> jdbcTemplate.query(sql, orderRowMapper, userId));
+    }
+    
+    /**
+     * Find the newest orders with the given status across ALL shards.
+     * Shards are queried in parallel and each returns at most {@code limit}
+     * rows already sorted, so the merge never holds more than needed.
+     */
+    public ScatterGatherResult<Order> findByStatus(String status, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive");
         }
+        String sql = "SELECT " + HEADER_COLUMNS + " FROM orders WHERE status = ? ORDER BY created_at DESC, id DESC LIMIT ?";
         
-        return stats;
+        return scatterGatherExecutor.query(allShards(), shardIndex -> replicaRouter.read(shardIndex, null,
+            jdbcTemplate -> jdbcTemplate.query(sql, orderRowMapper, status, limit)), NEWEST_FIRST, limit);
+    }
+    
+    /**
+     * One keyset page of a user's orders, newest first. {@code after} is the last row of
+     * the previous page, or null for the first page.
+     */
+    public List<Order> findByUserIdPage(Long userId, CursorCodec.Position after, int limit) {
+        int shardIndex = shardRouter.getShardForUser(userId);
+        
+        if (after == null) {
+            String sql = "SELECT " + HEADER_COLUMNS + " FROM orders WHERE user_id = ? ORDER BY created_at DESC, id DESC LIMIT ?";
+            return replicaRouter.read(shardIndex, userId,
+                                      jdbcTemplate -> jdbcTemplate.query(sql, orderRowMapper, userId, limit));
+        }
+        String sql = "SELECT " + HEADER_COLUMNS + " FROM orders WHERE user_id = ? " +
+                     "AND (created_at < ? OR (created_at = ? AND id < ?)) " +
+                     "ORDER BY created_at DESC, id DESC LIMIT ?";
+        Timestamp createdAt = Timestamp.valueOf(after.getCreatedAt());
+        return replicaRouter.read(shardIndex, userId, jdbcTemplate -> jdbcTemplate.query(
+            sql, orderRowMapper, userId, createdAt, createdAt, after.getLongId(), limit));
+    }
+    
+    /**
+     * One keyset page of a user's orders created in [from, to), newest first.
+     */
+    public List<Order> findByUserIdInRange(Long userId, LocalDateTime from, LocalDateTime to,
+                                           CursorCodec.Position after, int limit) {
+        List<Object> args = new ArrayList<>();
+        String sql = rangeSql("user_id = ?", after, args, userId, from, to) + " LIMIT ?";
+        args.add(limit);
+        return replicaRouter.read(shardRouter.getShardForUser(userId), userId,
+                                  jdbcTemplate -> jdbcTemplate.query(sql, orderRowMapper, args.toArray()));
+    }
+    
+    /**
+     * Newest orders with the given status created in [from, to), across ALL shards.
+     */
+    public ScatterGatherResult<Order> findByStatusInRange(String status, LocalDateTime from, LocalDateTime to, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        List<Object> args = new ArrayList<>();
+        String sql = rangeSql("status = ?", null, args, status, from, to) + " LIMIT ?";
+        args.add(limit);
+        return scatterGatherExecutor.query(allShards(), shardIndex -> replicaRouter.read(shardIndex, null,
+            jdbcTemplate -> jdbcTemplate.query(sql, orderRowMapper, args.toArray())), NEWEST_FIRST, limit);
     }
     
-    public static class ShardStats {
-        private int shardIndex;
-        private String databaseName;
-        private long orderCount;
+    /**
+     * Newest orders created in [from, to), across ALL shards.
+     */
+    public ScatterGatherResult<Order> findInRange(LocalDateTime from, LocalDateTime to, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        List<Object> args = new ArrayList<>();
+        String sql = rangeSql(null, null, args, null, from, to) + " LIMIT ?";
+        args.add(limit);
+        return scatterGatherExecutor.query(allShards(), shardIndex -> replicaRouter.read(shardIndex, null,
+            jdbcTemplate -> jdbcTemplate.query(sql, orderRowMapper, args.toArray())), NEWEST_FIRST, limit);
+    }
+    
+    /**
+     * Builds a newest-first range query. created_year is the partition key, so it is
+     * derived from [from, to) and added next to the created_at bounds; MySQL cannot
+     * prune partitions from the created_at predicate alone.
+     */
+    private static String rangeSql(String filter, CursorCodec.Position after, List<Object> args,
+                                   Object filterValue, LocalDateTime from, LocalDateTime to) {
+        StringBuilder sql = new StringBuilder("SELECT " + HEADER_COLUMNS + " FROM orders WHERE ");
+        if (filter != null) {
+            sql.append(filter).append(" AND ");
+            args.add(filterValue);
+        }
+        sql.append("created_year BETWEEN ? AND ? AND created_at >= ? AND created_at < ?");
+        args.add(from.getYear());
+        args.add(to.minusNanos(1).getYear());
+        args.add(Timestamp.valueOf(from));
+        args.add(Timestamp.valueOf(to));
+        if (after != null) {
+            Timestamp createdAt = Timestamp.valueOf(after.getCreatedAt());
+            sql.append(" AND (created_at < ? OR (created_at = ? AND id < ?))");
+            args.add(createdAt);
+            args.add(createdAt);
+            args.add(after.getLongId());
+        }
+        return sql.append(" ORDER BY created_at DESC, id DESC").toString();
+    }
+    
+    /**
+     * One keyset page of orders with the given status across ALL shards. The cursor is the
+     * last row of the previous page; (created_at, id) orders rows the same way on every shard,
+     * so each shard seeks past it and the cursor stays valid when buckets move between shards.
+     * A shard that does not answer fails the page instead of being skipped, since the cursor
+     * would otherwise move past that shard's rows.
+     */
+    public CursorPage<Order> findByStatusPage(String status, String cursor, int size) {
+        CursorCodec.Position after = CursorCodec.decode(cursor);
+        if (cursor != null && !cursor.isBlank() && after == null) {
+            // Per-shard cursors from before the format change
+            throw new InvalidCursorException("Cursor is no longer valid; start from the first page", null);
+        }
         
-        public int getShardIndex() { return shardIndex; }
-        public void setShardIndex(int shardIndex) { this.shardIndex = shardIndex; }
+        ScatterGatherResult<Order> result = scatterGatherExecutor.query(allShards(), shardIndex -> {
+            if (after == null) {
+                String sql = "SELECT " + HEADER_COLUMNS + " FROM orders WHERE status = ? ORDER BY created_at DESC, id DESC LIMIT ?";
+                return replicaRouter.read(shardIndex, null,
+                                          jdbcTemplate -> jdbcTemplate.query(sql, orderRowMapper, status, size + 1));
+            }
+            String sql = "SELECT " + HEADER_COLUMNS + " FROM orders WHERE status = ? " +
+                         "AND (created_at < ? OR (created_at = ? AND id < ?)) " +
+                         "ORDER BY created_at DESC, id DESC LIMIT ?";
+            Timestamp createdAt = Timestamp.valueOf(after.getCreatedAt());
+            return replicaRouter.read(shardIndex, null, jdbcTemplate -> jdbcTemplate.query(
+                sql, orderRowMapper, status, createdAt, createdAt, after.getLongId(), size + 1));
+        }, NEWEST_FIRST, size + 1);
         
-        public String getDatabaseName() { return databaseName; }
-        public void setDatabaseName(String databaseName) { this.databaseName = databaseName; }
+        if (result.isPartial()) {
+            int shard = result.getFailedShards().iterator().next();
+            throw new ShardUnavailableException(shard, "no answer for this page from shards "
+                                                       + result.getFailedShards() + "; retry with the same cursor");
+        }
         
-        public long getOrderCount() { return orderCount; }
-        public void setOrderCount(long orderCount) { this.orderCount = orderCount; }
+        List<Order> rows = result.getRows();
+        boolean hasMore = rows.size() > size;
+        List<Order> page = hasMore ? rows.subList(0, size) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            Order last = page.get(page.size() - 1);
+            nextCursor = CursorCodec.encode(new CursorCodec.Position(last.getCreatedAt(), last.getId().toString()));
+        }
+        return new CursorPage<>(page, nextCursor, hasMore);
+    }
+    
+    private List<Integer> allShards() {
+        return IntStream.range(0, shardingConfig.getNumShards()).boxed().collect(Collectors.toList());
     }
 }
@@ -0,0 +1,15 @@
+package com.ordering.orderservice.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * The expected version sent with a status update is not a number.
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidVersionException extends RuntimeException {
+    
+    public InvalidVersionException(String version) {
+        super("Invalid order version: " + version);
+    }
+}
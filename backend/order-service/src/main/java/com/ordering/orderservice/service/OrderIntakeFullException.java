@@ -0,0 +1,23 @@
+package com.ordering.orderservice.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * The asynchronous intake already holds as many uncommitted orders as it may; the client
+ * should retry after {@link #getRetryAfterSeconds()}.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class OrderIntakeFullException extends RuntimeException {
+    
+    private final long retryAfterSeconds;
+    
+    public OrderIntakeFullException(int capacity, long retryAfterSeconds) {
+        super("Order intake is full (" + capacity + " orders waiting); retry in " + retryAfterSeconds + "s");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+    
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,343 @@
+package com.ordering.orderservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ordering.common.dto.OrderIntakeStatus;
+import com.ordering.common.model.Cart;
+import com.ordering.common.model.CartItem;
+import com.ordering.orderservice.client.CartClient;
+import com.ordering.orderservice.config.ShardingConfig;
+import com.ordering.orderservice.config.WorkerThreads;
+import com.ordering.orderservice.entity.OrderIntake;
+import com.ordering.orderservice.repository.OrderIntakeRepository;
+import com.ordering.orderservice.sharding.ShardUnavailableException;
+import feign.FeignException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous order intake. {@link #submit} validates the cart the way the synchronous path
+ * does, reserves the order ID and writes the request with that cart to {@code order_intake};
+ * a worker pool then creates the order through {@link OrderService} and clears the cart, so
+ * both modes store orders in the same place. At most {@code order-intake.capacity} accepted
+ * orders wait per instance; beyond that requests are turned away rather than queued, so a
+ * burst cannot grow the backlog without bound.
+ * <p>
+ * A transient failure (database, cart service) puts the row back with an exponential backoff
+ * from {@code order-intake.retry-backoff-ms}, and this instance retries it when it is due.
+ * Rows a worker never finished (the instance died) are picked up again by {@link #recover}.
+ * The order is inserted under its reserved ID, so a retried row never creates a second
+ * order; it only clears the cart if that is still outstanding.
+ */
+@Service
+@Slf4j
+public class OrderIntakeService implements MeterBinder {
+    
+    @Autowired
+    private OrderService orderService;
+    
+    @Autowired
+    private CartClient cartClient;
+    
+    @Autowired
+    private OrderIntakeRepository intakeRepository;
+    
+    @Autowired
+    private ShardingConfig shardingConfig;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private WorkerThreads workerThreads;
+    
+    @Value("${order-intake.capacity:1000}")
+    private int capacity;
+    
+    @Value("${order-intake.workers:8}")
+    private int workerCount;
+    
+    @Value("${order-intake.max-attempts:5}")
+    private int maxAttempts;
+    
+    // Delay before the second attempt; doubles with every further one, up to retry-max-backoff-ms
+    @Value("${order-intake.retry-backoff-ms:500}")
+    private long retryBackoffMs;
+    
+    @Value("${order-intake.retry-max-backoff-ms:10000}")
+    private long retryMaxBackoffMs;
+    
+    // A claim, or a pending row overdue, untouched for this long is taken over by recovery
+    @Value("${order-intake.stale-after-ms:30000}")
+    private long staleAfterMs;
+    
+    @Value("${order-intake.retention-ms:86400000}")
+    private long retentionMs;
+    
+    @Value("${order-intake.retry-after-seconds:2}")
+    private long retryAfterSeconds;
+    
+    private Semaphore slots;
+    private ExecutorService workers;
+    private ScheduledExecutorService retries;
+    private Counter accepted;
+    private Counter rejected;
+    private Counter retried;
+    private Counter committed;
+    private Counter failed;
+    private Timer commitLatency;
+    
+    @PostConstruct
+    public void init() {
+        slots = new Semaphore(capacity);
+        ThreadFactory threads = workerThreads.factory("order-intake");
+        // Virtual threads are cheap enough for one per accepted order; capacity still bounds them
+        workers = workerThreads.isVirtual()
+            ? Executors.newCachedThreadPool(threads)
+            : Executors.newFixedThreadPool(workerCount, threads);
+        retries = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "order-intake-retry");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+    
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Orders not started yet, or waiting for a retry, stay PENDING in order_intake and are recovered later
+        retries.shutdownNow();
+        workers.shutdown();
+        if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+            workers.shutdownNow();
+        }
+    }
+    
+    /**
+     * Accept an order for background commit. The cart is read and checked here, so a request
+     * that would fail synchronously is rejected before 202; the worker commits this snapshot.
+     */
+    public OrderIntakeStatus submit(Long userId, String paymentMethod, String deliveryAddress) {
+        Cart cart = orderService.getValidCart(userId);
+        if (!slots.tryAcquire()) {
+            rejected.increment();
+            throw new OrderIntakeFullException(capacity, retryAfterSeconds);
+        }
+        
+        OrderIntake intake = new OrderIntake();
+        try {
+            intake.setOrderId(orderService.reserveOrderId(userId));
+            intake.setUserId(userId);
+            intake.setPaymentMethod(paymentMethod);
+            intake.setDeliveryAddress(deliveryAddress);
+            intake.setItems(objectMapper.writeValueAsString(cart.getItems()));
+            intake.setTotalAmount(cart.getTotalAmount());
+            intake.setStatus(OrderIntake.PENDING);
+            intake.setCreatedAt(LocalDateTime.now());
+            intake.setUpdatedAt(intake.getCreatedAt());
+            intakeRepository.insert(intake);
+        } catch (JsonProcessingException e) {
+            slots.release();
+            throw new RuntimeException("Failed to serialize items");
+        } catch (RuntimeException e) {
+            slots.release();
+            throw e;
+        }
+        
+        accepted.increment();
+        dispatch(intake.getOrderId());
+        return toStatus(intake);
+    }
+    
+    public OrderIntakeStatus getStatus(Long orderId) {
+        OrderIntake intake = intakeRepository.find(orderId);
+        if (intake == null) {
+            throw new RuntimeException("Order intake not found");
+        }
+        return toStatus(intake);
+    }
+    
+    /**
+     * Re-queue rows that no worker is on and drop finished rows past retention
+     */
+    @Scheduled(fixedDelayString = "${order-intake.recovery-interval-ms:10000}")
+    public void recover() {
+        if (!shardingConfig.getGuardedDataSource(0).getGuard().isAvailable()) {
+            return;
+        }
+        try {
+            intakeRepository.purgeFinished(retentionMs, 1000);
+            int free = slots.availablePermits();
+            if (free == 0) {
+                return;
+            }
+            List<OrderIntake> stale = intakeRepository.findStale(staleAfterMs, free);
+            for (OrderIntake intake : stale) {
+                if (!slots.tryAcquire()) {
+                    return;
+                }
+                dispatch(intake.getOrderId());
+            }
+            if (!stale.isEmpty()) {
+                log.info("Recovered {} order intake rows", stale.size());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Order intake recovery failed", e);
+        }
+    }
+    
+    /**
+     * Hand a row to the workers; the caller holds a slot, which the worker releases
+     */
+    private void dispatch(Long orderId) {
+        try {
+            workers.execute(() -> process(orderId));
+        } catch (RejectedExecutionException e) {
+            // Shutting down; the row stays PENDING for recovery
+            slots.release();
+        }
+    }
+    
+    private void process(Long orderId) {
+        boolean rescheduled = false;
+        try {
+            // Another worker (here or on another instance) may have taken it already
+            if (intakeRepository.claim(orderId, staleAfterMs)) {
+                rescheduled = commit(intakeRepository.find(orderId));
+            }
+        } catch (RuntimeException e) {
+            log.error("Order intake {} could not be processed", orderId, e);
+        } finally {
+            if (!rescheduled) {
+                slots.release();
+            }
+        }
+    }
+    
+    /**
+     * @return true if the row was put back for a retry, which keeps its slot
+     */
+    private boolean commit(OrderIntake intake) {
+        Long orderId = intake.getOrderId();
+        boolean created = false;
+        try {
+            // An earlier attempt may have created the order and then failed to clear the cart
+            created = orderService.orderExists(orderId);
+            if (!created) {
+                createOrder(intake);
+                created = true;
+            }
+            cartClient.clearCart(intake.getUserId());
+        } catch (RuntimeException e) {
+            return fail(intake, created, e);
+        }
+        
+        intakeRepository.finish(orderId, OrderIntake.COMMITTED, null);
+        committed.increment();
+        commitLatency.record(Duration.between(intake.getCreatedAt(), LocalDateTime.now()));
+        return false;
+    }
+    
+    private void createOrder(OrderIntake intake) {
+        Cart cart = new Cart();
+        cart.setUserId(intake.getUserId());
+        try {
+            cart.setItems(objectMapper.readValue(intake.getItems(), new TypeReference<List<CartItem>>() { }));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Unreadable items for order " + intake.getOrderId());
+        }
+        cart.setTotalAmount(intake.getTotalAmount());
+        try {
+            orderService.createOrderForIntake(intake.getOrderId(), intake.getUserId(), cart,
+                                              intake.getPaymentMethod(), intake.getDeliveryAddress());
+        } catch (DataIntegrityViolationException e) {
+            // A worker that took over this row as stale inserted it first
+            if (!orderService.orderExists(intake.getOrderId())) {
+                throw e;
+            }
+        }
+    }
+    
+    private boolean fail(OrderIntake intake, boolean created, RuntimeException e) {
+        Long orderId = intake.getOrderId();
+        if (isTransient(e) && intake.getAttempts() < maxAttempts) {
+            long delayMs = backoffMs(intake.getAttempts());
+            intakeRepository.retryLater(orderId, e.getMessage(), delayMs);
+            retried.increment();
+            log.warn("Order intake {} failed attempt {}, retrying in {} ms", orderId, intake.getAttempts(), delayMs, e);
+            try {
+                retries.schedule(() -> dispatch(orderId), delayMs, TimeUnit.MILLISECONDS);
+                return true;
+            } catch (RejectedExecutionException rejected) {
+                // Shutting down; recovery picks the row up once it is overdue
+                return false;
+            }
+        }
+        if (created) {
+            // The order exists; only the cart clear is still failing
+            intakeRepository.finish(orderId, OrderIntake.COMMITTED, "Cart not cleared: " + e.getMessage());
+            committed.increment();
+            log.error("Order intake committed order {} but could not clear the cart", orderId, e);
+        } else {
+            intakeRepository.finish(orderId, OrderIntake.FAILED, e.getMessage());
+            failed.increment();
+            log.error("Order intake {} failed", orderId, e);
+        }
+        return false;
+    }
+    
+    private long backoffMs(int attempts) {
+        long delay = retryBackoffMs << Math.min(Math.max(attempts - 1, 0), 20);
+        return Math.min(delay, retryMaxBackoffMs);
+    }
+    
+    /**
+     * Infrastructure failures are retried; anything else (e.g. an empty cart) will fail the same way again
+     */
+    private static boolean isTransient(RuntimeException e) {
+        return e instanceof DataAccessException || e instanceof FeignException || e instanceof ShardUnavailableException;
+    }
+    
+    private OrderIntakeStatus toStatus(OrderIntake intake) {
+        boolean done = OrderIntake.COMMITTED.equals(intake.getStatus());
+        return new OrderIntakeStatus(intake.getOrderId(), intake.getUserId(), intake.getStatus(), intake.getError(),
+                                     intake.getAttempts(), intake.getCreatedAt(), intake.getUpdatedAt(),
+                                     "/api/orders/intake/" + intake.getOrderId(),
+                                     done ? "/api/orders/" + intake.getOrderId() : null);
+    }
+    
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        accepted = Counter.builder("order.intake.accepted").register(registry);
+        rejected = Counter.builder("order.intake.rejected").register(registry);
+        retried = Counter.builder("order.intake.retried").register(registry);
+        committed = Counter.builder("order.intake.committed").register(registry);
+        failed = Counter.builder("order.intake.failed").register(registry);
+        commitLatency = Timer.builder("order.intake.commit.latency").register(registry);
+        Gauge.builder("order.intake.queued", this, service -> service.capacity - service.slots.availablePermits())
+             .register(registry);
+    }
+}
@@ -1,12 +1,21 @@
 package com.ordering.orderservice.service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ordering.common.model.Cart;
+import com.ordering.common.model.CartItem;
+import com.ordering.common.dto.CursorPage;
 import com.ordering.common.dto.OrderDTO;
+import com.ordering.common.util.CursorCodec;
+import com.ordering.common.util.SnowflakeIdGenerator;
 import com.ordering.orderservice.client.CartClient;
 import com.ordering.orderservice.entity.Order;
+import com.ordering.orderservice.entity.OrderStatus;
+import com.ordering.orderservice.outbox.OutboxPublisher;
 import com.ordering.orderservice.repository.OrderRepository;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import com.ordering.orderservice.repository.OutboxRepository;
+import com.ordering.orderservice.sharding.ShardRouter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
@@ -16,17 +25,77 @@ import java.util.stream.Collectors;
 public class OrderService {
     @Autowired private OrderRepository orderRepository;
     @Autowired private CartClient cartClient;
-    @Autowired private RabbitTemplate rabbitTemplate;
+    @Autowired private OutboxRepository outboxRepository;
+    @Autowired private SnowflakeIdGenerator orderIdGenerator;
+    @Autowired private ShardRouter shardRouter;
     @Autowired private ObjectMapper objectMapper;
     
+    private static final int MAX_PAGE_SIZE = 100;
+    
     @Transactional
     public OrderDTO createOrder(Long userId, String paymentMethod, String deliveryAddress) {
+        Cart cart = getValidCart(userId);
+        Order saved = insert(reserveOrderId(userId), userId, cart, paymentMethod, deliveryAddress);
+        cartClient.clearCart(userId);
+        return convertToDTO(saved);
+    }
+    
+    /**
+     * A new order ID carrying the user's routing bucket. The async intake hands it to the
+     * client when it accepts the request, before the order exists.
+     */
+    public Long reserveOrderId(Long userId) {
+        return orderIdGenerator.nextId(shardRouter.getBucket(userId));
+    }
+    
+    /**
+     * The user's cart, checked the way every order path checks it before creating an order
+     */
+    public Cart getValidCart(Long userId) {
+        if (userId == null) {
+            throw new RuntimeException("userId is required");
+        }
         Cart cart = cartClient.getCart(userId).getData();
-        if (cart == null || cart.getItems().isEmpty()) {
+        if (cart == null || cart.getItems() == null || cart.getItems().isEmpty()) {
             throw new RuntimeException("Cart is empty");
         }
-        
+        for (CartItem item : cart.getItems()) {
+            if (item.getMenuItemId() == null) {
+                throw new RuntimeException("Cart item without a menu item");
+            }
+            if (item.getQuantity() == null || item.getQuantity() < 1) {
+                throw new RuntimeException("Quantity of menu item " + item.getMenuItemId() + " must be at least 1");
+            }
+            if (item.getPrice() == null || item.getPrice().signum() < 0) {
+                throw new RuntimeException("Price of menu item " + item.getMenuItemId() + " must be zero or more");
+            }
+        }
+        if (cart.getTotalAmount() == null || cart.getTotalAmount().signum() < 0) {
+            throw new RuntimeException("Cart total must be zero or more");
+        }
+        return cart;
+    }
+    
+    /**
+     * Create the order for an async intake row under the ID reserved when it was accepted,
+     * from the cart as it was validated then. The cart is left for the caller to clear once
+     * this has committed.
+     *
+     * @throws DataIntegrityViolationException if an earlier attempt already created the order
+     */
+    @Transactional
+    public OrderDTO createOrderForIntake(Long orderId, Long userId, Cart cart, String paymentMethod,
+                                         String deliveryAddress) {
+        return convertToDTO(insert(orderId, userId, cart, paymentMethod, deliveryAddress));
+    }
+    
+    public boolean orderExists(Long orderId) {
+        return orderRepository.existsById(orderId);
+    }
+    
+    private Order insert(Long orderId, Long userId, Cart cart, String paymentMethod, String deliveryAddress) {
         Order order = new Order();
+        order.setId(orderId);
         order.setUserId(userId);
         order.setTotalAmount(cart.getTotalAmount());
         order.setPaymentMethod(paymentMethod);
@@ -39,12 +108,13 @@ public class OrderService {
             throw new RuntimeException("Failed to serialize items");
         }
         
+        // A new entity (its version is still null), so this is an INSERT even with the ID set
         Order saved = orderRepository.save(order);
-        cartClient.clearCart(userId);
         
-        rabbitTemplate.convertAndSend("order-exchange", "order.created", saved.getId());
+        // Published by the outbox relay once this transaction commits
+        outboxRepository.append(OutboxPublisher.ORDER_CREATED, saved.getId());
         
-        return convertToDTO(saved);
+        return saved;
     }
     
     public OrderDTO getOrderById(Long id) {
@@ -59,31 +129,80 @@ public class OrderService {
             .collect(Collectors.toList());
     }
     
+    public CursorPage<OrderDTO> getOrdersByUserId(Long userId, String cursor, int requestedSize) {
+        int size = Math.min(Math.max(requestedSize, 1), MAX_PAGE_SIZE);
+        CursorCodec.Position after = CursorCodec.decode(cursor);
+        Pageable pageable = Pageable.ofSize(size + 1);
+        List<Order> orders = after == null
+            ? orderRepository.findByUserIdOrderByCreatedAtDescIdDesc(userId, pageable)
+            : orderRepository.findByUserIdBefore(userId, after.getCreatedAt(), after.getLongId(), pageable);
+        
+        boolean hasMore = orders.size() > size;
+        List<Order> page = hasMore ? orders.subList(0, size) : orders;
+        String nextCursor = null;
+        if (hasMore) {
+            Order last = page.get(page.size() - 1);
+            nextCursor = CursorCodec.encode(new CursorCodec.Position(last.getCreatedAt(), last.getId().toString()));
+        }
+        return new CursorPage<>(page, nextCursor, hasMore).map(this::convertToDTO);
+    }
+    
+    /**
+     * A user's orders created in [from, to), newest first, at most {@code requestedSize}.
+     */
+    public List<OrderDTO> getOrdersByUserId(Long userId, LocalDateTime from, LocalDateTime to, int requestedSize) {
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new RuntimeException("from must be before to");
+        }
+        int size = Math.min(Math.max(requestedSize, 1), MAX_PAGE_SIZE);
+        return orderRepository.findByUserIdInRange(userId, from.getYear(), to.minusNanos(1).getYear(),
+                                                   from, to, Pageable.ofSize(size)).stream()
+            .map(this::convertToDTO)
+            .collect(Collectors.toList());
+    }
+    
     @Transactional
     public OrderDTO processPayment(Long orderId) {
-        Order order = orderRepository.findById(orderId)
-            .orElseThrow(() -> new RuntimeException("Order not found"));
+        OrderDTO paid = transition(orderId, OrderStatus.PENDING, OrderStatus.PAID, null);
         
-        order.setStatus("PAID");
-        order.setUpdatedAt(LocalDateTime.now());
-        Order updated = orderRepository.save(order);
+        outboxRepository.append(OutboxPublisher.ORDER_PAYMENT, orderId);
+        outboxRepository.append(OutboxPublisher.ORDER_NOTIFICATION, orderId);
         
-        rabbitTemplate.convertAndSend("order-exchange", "order.payment", orderId);
-        rabbitTemplate.convertAndSend("order-exchange", "order.notification", orderId);
-        
-        return convertToDTO(updated);
+        return paid;
     }
     
     @Transactional
     public OrderDTO updateOrderStatus(Long orderId, String status) {
-        Order order = orderRepository.findById(orderId)
-            .orElseThrow(() -> new RuntimeException("Order not found"));
+        return updateOrderStatus(orderId, status, null);
+    }
+    
+    @Transactional
+    public OrderDTO updateOrderStatus(Long orderId, String status, Long expectedVersion) {
+        return transition(orderId, null, OrderStatus.parse(status), expectedVersion);
+    }
+    
+    /**
+     * Move an order to {@code to} with one conditional UPDATE, enforcing the status machine
+     * and, if given, the expected version. Only a rejected move costs a second query, to
+     * report why. The updated order is read back, so the result is complete and carries the
+     * new version.
+     */
+    @Transactional
+    public OrderDTO transition(Long orderId, OrderStatus from, OrderStatus to, Long expectedVersion) {
+        List<String> allowed = OrderStatus.allowedFrom(from, to);
+        if (allowed.isEmpty()) {
+            throw new OrderStateConflictException("Order " + orderId + " cannot move from " + from + " to " + to);
+        }
         
-        order.setStatus(status);
-        order.setUpdatedAt(LocalDateTime.now());
-        Order updated = orderRepository.save(order);
+        int updated = orderRepository.transition(orderId, allowed, to.name(), expectedVersion, LocalDateTime.now());
+        if (updated == 0) {
+            throw OrderStateConflictException.rejected(orderRepository.findById(orderId).orElse(null), to, expectedVersion);
+        }
         
-        return convertToDTO(updated);
+        // The update cleared the persistence context, so this reads the row as written
+        return orderRepository.findById(orderId)
+            .map(this::convertToDTO)
+            .orElseThrow(() -> new RuntimeException("Order not found"));
     }
     
     private OrderDTO convertToDTO(Order order) {
@@ -95,6 +214,8 @@ public class OrderService {
         dto.setPaymentMethod(order.getPaymentMethod());
         dto.setDeliveryAddress(order.getDeliveryAddress());
         dto.setCreatedAt(order.getCreatedAt());
+        dto.setVersion(order.getVersion());
+        dto.setItemsJson(order.getItems());
         return dto;
     }
 }
@@ -3,12 +3,16 @@ package com.ordering.orderservice.service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ordering.common.model.Cart;
 import com.ordering.common.dto.OrderDTO;
+import com.ordering.common.util.SnowflakeIdGenerator;
 import com.ordering.orderservice.client.CartClient;
 import com.ordering.orderservice.entity.Order;
+import com.ordering.orderservice.entity.OrderStatus;
+import com.ordering.orderservice.outbox.OutboxPublisher;
 import com.ordering.orderservice.repository.OrderRepository;
+import com.ordering.orderservice.repository.OutboxRepository;
+import com.ordering.orderservice.sharding.ShardRouter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Profile;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -16,8 +20,6 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
-import static com.ordering.orderservice.config.KafkaConfig.*;
-
 @Service
 @Profile("kafka")
 public class OrderServiceKafka {
@@ -29,11 +31,17 @@ public class OrderServiceKafka {
     private CartClient cartClient;
     
     @Autowired
-    private KafkaTemplate<String, String> kafkaTemplate;
+    private OutboxRepository outboxRepository;
     
     @Autowired
     private ObjectMapper objectMapper;
     
+    @Autowired
+    private SnowflakeIdGenerator orderIdGenerator;
+    
+    @Autowired
+    private ShardRouter shardRouter;
+    
     @Transactional
     public OrderDTO createOrder(Long userId, String paymentMethod, String deliveryAddress) {
         Cart cart = cartClient.getCart(userId).getData();
@@ -42,6 +50,7 @@ public class OrderServiceKafka {
         }
         
         Order order = new Order();
+        order.setId(orderIdGenerator.nextId(shardRouter.getBucket(userId)));
         order.setUserId(userId);
         order.setTotalAmount(cart.getTotalAmount());
         order.setPaymentMethod(paymentMethod);
@@ -57,8 +66,8 @@ public class OrderServiceKafka {
         Order saved = orderRepository.save(order);
         cartClient.clearCart(userId);
         
-        // Send to Kafka topic
-        kafkaTemplate.send(ORDER_CREATED_TOPIC, saved.getId().toString());
+        // Sent to the order-created topic by the outbox relay once this transaction commits
+        outboxRepository.append(OutboxPublisher.ORDER_CREATED, saved.getId());
         
         return convertToDTO(saved);
     }
@@ -77,32 +86,46 @@ public class OrderServiceKafka {
     
     @Transactional
     public OrderDTO processPayment(Long orderId) {
-        Order order = orderRepository.findById(orderId)
-            .orElseThrow(() -> new RuntimeException("Order not found"));
-        
-        order.setStatus("PAID");
-        order.setUpdatedAt(LocalDateTime.now());
-        Order updated = orderRepository.save(order);
-        
-        // Send payment event to Kafka
-        kafkaTemplate.send(ORDER_PAYMENT_TOPIC, orderId.toString());
+        OrderDTO paid = transition(orderId, OrderStatus.PENDING, OrderStatus.PAID, null);
         
-        // Send notification event to Kafka
-        kafkaTemplate.send(ORDER_NOTIFICATION_TOPIC, orderId.toString());
+        outboxRepository.append(OutboxPublisher.ORDER_PAYMENT, orderId);
+        outboxRepository.append(OutboxPublisher.ORDER_NOTIFICATION, orderId);
         
-        return convertToDTO(updated);
+        return paid;
     }
     
     @Transactional
     public OrderDTO updateOrderStatus(Long orderId, String status) {
-        Order order = orderRepository.findById(orderId)
-            .orElseThrow(() -> new RuntimeException("Order not found"));
+        return updateOrderStatus(orderId, status, null);
+    }
+    
+    @Transactional
+    public OrderDTO updateOrderStatus(Long orderId, String status, Long expectedVersion) {
+        return transition(orderId, null, OrderStatus.parse(status), expectedVersion);
+    }
+    
+    /**
+     * Move an order to {@code to} with one conditional UPDATE, enforcing the status machine
+     * and, if given, the expected version. Only a rejected move costs a second query, to
+     * report why. The updated order is read back, so the result is complete and carries the
+     * new version.
+     */
+    @Transactional
+    public OrderDTO transition(Long orderId, OrderStatus from, OrderStatus to, Long expectedVersion) {
+        List<String> allowed = OrderStatus.allowedFrom(from, to);
+        if (allowed.isEmpty()) {
+            throw new OrderStateConflictException("Order " + orderId + " cannot move from " + from + " to " + to);
+        }
         
-        order.setStatus(status);
-        order.setUpdatedAt(LocalDateTime.now());
-        Order updated = orderRepository.save(order);
+        int updated = orderRepository.transition(orderId, allowed, to.name(), expectedVersion, LocalDateTime.now());
+        if (updated == 0) {
+            throw OrderStateConflictException.rejected(orderRepository.findById(orderId).orElse(null), to, expectedVersion);
+        }
         
-        return convertToDTO(updated);
+        // The update cleared the persistence context, so this reads the row as written
+        return orderRepository.findById(orderId)
+            .map(this::convertToDTO)
+            .orElseThrow(() -> new RuntimeException("Order not found"));
     }
     
     private OrderDTO convertToDTO(Order order) {
@@ -114,6 +137,8 @@ public class OrderServiceKafka {
         dto.setPaymentMethod(order.getPaymentMethod());
         dto.setDeliveryAddress(order.getDeliveryAddress());
         dto.setCreatedAt(order.getCreatedAt());
+        dto.setVersion(order.getVersion());
+        dto.setItemsJson(order.getItems());
         return dto;
     }
 }
@@ -0,0 +1,33 @@
+package com.ordering.orderservice.service;
+
+import com.ordering.orderservice.entity.Order;
+import com.ordering.orderservice.entity.OrderStatus;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * A conditional status update matched no row: the move is not allowed from the order's
+ * current status, or someone else changed the order first.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class OrderStateConflictException extends RuntimeException {
+    
+    public OrderStateConflictException(String message) {
+        super(message);
+    }
+    
+    /**
+     * Explain why a transition did not apply, given the order as it is now (null if it does not exist).
+     */
+    public static RuntimeException rejected(Order current, OrderStatus to, Long expectedVersion) {
+        if (current == null) {
+            return new RuntimeException("Order not found");
+        }
+        if (expectedVersion != null && !expectedVersion.equals(current.getVersion())) {
+            return new OrderStateConflictException("Order " + current.getId() + " was modified: expected version "
+                + expectedVersion + ", found " + current.getVersion());
+        }
+        return new OrderStateConflictException("Order " + current.getId() + " cannot move from "
+            + current.getStatus() + " to " + to);
+    }
+}
@@ -1,17 +1,28 @@
 package com.ordering.orderservice.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ordering.common.model.Cart;
+import com.ordering.common.model.CartItem;
+import com.ordering.common.dto.BulkOrderResult;
+import com.ordering.common.dto.CartItemDTO;
+import com.ordering.common.dto.CursorPage;
 import com.ordering.common.dto.OrderDTO;
+import com.ordering.common.util.CursorCodec;
 import com.ordering.orderservice.client.CartClient;
 import com.ordering.orderservice.entity.Order;
+import com.ordering.orderservice.entity.OrderStatus;
+import com.ordering.orderservice.outbox.OutboxPublisher;
 import com.ordering.orderservice.repository.ShardedOrderRepository;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import com.ordering.orderservice.sharding.ScatterGatherResult;
+import com.ordering.orderservice.sharding.ShardStatsSnapshot;
+import com.ordering.orderservice.sharding.ShardStatsTracker;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -25,10 +36,15 @@ public class ShardedOrderService {
     private CartClient cartClient;
     
     @Autowired
-    private RabbitTemplate rabbitTemplate;
+    private ShardStatsTracker shardStatsTracker;
     
-    @Autowired
-    private ObjectMapper objectMapper;
+    private static final int MAX_PAGE_SIZE = 100;
+    
+    // Cap on cross-shard top-N queries; every shard returns up to this many rows for the merge
+    private static final int MAX_RESULT_LIMIT = 500;
+    
+    @Value("${sharding.bulk.max-orders:5000}")
+    private int maxBulkOrders;
     
     @Transactional
     public OrderDTO createOrder(Long userId, String paymentMethod, String deliveryAddress) {
@@ -45,27 +61,107 @@ public class ShardedOrderService {
         order.setStatus("PENDING");
         order.setCreatedAt(LocalDateTime.now());
         order.setUpdatedAt(LocalDateTime.now());
+        // Written to order_items in the same shard transaction as the order
+        order.setLineItems(cart.getItems());
         
-        try {
-            order.setItems(objectMapper.writeValueAsString(cart.getItems()));
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to serialize items");
-        }
-        
-        // Save to appropriate shard based on userId
+        // Save to appropriate shard based on userId; order.created goes to that shard's outbox with it
         Order saved = shardedOrderRepository.save(order);
         cartClient.clearCart(userId);
         
-        rabbitTemplate.convertAndSend("order-exchange", "order.created", saved.getId());
-        
         return convertToDTO(saved);
     }
     
+    /**
+     * Ingest already-priced orders from partner channels or POS replay. Unlike
+     * {@link #createOrder} nothing is read from the cart; each order is validated on its
+     * own and the rest are written in per-shard batches. {@code createdAt} is always the
+     * time of ingestion; a client-supplied one is ignored.
+     */
+    public List<BulkOrderResult> createOrders(List<OrderDTO> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new RuntimeException("No orders in request");
+        }
+        if (requests.size() > maxBulkOrders) {
+            throw new RuntimeException("At most " + maxBulkOrders + " orders per request");
+        }
+        
+        BulkOrderResult[] results = new BulkOrderResult[requests.size()];
+        List<Order> orders = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        
+        for (int i = 0; i < requests.size(); i++) {
+            OrderDTO request = requests.get(i);
+            String error = validate(request);
+            if (error != null) {
+                results[i] = BulkOrderResult.failed(i, error);
+                continue;
+            }
+            
+            Order order = new Order();
+            order.setUserId(request.getUserId());
+            order.setTotalAmount(request.getTotalAmount());
+            order.setPaymentMethod(request.getPaymentMethod());
+            order.setDeliveryAddress(request.getDeliveryAddress());
+            order.setStatus(request.getStatus() != null ? OrderStatus.parse(request.getStatus()).name() : "PENDING");
+            // Always ours: created_at drives the yearly partitions and the stats
+            order.setCreatedAt(now);
+            order.setUpdatedAt(now);
+            order.setLineItems(toCartItems(request.getItems()));
+            orders.add(order);
+            positions.add(i);
+        }
+        
+        if (!orders.isEmpty()) {
+            List<String> errors = shardedOrderRepository.insertAll(orders);
+            for (int j = 0; j < orders.size(); j++) {
+                int i = positions.get(j);
+                if (errors.get(j) == null) {
+                    results[i] = BulkOrderResult.created(i, orders.get(j).getId());
+                } else {
+                    results[i] = BulkOrderResult.failed(i, errors.get(j));
+                }
+            }
+        }
+        
+        return List.of(results);
+    }
+    
+    private String validate(OrderDTO request) {
+        if (request == null || request.getUserId() == null) {
+            return "userId is required";
+        }
+        if (request.getItems() == null || request.getItems().isEmpty()) {
+            return "items are required";
+        }
+        if (request.getTotalAmount() == null || request.getTotalAmount().compareTo(BigDecimal.ZERO) < 0) {
+            return "totalAmount must be zero or more";
+        }
+        if (request.getStatus() != null) {
+            try {
+                OrderStatus.parse(request.getStatus());
+            } catch (RuntimeException e) {
+                return e.getMessage();
+            }
+        }
+        return null;
+    }
+    
+    public OrderDTO getOrderById(Long orderId) {
+        Order order = shardedOrderRepository.findById(orderId);
+        if (order == null) {
+            throw new RuntimeException("Order not found");
+        }
+        shardedOrderRepository.loadItems(List.of(order));
+        return convertToDTO(order);
+    }
+    
     public OrderDTO getOrderById(Long orderId, Long userId) {
         Order order = shardedOrderRepository.findByIdAndUserId(orderId, userId);
         if (order == null) {
             throw new RuntimeException("Order not found");
         }
+        shardedOrderRepository.loadItems(List.of(order));
         return convertToDTO(order);
     }
     
@@ -75,49 +171,152 @@ public class ShardedOrderService {
             .collect(Collectors.toList());
     }
     
-    public List<OrderDTO> getOrdersByStatus(String status) {
-        return shardedOrderRepository.findByStatus(status).stream()
+    public CursorPage<OrderDTO> getOrdersByUserId(Long userId, String cursor, int requestedSize, boolean includeItems) {
+        int size = Math.min(Math.max(requestedSize, 1), MAX_PAGE_SIZE);
+        List<Order> orders = shardedOrderRepository.findByUserIdPage(userId, CursorCodec.decode(cursor), size + 1);
+        
+        boolean hasMore = orders.size() > size;
+        List<Order> page = hasMore ? orders.subList(0, size) : orders;
+        String nextCursor = null;
+        if (hasMore) {
+            Order last = page.get(page.size() - 1);
+            nextCursor = CursorCodec.encode(new CursorCodec.Position(last.getCreatedAt(), last.getId().toString()));
+        }
+        withItems(page, includeItems);
+        return new CursorPage<>(page, nextCursor, hasMore).map(this::convertToDTO);
+    }
+    
+    public CursorPage<OrderDTO> getOrdersByStatus(String status, String cursor, int requestedSize, boolean includeItems) {
+        int size = Math.min(Math.max(requestedSize, 1), MAX_PAGE_SIZE);
+        CursorPage<Order> page = shardedOrderRepository.findByStatusPage(status, cursor, size);
+        withItems(page.getItems(), includeItems);
+        return page.map(this::convertToDTO);
+    }
+    
+    /**
+     * Newest orders with the given status across all shards, top-N pushed down to each shard.
+     */
+    public ScatterGatherResult<OrderDTO> getOrdersByStatus(String status, int limit, boolean includeItems) {
+        return toDTOs(shardedOrderRepository.findByStatus(status, clampLimit(limit)), includeItems);
+    }
+    
+    private static int clampLimit(int requested) {
+        return Math.min(Math.max(requested, 1), MAX_RESULT_LIMIT);
+    }
+    
+    /**
+     * A user's orders created in [from, to), one keyset page at a time.
+     */
+    public CursorPage<OrderDTO> getOrdersByUserId(Long userId, LocalDateTime from, LocalDateTime to,
+                                                  String cursor, int requestedSize, boolean includeItems) {
+        checkRange(from, to);
+        int size = Math.min(Math.max(requestedSize, 1), MAX_PAGE_SIZE);
+        List<Order> orders = shardedOrderRepository.findByUserIdInRange(userId, from, to, CursorCodec.decode(cursor), size + 1);
+        
+        boolean hasMore = orders.size() > size;
+        List<Order> page = hasMore ? orders.subList(0, size) : orders;
+        String nextCursor = null;
+        if (hasMore) {
+            Order last = page.get(page.size() - 1);
+            nextCursor = CursorCodec.encode(new CursorCodec.Position(last.getCreatedAt(), last.getId().toString()));
+        }
+        withItems(page, includeItems);
+        return new CursorPage<>(page, nextCursor, hasMore).map(this::convertToDTO);
+    }
+    
+    public ScatterGatherResult<OrderDTO> getOrdersByStatus(String status, LocalDateTime from, LocalDateTime to,
+                                                           int limit, boolean includeItems) {
+        checkRange(from, to);
+        return toDTOs(shardedOrderRepository.findByStatusInRange(status, from, to, clampLimit(limit)), includeItems);
+    }
+    
+    public ScatterGatherResult<OrderDTO> getOrdersInRange(LocalDateTime from, LocalDateTime to, int limit, boolean includeItems) {
+        checkRange(from, to);
+        return toDTOs(shardedOrderRepository.findInRange(from, to, clampLimit(limit)), includeItems);
+    }
+    
+    private void checkRange(LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new RuntimeException("from must be before to");
+        }
+    }
+    
+    /**
+     * List reads return order headers only; items cost one extra batched query per shard, so
+     * they are loaded only when the caller asks.
+     */
+    private void withItems(List<Order> page, boolean includeItems) {
+        if (includeItems && !page.isEmpty()) {
+            shardedOrderRepository.loadItems(page);
+        }
+    }
+    
+    private List<CartItem> toCartItems(List<CartItemDTO> items) {
+        return items.stream().map(dto -> {
+            CartItem item = new CartItem();
+            item.setMenuItemId(dto.getMenuItemId());
+            item.setName(dto.getName());
+            item.setPrice(dto.getPrice());
+            item.setQuantity(dto.getQuantity());
+            item.setSubtotal(dto.getSubtotal());
+            return item;
+        }).collect(Collectors.toList());
+    }
+    
+    private ScatterGatherResult<OrderDTO> toDTOs(ScatterGatherResult<Order> result, boolean includeItems) {
+        withItems(result.getRows(), includeItems);
+        List<OrderDTO> dtos = result.getRows().stream()
             .map(this::convertToDTO)
             .collect(Collectors.toList());
+        return new ScatterGatherResult<>(dtos, result.getFailedShards());
     }
     
     @Transactional
     public OrderDTO processPayment(Long orderId, Long userId) {
-        Order order = shardedOrderRepository.findByIdAndUserId(orderId, userId);
-        if (order == null) {
-            throw new RuntimeException("Order not found");
-        }
-        
-        order.setStatus("PAID");
-        order.setUpdatedAt(LocalDateTime.now());
-        Order updated = shardedOrderRepository.save(order);
-        
-        rabbitTemplate.convertAndSend("order-exchange", "order.payment", orderId);
-        rabbitTemplate.convertAndSend("order-exchange", "order.notification", orderId);
-        
-        return convertToDTO(updated);
+        return transition(orderId, userId, OrderStatus.PENDING, OrderStatus.PAID, null,
+                          List.of(OutboxPublisher.ORDER_PAYMENT, OutboxPublisher.ORDER_NOTIFICATION));
     }
     
     @Transactional
     public OrderDTO updateOrderStatus(Long orderId, Long userId, String status) {
-        Order order = shardedOrderRepository.findByIdAndUserId(orderId, userId);
-        if (order == null) {
-            throw new RuntimeException("Order not found");
+        return updateOrderStatus(orderId, userId, status, null);
+    }
+    
+    @Transactional
+    public OrderDTO updateOrderStatus(Long orderId, Long userId, String status, Long expectedVersion) {
+        return transition(orderId, userId, null, OrderStatus.parse(status), expectedVersion, List.of());
+    }
+    
+    /**
+     * One conditional UPDATE on the user's shard. A rejected move reads the order to report
+     * whether it is missing, stale or in the wrong status; an applied one reads the order
+     * header back from the primary, without line items, so the result carries the new version.
+     * {@code events} go to the shard's outbox in the same transaction as the update.
+     */
+    public OrderDTO transition(Long orderId, Long userId, OrderStatus from, OrderStatus to, Long expectedVersion,
+                               List<String> events) {
+        List<String> allowed = OrderStatus.allowedFrom(from, to);
+        if (allowed.isEmpty()) {
+            throw new OrderStateConflictException("Order " + orderId + " cannot move from " + from + " to " + to);
         }
         
-        order.setStatus(status);
-        order.setUpdatedAt(LocalDateTime.now());
-        Order updated = shardedOrderRepository.save(order);
+        if (!shardedOrderRepository.transition(orderId, userId, allowed, to.name(), expectedVersion, events)) {
+            throw OrderStateConflictException.rejected(shardedOrderRepository.findByIdAndUserId(orderId, userId),
+                                                       to, expectedVersion);
+        }
         
+        Order updated = shardedOrderRepository.findByIdAndUserId(orderId, userId);
+        if (updated == null) {
+            throw new RuntimeException("Order not found");
+        }
         return convertToDTO(updated);
     }
     
-    public long getTotalOrderCount() {
-        return shardedOrderRepository.getTotalOrderCount();
-    }
-    
-    public List<ShardedOrderRepository.ShardStats> getShardStatistics() {
-        return shardedOrderRepository.getShardStatistics();
+    /**
+     * Tracked order counts; no query hits the shards
+     */
+    public ShardStatsSnapshot getShardStatistics() {
+        return shardStatsTracker.getSnapshot();
     }
     
     private OrderDTO convertToDTO(Order order) {
@@ -129,6 +328,21 @@ public class ShardedOrderService {
         dto.setPaymentMethod(order.getPaymentMethod());
         dto.setDeliveryAddress(order.getDeliveryAddress());
         dto.setCreatedAt(order.getCreatedAt());
+        dto.setVersion(order.getVersion());
+        if (order.getItems() != null) {
+            // Legacy orders keep their items as JSON; pass it through untouched
+            dto.setItemsJson(order.getItems());
+        } else if (order.getLineItems() != null) {
+            dto.setItems(order.getLineItems().stream().map(item -> {
+                CartItemDTO itemDTO = new CartItemDTO();
+                itemDTO.setMenuItemId(item.getMenuItemId());
+                itemDTO.setName(item.getName());
+                itemDTO.setPrice(item.getPrice());
+                itemDTO.setQuantity(item.getQuantity());
+                itemDTO.setSubtotal(item.getSubtotal());
+                return itemDTO;
+            }).collect(Collectors.toList()));
+        }
         return dto;
     }
 }
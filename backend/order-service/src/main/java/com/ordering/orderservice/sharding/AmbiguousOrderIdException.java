@@ -0,0 +1,16 @@
+package com.ordering.orderservice.sharding;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * A legacy auto-increment order ID was found on more than one shard. Each shard had its own
+ * sequence, so the ID alone does not say whose order is meant; the caller must give the user.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class AmbiguousOrderIdException extends RuntimeException {
+    
+    public AmbiguousOrderIdException(Long orderId, int matches) {
+        super("Legacy order id " + orderId + " exists on " + matches + " shards; look it up with userId");
+    }
+}
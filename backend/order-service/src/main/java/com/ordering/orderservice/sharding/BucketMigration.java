@@ -0,0 +1,68 @@
+package com.ordering.orderservice.sharding;
+
+import lombok.Data;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+/**
+ * Progress of moving one virtual bucket from its current shard to another.
+ */
+@Data
+public class BucketMigration {
+    
+    public enum State {
+        /** Mirroring writes to the target; waiting for every instance to pick that up */
+        DUAL_WRITE,
+        /** Copying existing rows in id order, checkpointing after every batch */
+        COPYING,
+        /** Re-copying rows changed since the migration started */
+        CATCHING_UP,
+        /** Comparing row counts and checksums on both shards */
+        VERIFYING,
+        /** Routing flipped; writes still mirrored back to the source until all instances refresh */
+        CUTOVER,
+        /** Mirroring stopped; re-copying anything a failed mirror write left stale on the target */
+        RECONCILING,
+        /** Deleting the bucket's rows from the source */
+        CLEANUP,
+        DONE,
+        FAILED;
+        
+        public boolean isTerminal() {
+            return this == DONE || this == FAILED;
+        }
+    }
+    
+    private final int bucket;
+    private final int sourceShard;
+    private final int targetShard;
+    
+    private volatile State state = State.DUAL_WRITE;
+    private volatile long lastCopiedId;
+    private volatile long rowsCopied;
+    private volatile long estimatedRows;
+    private volatile LocalDateTime copySince;
+    private volatile String message;
+    
+    private volatile Instant startedAt = Instant.now();
+    private volatile Instant copyStartedAt;
+    private volatile Instant finishedAt;
+    
+    public double getRowsPerSecond() {
+        Instant from = copyStartedAt;
+        if (from == null) {
+            return 0;
+        }
+        Instant to = finishedAt != null ? finishedAt : Instant.now();
+        long millis = Math.max(to.toEpochMilli() - from.toEpochMilli(), 1);
+        return rowsCopied * 1000.0 / millis;
+    }
+    
+    public double getPercentComplete() {
+        if (state != State.FAILED && state.ordinal() > State.COPYING.ordinal()) {
+            return 100.0;
+        }
+        return estimatedRows > 0 ? Math.min(100.0, rowsCopied * 100.0 / estimatedRows) : 0;
+    }
+}
@@ -0,0 +1,374 @@
+package com.ordering.orderservice.sharding;
+
+import com.ordering.orderservice.entity.Order;
+import com.ordering.orderservice.repository.BucketMigrationRepository;
+import com.ordering.orderservice.repository.BucketMigrationRepository.RowState;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Moves one virtual bucket at a time to another shard without downtime:
+ * dual-write, throttled checkpointed copy, catch-up, verify, atomic cutover, reconcile, cleanup.
+ * <p>
+ * Buckets are never moved off shard 0: the JPA {@code OrderService} writes all of its orders
+ * there whatever the routing says, and those rows share user buckets with sharded ones.
+ */
+@Service
+@Slf4j
+public class BucketMigrationService {
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private BucketMigrationRepository migrationRepository;
+
+    @Autowired
+    private ShardStatsTracker shardStatsTracker;
+
+    @Value("${sharding.migration.batch-size:500}")
+    private int batchSize;
+
+    @Value("${sharding.migration.max-rows-per-second:2000}")
+    private int maxRowsPerSecond;
+
+    @Value("${sharding.migration.verify-attempts:3}")
+    private int verifyAttempts;
+
+    // Allowance for clock skew between instances stamping updated_at
+    @Value("${sharding.migration.clock-skew-ms:5000}")
+    private long clockSkewMs;
+
+    private final Map<Integer, BucketMigration> migrations = new ConcurrentHashMap<>();
+
+    // One bucket at a time keeps the extra load on the shards predictable
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "bucket-migration");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PostConstruct
+    public void init() {
+        try {
+            migrationRepository.createCheckpointTable();
+        } catch (Exception e) {
+            log.warn("Could not create migration checkpoint table", e);
+        }
+    }
+
+    /**
+     * Queue a bucket move. Resumes from the last checkpoint if an earlier attempt was interrupted.
+     */
+    public BucketMigration start(int bucket, int targetShard) {
+        int currentShard = shardRouter.getShardForBucket(bucket);
+        BucketMigration running = migrations.get(bucket);
+        if (running != null && !running.getState().isTerminal()) {
+            throw new IllegalStateException("Bucket " + bucket + " is already being migrated");
+        }
+
+        BucketMigration checkpoint = migrationRepository.loadCheckpoint(bucket);
+        BucketMigration migration;
+        if (checkpoint != null && canResume(checkpoint, currentShard, targetShard)) {
+            migration = checkpoint;
+            log.info("Resuming migration of bucket {} at {} from id {}", bucket, migration.getState(),
+                     migration.getLastCopiedId());
+        } else if (currentShard == targetShard) {
+            throw new IllegalArgumentException("Bucket " + bucket + " is already on shard " + targetShard);
+        } else if (currentShard == 0) {
+            throw new IllegalArgumentException("Bucket " + bucket + " is on shard 0, which also holds the JPA " +
+                                               "order path's rows; buckets cannot be moved off it");
+        } else {
+            migration = new BucketMigration(bucket, currentShard, targetShard);
+        }
+
+        migrations.put(bucket, migration);
+        executor.submit(() -> run(migration));
+        return migration;
+    }
+
+    private boolean canResume(BucketMigration checkpoint, int currentShard, int targetShard) {
+        if (checkpoint.getState().isTerminal() || checkpoint.getTargetShard() != targetShard) {
+            return false;
+        }
+        // After cutover the router already points at the target
+        boolean cutOver = checkpoint.getState().ordinal() >= BucketMigration.State.CUTOVER.ordinal();
+        return currentShard == (cutOver ? checkpoint.getTargetShard() : checkpoint.getSourceShard())
+            || (checkpoint.getState() == BucketMigration.State.CUTOVER && currentShard == checkpoint.getSourceShard());
+    }
+
+    public Collection<BucketMigration> getMigrations() {
+        return new ArrayList<>(migrations.values());
+    }
+
+    private void run(BucketMigration m) {
+        int bucket = m.getBucket();
+        try {
+            if (m.getState() == BucketMigration.State.DUAL_WRITE) {
+                m.setCopySince(LocalDateTime.now().minusNanos(clockSkewMs * 1_000_000));
+                shardRouter.startDualWrite(bucket, m.getTargetShard());
+                checkpoint(m);
+                // Every instance must be mirroring before the copy starts
+                Thread.sleep(shardRouter.getRefreshIntervalMs() + clockSkewMs);
+                advance(m, BucketMigration.State.COPYING);
+            }
+            if (m.getState() == BucketMigration.State.COPYING) {
+                copy(m);
+                advance(m, BucketMigration.State.CATCHING_UP);
+            }
+            if (m.getState() == BucketMigration.State.CATCHING_UP || m.getState() == BucketMigration.State.VERIFYING) {
+                catchUpAndVerify(m);
+                advance(m, BucketMigration.State.CUTOVER);
+            }
+            if (m.getState() == BucketMigration.State.CUTOVER) {
+                shardRouter.cutover(bucket, m.getSourceShard(), m.getTargetShard());
+                // Let every instance see the new owner before the source stops getting writes
+                Thread.sleep(2 * shardRouter.getRefreshIntervalMs());
+                shardRouter.stopDualWrite(bucket);
+                advance(m, BucketMigration.State.RECONCILING);
+            }
+            if (m.getState() == BucketMigration.State.RECONCILING) {
+                reconcile(m);
+                advance(m, BucketMigration.State.CLEANUP);
+            }
+            if (m.getState() == BucketMigration.State.CLEANUP) {
+                cleanup(m);
+                m.setFinishedAt(Instant.now());
+                advance(m, BucketMigration.State.DONE);
+                // Rows moved outside the repository, so the tracked counts are off
+                shardStatsTracker.reconcile();
+            }
+            log.info("Bucket {} migrated from shard {} to shard {}: {} rows at {} rows/s", bucket,
+                     m.getSourceShard(), m.getTargetShard(), m.getRowsCopied(), String.format("%.1f", m.getRowsPerSecond()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            m.setMessage("Interrupted; restart to resume from checkpoint");
+        } catch (Exception e) {
+            log.error("Migration of bucket {} failed in state {}", bucket, m.getState(), e);
+            fail(m, e.getMessage());
+        }
+    }
+
+    private void copy(BucketMigration m) throws InterruptedException {
+        if (m.getCopyStartedAt() == null) {
+            m.setCopyStartedAt(Instant.now());
+        }
+        m.setEstimatedRows(m.getRowsCopied() + migrationRepository.countBucket(m.getSourceShard(), m.getBucket()));
+
+        while (true) {
+            long batchStart = System.nanoTime();
+            List<Order> batch = migrationRepository.findBucketBatch(
+                m.getSourceShard(), m.getBucket(), m.getLastCopiedId(), batchSize);
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            migrationRepository.upsert(m.getTargetShard(), batch);
+            migrationRepository.copyItems(m.getSourceShard(), m.getTargetShard(), batch);
+            m.setLastCopiedId(batch.get(batch.size() - 1).getId());
+            m.setRowsCopied(m.getRowsCopied() + batch.size());
+            checkpoint(m);
+
+            throttle(batch.size(), batchStart);
+        }
+    }
+
+    /**
+     * Copy again everything touched since the migration began (covers rows the copier read
+     * before a mirrored update landed), then compare both shards. Repeats until they match.
+     */
+    private void catchUpAndVerify(BucketMigration m) throws InterruptedException {
+        for (int attempt = 1; attempt <= verifyAttempts; attempt++) {
+            advance(m, BucketMigration.State.CATCHING_UP);
+            long afterId = 0;
+            while (true) {
+                long batchStart = System.nanoTime();
+                List<Order> changed = migrationRepository.findBucketChangedSince(
+                    m.getSourceShard(), m.getBucket(), m.getCopySince(), afterId, batchSize);
+                if (changed.isEmpty()) {
+                    break;
+                }
+                migrationRepository.upsert(m.getTargetShard(), changed);
+                migrationRepository.copyItems(m.getSourceShard(), m.getTargetShard(), changed);
+                afterId = changed.get(changed.size() - 1).getId();
+                throttle(changed.size(), batchStart);
+            }
+
+            advance(m, BucketMigration.State.VERIFYING);
+            long[] source = migrationRepository.checksum(m.getSourceShard(), m.getBucket());
+            long[] target = migrationRepository.checksum(m.getTargetShard(), m.getBucket());
+            if (Arrays.equals(source, target)) {
+                m.setMessage("Verified " + source[0] + " orders and " + source[2] + " items");
+                return;
+            }
+            log.warn("Bucket {} verification attempt {} mismatch: source orders={} crc={} items={} crc={}, " +
+                     "target orders={} crc={} items={} crc={}", m.getBucket(), attempt,
+                     source[0], source[1], source[2], source[3], target[0], target[1], target[2], target[3]);
+        }
+        throw new IllegalStateException("Source and target still differ after " + verifyAttempts + " attempts");
+    }
+
+    /**
+     * Mirror writes that fail are only logged, and between verification and cutover nothing
+     * re-checks them. Walk the source once more now that it gets no writes: rows missing or
+     * older on the target are copied again. A row at the same version with different contents,
+     * or another user's row under the same id, means both sides took writes; the migration fails
+     * there and keeps the source rows.
+     */
+    private void reconcile(BucketMigration m) throws InterruptedException {
+        long afterId = 0;
+        long recopied = 0;
+        while (true) {
+            long batchStart = System.nanoTime();
+            Map<Long, RowState> source = migrationRepository.findBucketStates(
+                m.getSourceShard(), m.getBucket(), afterId, batchSize);
+            if (source.isEmpty()) {
+                break;
+            }
+
+            Map<Long, RowState> target = migrationRepository.findStates(m.getTargetShard(), source.keySet());
+            List<Long> stale = new ArrayList<>();
+            List<Long> conflicts = new ArrayList<>();
+            compare(source, target, stale, conflicts);
+            if (!stale.isEmpty()) {
+                List<Order> orders = migrationRepository.findByIds(m.getSourceShard(), stale);
+                migrationRepository.upsert(m.getTargetShard(), orders);
+                migrationRepository.copyItems(m.getSourceShard(), m.getTargetShard(), orders);
+                recopied += stale.size();
+                log.warn("Bucket {}: re-copied {} orders a failed dual-write left stale on shard {}",
+                         m.getBucket(), stale.size(), m.getTargetShard());
+
+                Map<Long, RowState> recopiedSource = new LinkedHashMap<>(source);
+                recopiedSource.keySet().retainAll(stale);
+                compare(recopiedSource, migrationRepository.findStates(m.getTargetShard(), stale), conflicts, conflicts);
+            }
+            if (!conflicts.isEmpty()) {
+                throw new IllegalStateException(conflicts.size() + " orders could not be reconciled after cutover, e.g. " +
+                                                conflicts.subList(0, Math.min(5, conflicts.size())) +
+                                                "; source rows kept");
+            }
+
+            afterId = lastKey(source);
+            throttle(source.size(), batchStart);
+        }
+        m.setMessage("Reconciled; re-copied " + recopied + " orders");
+    }
+
+    /**
+     * Sorts the source rows the target does not have an up-to-date copy of into {@code stale}
+     * (missing, older, or short of items) and {@code conflicts} (diverged or another user's row).
+     */
+    private static void compare(Map<Long, RowState> source, Map<Long, RowState> target,
+                                List<Long> stale, List<Long> conflicts) {
+        source.forEach((id, s) -> {
+            RowState t = target.get(id);
+            if (t == null || (t.userId() == s.userId() && t.version() < s.version())) {
+                stale.add(id);
+            } else if (t.userId() != s.userId() || (t.version() == s.version() && t.crc() != s.crc())) {
+                conflicts.add(id);
+            } else if (t.itemCount() < s.itemCount()) {
+                stale.add(id);
+            }
+        });
+    }
+
+    /**
+     * Delete only source rows the target holds an up-to-date copy of; anything else (written
+     * to the source by an instance that had not refreshed yet) is left and reported.
+     */
+    private void cleanup(BucketMigration m) throws InterruptedException {
+        long afterId = 0;
+        long deleted = 0;
+        long kept = 0;
+        while (true) {
+            long batchStart = System.nanoTime();
+            Map<Long, RowState> source = migrationRepository.findBucketStates(
+                m.getSourceShard(), m.getBucket(), afterId, batchSize);
+            if (source.isEmpty()) {
+                break;
+            }
+
+            Map<Long, RowState> target = migrationRepository.findStates(m.getTargetShard(), source.keySet());
+            List<Long> copied = new ArrayList<>();
+            source.forEach((id, s) -> {
+                RowState t = target.get(id);
+                if (t != null && t.userId() == s.userId() && t.version() >= s.version() && t.itemCount() >= s.itemCount()) {
+                    copied.add(id);
+                }
+            });
+            deleted += migrationRepository.deleteOrders(m.getSourceShard(), m.getBucket(), copied);
+            kept += source.size() - copied.size();
+            afterId = lastKey(source);
+            throttle(source.size(), batchStart);
+        }
+        if (kept > 0) {
+            log.warn("Bucket {}: kept {} source rows on shard {} that are not on shard {}", m.getBucket(), kept,
+                     m.getSourceShard(), m.getTargetShard());
+        }
+        m.setMessage("Deleted " + deleted + " orders from shard " + m.getSourceShard() + ", kept " + kept);
+    }
+
+    private static long lastKey(Map<Long, RowState> rows) {
+        long last = 0;
+        for (long id : rows.keySet()) {
+            last = id;
+        }
+        return last;
+    }
+
+    private void throttle(int rows, long batchStartNanos) throws InterruptedException {
+        if (maxRowsPerSecond <= 0 || rows == 0) {
+            return;
+        }
+        long budgetMillis = rows * 1000L / maxRowsPerSecond;
+        long elapsedMillis = (System.nanoTime() - batchStartNanos) / 1_000_000;
+        if (budgetMillis > elapsedMillis) {
+            Thread.sleep(budgetMillis - elapsedMillis);
+        }
+    }
+
+    private void advance(BucketMigration m, BucketMigration.State state) {
+        m.setState(state);
+        checkpoint(m);
+    }
+
+    private void fail(BucketMigration m, String message) {
+        m.setState(BucketMigration.State.FAILED);
+        m.setMessage(message);
+        m.setFinishedAt(Instant.now());
+        try {
+            // Before cutover the source is still authoritative, so just stop mirroring
+            if (shardRouter.getShardForBucket(m.getBucket()) == m.getSourceShard()) {
+                shardRouter.stopDualWrite(m.getBucket());
+            }
+            checkpoint(m);
+        } catch (Exception e) {
+            log.error("Could not record failure of bucket {} migration", m.getBucket(), e);
+        }
+    }
+
+    private void checkpoint(BucketMigration m) {
+        migrationRepository.saveCheckpoint(m);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,171 @@
+package com.ordering.orderservice.sharding;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group commit for single-row inserts. Callers on many threads hand their row to the queue of
+ * its shard and wait on a future; a few writer threads per shard take whatever has queued up,
+ * waiting at most {@code maxWaitMicros} for more, and write up to {@code maxBatchSize} rows as
+ * one batch in one transaction. Under load, N concurrent inserts then cost about N / batch size
+ * commits (and fsyncs) instead of N.
+ * <p>
+ * If a batch fails, its rows are retried one by one so each caller gets its own outcome.
+ */
+@Slf4j
+public class GroupCommitWriter<T> {
+
+    /**
+     * Writes a batch of rows to one shard in a single transaction, or throws and writes nothing.
+     */
+    public interface BatchWriter<T> {
+        void write(int shardIndex, List<T> rows);
+    }
+
+    private static final class Pending<T> {
+        final T row;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+
+        Pending(T row) {
+            this.row = row;
+        }
+    }
+
+    private final BatchWriter<T> writer;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final List<BlockingQueue<Pending<T>>> queues = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private final List<DistributionSummary> batchSizes = new ArrayList<>();
+    private final List<Counter> commits = new ArrayList<>();
+    private volatile boolean running = true;
+
+    public GroupCommitWriter(int numShards, int writersPerShard, int maxBatchSize, long maxWaitMicros,
+                             int queueCapacity, BatchWriter<T> writer, MeterRegistry meterRegistry) {
+        this.writer = writer;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+
+        for (int shard = 0; shard < numShards; shard++) {
+            queues.add(new ArrayBlockingQueue<>(queueCapacity));
+            String tag = String.valueOf(shard);
+            batchSizes.add(DistributionSummary.builder("shard.group_commit.batch_size").tag("shard", tag)
+                                              .register(meterRegistry));
+            commits.add(Counter.builder("shard.group_commit.commits").tag("shard", tag).register(meterRegistry));
+
+            for (int w = 0; w < writersPerShard; w++) {
+                int shardIndex = shard;
+                Thread thread = new Thread(() -> run(shardIndex), "group-commit-" + shard + "-" + w);
+                thread.setDaemon(true);
+                threads.add(thread);
+                thread.start();
+            }
+        }
+    }
+
+    /**
+     * Queue a row for its shard's next batch; blocks while that queue is full. The future
+     * completes with the row once its transaction has committed, and fails at once if the
+     * writer has been shut down.
+     */
+    public CompletableFuture<T> submit(int shardIndex, T row) {
+        Pending<T> pending = new Pending<>(row);
+        BlockingQueue<Pending<T>> queue = queues.get(shardIndex);
+        boolean queued = false;
+        try {
+            // Re-check between waits so a caller blocked on a full queue notices a shutdown
+            while (running && !queued) {
+                queued = queue.offer(pending, 100, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.future.completeExceptionally(e);
+            return pending.future;
+        }
+        // The writers may have drained the queue for the last time just before the row went in;
+        // a row a writer already took is left to complete normally
+        if (!queued || (!running && queue.remove(pending))) {
+            pending.future.completeExceptionally(new IllegalStateException("Group commit writer stopped"));
+        }
+        return pending.future;
+    }
+
+    public void shutdown() {
+        running = false;
+        threads.forEach(Thread::interrupt);
+    }
+
+    private void run(int shardIndex) {
+        BlockingQueue<Pending<T>> queue = queues.get(shardIndex);
+        List<Pending<T>> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatchSize - batch.size());
+                // Give concurrent callers a moment to join this commit
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending<T> next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                }
+            } catch (InterruptedException e) {
+                if (!running) {
+                    break;
+                }
+            }
+            if (!batch.isEmpty()) {
+                flush(shardIndex, batch);
+                batch.clear();
+            }
+        }
+
+        // Fail anything left rather than leave callers waiting forever
+        List<Pending<T>> left = new ArrayList<>();
+        queue.drainTo(left);
+        left.forEach(p -> p.future.completeExceptionally(new IllegalStateException("Group commit writer stopped")));
+    }
+
+    private void flush(int shardIndex, List<Pending<T>> batch) {
+        List<T> rows = new ArrayList<>(batch.size());
+        batch.forEach(p -> rows.add(p.row));
+        try {
+            writer.write(shardIndex, rows);
+            commits.get(shardIndex).increment();
+            batchSizes.get(shardIndex).record(rows.size());
+            batch.forEach(p -> p.future.complete(p.row));
+            return;
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).future.completeExceptionally(e);
+                return;
+            }
+            log.warn("Group commit of {} rows failed on shard {}, retrying one by one", batch.size(), shardIndex, e);
+        }
+
+        // The batch was rolled back as a whole, so every row can be retried safely
+        for (Pending<T> pending : batch) {
+            try {
+                writer.write(shardIndex, List.of(pending.row));
+                commits.get(shardIndex).increment();
+                batchSizes.get(shardIndex).record(1);
+                pending.future.complete(pending.row);
+            } catch (RuntimeException e) {
+                pending.future.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.ordering.orderservice.sharding;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Shard pool behind a {@link ShardGuard}: every connection holds a bulkhead permit until it
+ * is closed, and failures to get a connection count against the shard's circuit.
+ */
+public class GuardedShardDataSource extends DelegatingDataSource {
+
+    private final ShardGuard guard;
+
+    public GuardedShardDataSource(HikariDataSource pool, ShardGuard guard) {
+        super(pool);
+        this.guard = guard;
+    }
+
+    public HikariDataSource getPool() {
+        return (HikariDataSource) obtainTargetDataSource();
+    }
+
+    public ShardGuard getGuard() {
+        return guard;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        guard.acquire();
+        long start = System.nanoTime();
+        Connection connection;
+        try {
+            connection = obtainTargetDataSource().getConnection();
+        } catch (SQLException | RuntimeException e) {
+            guard.release();
+            guard.recordFailure();
+            throw e;
+        }
+        guard.recordAcquireTime(System.nanoTime() - start);
+        guard.recordSuccess();
+        return releasingOnClose(connection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Shard pools use their configured credentials");
+    }
+
+    private Connection releasingOnClose(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(),
+            new Class<?>[] { Connection.class },
+            (proxy, method, args) -> {
+                if ("close".equals(method.getName()) && released.compareAndSet(false, true)) {
+                    guard.release();
+                }
+                try {
+                    return method.invoke(connection, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getTargetException();
+                }
+            });
+    }
+}
@@ -0,0 +1,172 @@
+package com.ordering.orderservice.sharding;
+
+import com.ordering.orderservice.config.ShardingConfig;
+import com.ordering.orderservice.config.ShardingProperties;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Sends read-only queries to a shard's replicas when it has any.
+ *
+ * Replicas are picked round-robin among those within {@code sharding.replicas.max-lag-seconds}
+ * at the last lag check; with none in range, or when a replica query fails, the read goes
+ * to the primary. A user who just wrote reads from the primary for
+ * {@code read-your-writes-ms} so they see their own order. That window is tracked per
+ * instance only.
+ */
+@Component
+@Slf4j
+public class ReplicaRouter {
+
+    @Autowired
+    private ShardingConfig shardingConfig;
+
+    @Autowired
+    private ShardingProperties shardingProperties;
+
+    private final Map<Integer, List<Replica>> replicas = new HashMap<>();
+    private final Map<Integer, AtomicInteger> nextReplica = new HashMap<>();
+
+    // userId -> System.currentTimeMillis() until which reads stay on the primary
+    private final Map<Long, Long> recentWriters = new ConcurrentHashMap<>();
+
+    private static final class Replica {
+        private final String name;
+        private final JdbcTemplate jdbcTemplate;
+        private volatile boolean usable = true;
+        private volatile Long lagSeconds;
+
+        private Replica(String name, JdbcTemplate jdbcTemplate) {
+            this.name = name;
+            this.jdbcTemplate = jdbcTemplate;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        for (int shard = 0; shard < shardingConfig.getNumShards(); shard++) {
+            List<Replica> shardReplicas = new ArrayList<>();
+            shardingConfig.getReplicaDataSources(shard).forEach(dataSource ->
+                shardReplicas.add(new Replica(dataSource.getPoolName(), new JdbcTemplate(dataSource))));
+            replicas.put(shard, Collections.unmodifiableList(shardReplicas));
+            nextReplica.put(shard, new AtomicInteger());
+        }
+    }
+
+    /**
+     * Run a read-only query on a replica of the shard, or on its primary if no replica fits.
+     * Pass the user the data belongs to, or null when the read is not for one user.
+     */
+    public <T> T read(int shardIndex, Long userId, Function<JdbcTemplate, T> query) {
+        Replica replica = userId != null && isRecentWriter(userId) ? null : pick(shardIndex);
+        if (replica != null) {
+            try {
+                return query.apply(replica.jdbcTemplate);
+            } catch (DataAccessException e) {
+                replica.usable = false;
+                log.warn("Read on replica {} failed, retrying on primary until next lag check", replica.name, e);
+            }
+        }
+        return query.apply(shardingConfig.getJdbcTemplate(shardIndex));
+    }
+
+    /**
+     * Keep this user's reads on the primary for the read-your-writes window.
+     */
+    public void recordWrite(Long userId) {
+        if (hasReplicas()) {
+            recentWriters.put(userId, System.currentTimeMillis() + shardingProperties.getReplicas().getReadYourWritesMs());
+        }
+    }
+
+    private boolean isRecentWriter(Long userId) {
+        Long until = recentWriters.get(userId);
+        return until != null && until > System.currentTimeMillis();
+    }
+
+    private Replica pick(int shardIndex) {
+        List<Replica> candidates = replicas.getOrDefault(shardIndex, List.of());
+        int size = candidates.size();
+        if (size == 0) {
+            return null;
+        }
+        int start = Math.floorMod(nextReplica.get(shardIndex).getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = candidates.get((start + i) % size);
+            if (replica.usable) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private boolean hasReplicas() {
+        return replicas.values().stream().anyMatch(list -> !list.isEmpty());
+    }
+
+    /**
+     * Measure replication lag on every replica and drop expired read-your-writes entries.
+     */
+    @Scheduled(fixedDelayString = "${sharding.replicas.lag-check-interval-ms:5000}")
+    public void checkLag() {
+        long maxLag = shardingProperties.getReplicas().getMaxLagSeconds();
+        replicas.values().forEach(list -> list.forEach(replica -> {
+            try {
+                List<Map<String, Object>> status = replica.jdbcTemplate.queryForList("SHOW REPLICA STATUS");
+                if (status.isEmpty()) {
+                    // Not replicating from anything, e.g. a stand-in schema on a dev box
+                    replica.lagSeconds = 0L;
+                } else {
+                    Object lag = status.get(0).get("Seconds_Behind_Source");
+                    // NULL means the replication threads are stopped
+                    replica.lagSeconds = lag != null ? ((Number) lag).longValue() : null;
+                }
+            } catch (DataAccessException e) {
+                replica.lagSeconds = null;
+                log.warn("Lag check on replica {} failed", replica.name, e);
+            }
+
+            boolean usable = replica.lagSeconds != null && replica.lagSeconds <= maxLag;
+            if (usable != replica.usable) {
+                log.info("Replica {} is now {} (lag {}s)", replica.name, usable ? "in use" : "skipped", replica.lagSeconds);
+            }
+            replica.usable = usable;
+        }));
+
+        long now = System.currentTimeMillis();
+        recentWriters.values().removeIf(until -> until <= now);
+    }
+
+    /**
+     * Current lag and state of every replica, by shard.
+     */
+    public Map<Integer, List<Map<String, Object>>> getReplicaStatus() {
+        Map<Integer, List<Map<String, Object>>> status = new HashMap<>();
+        replicas.forEach((shard, list) -> {
+            List<Map<String, Object>> entries = new ArrayList<>();
+            for (Replica replica : list) {
+                Map<String, Object> entry = new HashMap<>();
+                entry.put("name", replica.name);
+                entry.put("lagSeconds", replica.lagSeconds);
+                entry.put("usable", replica.usable);
+                entries.add(entry);
+            }
+            status.put(shard, entries);
+        });
+        return status;
+    }
+}
@@ -0,0 +1,158 @@
+package com.ordering.orderservice.sharding;
+
+import com.ordering.orderservice.config.ShardingConfig;
+import com.ordering.orderservice.config.WorkerThreads;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs one query per shard in parallel and k-way merges the already-sorted
+ * per-shard results. Shards that fail or miss the deadline are reported
+ * instead of failing the whole query, and shards whose circuit is open are
+ * not asked at all.
+ */
+@Component
+@Slf4j
+public class ScatterGatherExecutor {
+
+    @FunctionalInterface
+    public interface ShardQuery<T> {
+        List<T> execute(int shardIndex);
+    }
+
+    private final ExecutorService executor;
+    private final long shardTimeoutMs;
+
+    @Autowired
+    private ShardingConfig shardingConfig;
+
+    public ScatterGatherExecutor(
+            @Value("${sharding.scatter-gather.pool-size:16}") int poolSize,
+            @Value("${sharding.scatter-gather.queue-capacity:256}") int queueCapacity,
+            @Value("${sharding.scatter-gather.shard-timeout-ms:2000}") long shardTimeoutMs,
+            WorkerThreads workerThreads) {
+        this.shardTimeoutMs = shardTimeoutMs;
+        ThreadFactory threads = workerThreads.factory("scatter-gather");
+        if (workerThreads.isVirtual()) {
+            // A virtual thread per shard query; the shard bulkheads bound what reaches the databases
+            this.executor = Executors.newCachedThreadPool(threads);
+        } else {
+            this.executor = new ThreadPoolExecutor(
+                poolSize, poolSize,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                threads,
+                // When saturated the shard is reported as not answering; running the query on the
+                // request thread instead would wait on it without shard-timeout-ms
+                new ThreadPoolExecutor.AbortPolicy());
+        }
+    }
+
+    /**
+     * Query the given shards in parallel and merge the results.
+     *
+     * @param query per-shard query; each result list must already be sorted by {@code order}
+     * @param limit maximum number of merged rows, or 0 for no limit; request-facing callers always pass a bound
+     */
+    public <T> ScatterGatherResult<T> query(Collection<Integer> shards, ShardQuery<T> query,
+                                            Comparator<? super T> order, int limit) {
+        Map<Integer, Future<List<T>>> futures = new LinkedHashMap<>();
+        Set<Integer> failedShards = new TreeSet<>();
+        for (Integer shard : shards) {
+            if (!shardingConfig.getGuardedDataSource(shard).getGuard().isAvailable()) {
+                failedShards.add(shard);
+                continue;
+            }
+            try {
+                futures.put(shard, executor.submit(() -> query.execute(shard)));
+            } catch (RejectedExecutionException e) {
+                failedShards.add(shard);
+                log.warn("Scatter-gather pool saturated, skipping shard {}", shard);
+            }
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(shardTimeoutMs);
+        List<List<T>> shardResults = new ArrayList<>(futures.size());
+
+        for (Map.Entry<Integer, Future<List<T>>> entry : futures.entrySet()) {
+            Future<List<T>> future = entry.getValue();
+            try {
+                long remaining = deadline - System.nanoTime();
+                shardResults.add(future.get(Math.max(remaining, 0), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                failedShards.add(entry.getKey());
+                // Connection failures are counted by the shard's data source; a slow shard only shows up here
+                shardingConfig.getGuardedDataSource(entry.getKey()).getGuard().recordFailure();
+                log.warn("Shard {} did not answer within {} ms, returning partial result",
+                         entry.getKey(), shardTimeoutMs);
+            } catch (ExecutionException e) {
+                failedShards.add(entry.getKey());
+                log.error("Query on shard {} failed, returning partial result", entry.getKey(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.values().forEach(f -> f.cancel(true));
+                throw new RuntimeException("Interrupted while waiting for shard results", e);
+            }
+        }
+
+        return new ScatterGatherResult<>(merge(shardResults, order, limit), failedShards);
+    }
+
+    /**
+     * K-way merge of sorted lists, stopping as soon as {@code limit} rows are taken.
+     */
+    static <T> List<T> merge(List<List<T>> sortedLists, Comparator<? super T> order, int limit) {
+        PriorityQueue<PeekingIterator<T>> heap =
+            new PriorityQueue<>(Math.max(sortedLists.size(), 1), (a, b) -> order.compare(a.peek(), b.peek()));
+        int total = 0;
+        for (List<T> list : sortedLists) {
+            if (!list.isEmpty()) {
+                heap.add(new PeekingIterator<>(list.iterator()));
+                total += list.size();
+            }
+        }
+
+        int capacity = limit > 0 ? Math.min(limit, total) : total;
+        List<T> merged = new ArrayList<>(capacity);
+        while (!heap.isEmpty() && merged.size() < capacity) {
+            PeekingIterator<T> head = heap.poll();
+            merged.add(head.next());
+            if (head.hasNext()) {
+                heap.add(head);
+            }
+        }
+        return merged;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static final class PeekingIterator<T> {
+        private final Iterator<T> delegate;
+        private T next;
+
+        PeekingIterator(Iterator<T> delegate) {
+            this.delegate = delegate;
+            this.next = delegate.next();
+        }
+
+        T peek() { return next; }
+
+        boolean hasNext() { return next != null; }
+
+        T next() {
+            T current = next;
+            next = delegate.hasNext() ? delegate.next() : null;
+            return current;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.ordering.orderservice.sharding;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Merged rows from a cross-shard query plus the shards that did not answer in time.
+ */
+public class ScatterGatherResult<T> {
+    private final List<T> rows;
+    private final Set<Integer> failedShards;
+
+    public ScatterGatherResult(List<T> rows, Set<Integer> failedShards) {
+        this.rows = rows;
+        this.failedShards = failedShards;
+    }
+
+    public List<T> getRows() { return rows; }
+
+    public Set<Integer> getFailedShards() { return failedShards; }
+
+    public boolean isPartial() { return !failedShards.isEmpty(); }
+}
@@ -0,0 +1,171 @@
+package com.ordering.orderservice.sharding;
+
+import com.ordering.orderservice.config.ShardingProperties;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bulkhead and circuit breaker for one shard.
+ *
+ * The bulkhead caps concurrent connections and rejects callers after a short wait instead
+ * of letting them queue on the pool. The circuit opens after {@code failureThreshold}
+ * failures within {@code failureWindowMs}, rejects everything for {@code openDurationMs},
+ * then lets a single trial call through: success closes it, failure opens it again.
+ */
+@Slf4j
+public class ShardGuard {
+
+    public enum CircuitState { CLOSED, OPEN, HALF_OPEN }
+
+    private final int shardIndex;
+    private final ShardingProperties.Resilience settings;
+    private final Semaphore permits;
+
+    private final AtomicReference<CircuitState> state = new AtomicReference<>(CircuitState.CLOSED);
+    private final AtomicInteger windowFailures = new AtomicInteger();
+    private volatile long windowStart = System.currentTimeMillis();
+    private volatile long openedAt;
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final LongAdder acquireCount = new LongAdder();
+
+    public ShardGuard(int shardIndex, ShardingProperties.Resilience settings) {
+        this.shardIndex = shardIndex;
+        this.settings = settings;
+        this.permits = new Semaphore(settings.getMaxConcurrent());
+    }
+
+    /**
+     * Take a bulkhead permit, or fail fast. Call {@link #release()} exactly once afterwards.
+     */
+    public void acquire() {
+        CircuitState admitted = admit();
+        if (admitted == null) {
+            rejected.increment();
+            throw new ShardUnavailableException(shardIndex, "circuit open");
+        }
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(settings.getBulkheadWaitMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            abandonTrial(admitted);
+            Thread.currentThread().interrupt();
+            throw new ShardUnavailableException(shardIndex, "interrupted");
+        }
+        if (!acquired) {
+            abandonTrial(admitted);
+            rejected.increment();
+            throw new ShardUnavailableException(shardIndex, "bulkhead full");
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    /**
+     * Whether a call may go to the shard now. Moves an expired open circuit to half-open
+     * and admits exactly one caller as the trial.
+     */
+    public boolean allowRequest() {
+        return admit() != null;
+    }
+
+    /**
+     * @return the state the caller was let in under (HALF_OPEN for the trial), or null if rejected
+     */
+    private CircuitState admit() {
+        CircuitState current = state.get();
+        if (current == CircuitState.CLOSED) {
+            return CircuitState.CLOSED;
+        }
+        if (current == CircuitState.OPEN && System.currentTimeMillis() - openedAt >= settings.getOpenDurationMs()
+                && state.compareAndSet(CircuitState.OPEN, CircuitState.HALF_OPEN)) {
+            return CircuitState.HALF_OPEN;
+        }
+        return null;
+    }
+
+    /**
+     * The trial caller never reached the shard; hand the trial back without a verdict. The
+     * circuit stays past its open duration, so the next caller gets to try instead.
+     */
+    private void abandonTrial(CircuitState admitted) {
+        if (admitted == CircuitState.HALF_OPEN) {
+            state.compareAndSet(CircuitState.HALF_OPEN, CircuitState.OPEN);
+        }
+    }
+
+    /**
+     * Like {@link #allowRequest()} but without claiming the half-open trial; for callers that
+     * only decide whether to try the shard at all.
+     */
+    public boolean isAvailable() {
+        CircuitState current = state.get();
+        return current == CircuitState.CLOSED
+            || (current == CircuitState.OPEN && System.currentTimeMillis() - openedAt >= settings.getOpenDurationMs());
+    }
+
+    public void recordSuccess() {
+        if (state.compareAndSet(CircuitState.HALF_OPEN, CircuitState.CLOSED)) {
+            windowFailures.set(0);
+            windowStart = System.currentTimeMillis();
+            log.info("Shard {} circuit closed", shardIndex);
+        }
+    }
+
+    public void recordFailure() {
+        failures.increment();
+        long now = System.currentTimeMillis();
+
+        if (state.compareAndSet(CircuitState.HALF_OPEN, CircuitState.OPEN)) {
+            openedAt = now;
+            log.warn("Shard {} trial call failed, circuit open again", shardIndex);
+            return;
+        }
+
+        if (now - windowStart > settings.getFailureWindowMs()) {
+            windowStart = now;
+            windowFailures.set(0);
+        }
+        if (windowFailures.incrementAndGet() >= settings.getFailureThreshold()
+                && state.compareAndSet(CircuitState.CLOSED, CircuitState.OPEN)) {
+            openedAt = now;
+            log.warn("Shard {} circuit opened after {} failures within {} ms",
+                     shardIndex, windowFailures.get(), settings.getFailureWindowMs());
+        }
+    }
+
+    void recordAcquireTime(long nanos) {
+        acquireNanos.add(nanos);
+        acquireCount.increment();
+    }
+
+    /**
+     * Mean connection wait since the last call, in milliseconds; resets the sample.
+     */
+    public double drainMeanAcquireMs() {
+        long count = acquireCount.sumThenReset();
+        long nanos = acquireNanos.sumThenReset();
+        return count == 0 ? 0 : nanos / (double) count / 1_000_000;
+    }
+
+    public int getShardIndex() { return shardIndex; }
+
+    public CircuitState getState() { return state.get(); }
+
+    public int getInFlight() { return settings.getMaxConcurrent() - permits.availablePermits(); }
+
+    public int getMaxConcurrent() { return settings.getMaxConcurrent(); }
+
+    public long getRejected() { return rejected.sum(); }
+
+    public long getFailures() { return failures.sum(); }
+}
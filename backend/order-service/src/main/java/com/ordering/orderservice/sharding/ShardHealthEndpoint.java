@@ -0,0 +1,48 @@
+package com.ordering.orderservice.sharding;
+
+import com.ordering.orderservice.config.ShardingConfig;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * /actuator/shards - circuit state, bulkhead usage and pool figures per shard.
+ */
+@Component
+@Endpoint(id = "shards")
+public class ShardHealthEndpoint {
+    
+    @Autowired
+    private ShardingConfig shardingConfig;
+    
+    @ReadOperation
+    public Map<Integer, Map<String, Object>> shards() {
+        Map<Integer, Map<String, Object>> shards = new LinkedHashMap<>();
+        for (int shard = 0; shard < shardingConfig.getNumShards(); shard++) {
+            GuardedShardDataSource dataSource = shardingConfig.getGuardedDataSource(shard);
+            ShardGuard guard = dataSource.getGuard();
+            HikariPoolMXBean pool = dataSource.getPool().getHikariPoolMXBean();
+            
+            Map<String, Object> details = new LinkedHashMap<>();
+            details.put("database", shardingConfig.getDatabaseName(shard));
+            details.put("circuit", guard.getState());
+            details.put("failures", guard.getFailures());
+            details.put("bulkheadInFlight", guard.getInFlight());
+            details.put("bulkheadLimit", guard.getMaxConcurrent());
+            details.put("bulkheadRejected", guard.getRejected());
+            details.put("poolMaxSize", dataSource.getPool().getHikariConfigMXBean().getMaximumPoolSize());
+            if (pool != null) {
+                details.put("poolActive", pool.getActiveConnections());
+                details.put("poolIdle", pool.getIdleConnections());
+                details.put("poolWaiting", pool.getThreadsAwaitingConnection());
+            }
+            shards.put(shard, details);
+        }
+        return shards;
+    }
+}
@@ -0,0 +1,57 @@
+package com.ordering.orderservice.sharding;
+
+import com.ordering.orderservice.config.ShardingConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Publishes pool and bulkhead figures for every shard, tagged {@code shard=N}.
+ * The shard pools are not beans, so Spring Boot's own Hikari metrics only cover shard 0.
+ */
+@Component
+public class ShardMetrics implements MeterBinder {
+
+    @Autowired
+    private ShardingConfig shardingConfig;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (int shard = 0; shard < shardingConfig.getNumShards(); shard++) {
+            GuardedShardDataSource dataSource = shardingConfig.getGuardedDataSource(shard);
+            ShardGuard guard = dataSource.getGuard();
+            HikariDataSource pool = dataSource.getPool();
+            String tag = String.valueOf(shard);
+
+            poolGauge(registry, "shard.pool.active", tag, pool, HikariPoolMXBean::getActiveConnections);
+            poolGauge(registry, "shard.pool.idle", tag, pool, HikariPoolMXBean::getIdleConnections);
+            poolGauge(registry, "shard.pool.pending", tag, pool, HikariPoolMXBean::getThreadsAwaitingConnection);
+            Gauge.builder("shard.pool.max", pool, p -> p.getHikariConfigMXBean().getMaximumPoolSize())
+                 .tag("shard", tag).register(registry);
+
+            Gauge.builder("shard.bulkhead.in_flight", guard, ShardGuard::getInFlight)
+                 .tag("shard", tag).register(registry);
+            FunctionCounter.builder("shard.bulkhead.rejected", guard, ShardGuard::getRejected)
+                 .tag("shard", tag).register(registry);
+            FunctionCounter.builder("shard.failures", guard, ShardGuard::getFailures)
+                 .tag("shard", tag).register(registry);
+            // 0 closed, 1 half-open, 2 open
+            Gauge.builder("shard.circuit.state", guard, g -> g.getState() == ShardGuard.CircuitState.CLOSED ? 0
+                          : g.getState() == ShardGuard.CircuitState.HALF_OPEN ? 1 : 2)
+                 .tag("shard", tag).register(registry);
+        }
+    }
+
+    private void poolGauge(MeterRegistry registry, String name, String shard, HikariDataSource pool,
+                           ToDoubleFunction<HikariPoolMXBean> value) {
+        Gauge.builder(name, pool, p -> p.getHikariPoolMXBean() != null ? value.applyAsDouble(p.getHikariPoolMXBean()) : 0)
+             .tag("shard", shard).register(registry);
+    }
+}
@@ -0,0 +1,40 @@
+package com.ordering.orderservice.sharding;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * /actuator/shardmigration - bucket moves with progress and throughput;
+ * POST {"bucket": n, "targetShard": m} starts (or resumes) one.
+ */
+@Component
+@Endpoint(id = "shardmigration")
+public class ShardMigrationEndpoint {
+    
+    @Autowired
+    private BucketMigrationService migrationService;
+    
+    @Autowired
+    private ShardRouter shardRouter;
+    
+    @ReadOperation
+    public Map<String, Object> migrations() {
+        Map<String, Object> status = new HashMap<>();
+        Collection<BucketMigration> migrations = migrationService.getMigrations();
+        status.put("migrations", migrations);
+        status.put("dualWriteBuckets", shardRouter.getDualWriteBuckets());
+        return status;
+    }
+    
+    @WriteOperation
+    public BucketMigration start(int bucket, int targetShard) {
+        return migrationService.start(bucket, targetShard);
+    }
+}
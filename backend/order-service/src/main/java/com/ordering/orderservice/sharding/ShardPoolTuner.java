@@ -0,0 +1,65 @@
+package com.ordering.orderservice.sharding;
+
+import com.ordering.orderservice.config.ShardingConfig;
+import com.ordering.orderservice.config.ShardingProperties;
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Resizes each shard pool from the connection waits seen since the last run.
+ *
+ * A pool grows when callers waited longer than {@code sharding.pool.target-acquire-ms}
+ * on average and some are still queued, and shrinks when nobody waited and less than half
+ * of it is busy. A shard whose circuit is not closed is never grown: more connections
+ * would only add load to a database that is already struggling.
+ */
+@Component
+@Slf4j
+public class ShardPoolTuner {
+
+    private static final int GROW_STEP = 2;
+    private static final int SHRINK_STEP = 1;
+
+    @Autowired
+    private ShardingConfig shardingConfig;
+
+    @Autowired
+    private ShardingProperties shardingProperties;
+
+    @Scheduled(fixedDelayString = "${sharding.pool.resize-interval-ms:15000}")
+    public void resize() {
+        ShardingProperties.PoolSizing sizing = shardingProperties.getPool();
+
+        for (int shard = 0; shard < shardingConfig.getNumShards(); shard++) {
+            GuardedShardDataSource dataSource = shardingConfig.getGuardedDataSource(shard);
+            HikariPoolMXBean pool = dataSource.getPool().getHikariPoolMXBean();
+            if (pool == null) {
+                continue;
+            }
+            HikariConfigMXBean config = dataSource.getPool().getHikariConfigMXBean();
+            ShardGuard guard = dataSource.getGuard();
+
+            double meanAcquireMs = guard.drainMeanAcquireMs();
+            int current = config.getMaximumPoolSize();
+            int target = current;
+
+            if (meanAcquireMs > sizing.getTargetAcquireMs() && pool.getThreadsAwaitingConnection() > 0
+                    && guard.getState() == ShardGuard.CircuitState.CLOSED) {
+                target = Math.min(current + GROW_STEP, sizing.getMaxSize());
+            } else if (meanAcquireMs < 1 && pool.getActiveConnections() < current / 2) {
+                target = Math.max(current - SHRINK_STEP, sizing.getMinSize());
+            }
+
+            if (target != current) {
+                config.setMaximumPoolSize(target);
+                log.info("Shard {} pool resized {} -> {} (mean wait {} ms, active {}, waiting {})", shard,
+                         current, target, String.format("%.1f", meanAcquireMs),
+                         pool.getActiveConnections(), pool.getThreadsAwaitingConnection());
+            }
+        }
+    }
+}
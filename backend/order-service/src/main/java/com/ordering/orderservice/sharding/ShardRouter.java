@@ -0,0 +1,283 @@
+package com.ordering.orderservice.sharding;
+
+import com.ordering.common.util.SnowflakeIdGenerator;
+import com.ordering.orderservice.config.ShardingConfig;
+import com.ordering.orderservice.config.ShardingProperties;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Routes users to shards through a fixed set of virtual buckets.
+ *
+ * bucket = user_id % virtualBuckets, and a bucket-to-shard table decides which database
+ * owns the bucket. The table lives in shard 0 ({@code shard_bucket_routing}). It is seeded
+ * once from the shard count at first start, so adding a database never remaps existing
+ * buckets. Data only moves when buckets are reassigned one at a time.
+ */
+@Component
+@Slf4j
+public class ShardRouter {
+
+    static final String ROUTING_TABLE = "shard_bucket_routing";
+    
+    public static final int NO_SHARD = -1;
+
+    @Autowired
+    private ShardingConfig shardingConfig;
+
+    @Autowired
+    private ShardingProperties shardingProperties;
+
+    private int numBuckets;
+
+    // Replaced wholesale on reload so readers always see a consistent table
+    private volatile Route[] routes;
+
+    /**
+     * Where a bucket lives, plus a second shard that must receive every write while the
+     * bucket is being moved ({@link #NO_SHARD} otherwise).
+     */
+    public static final class Route {
+        private final int shard;
+        private final int dualWriteShard;
+
+        Route(int shard, int dualWriteShard) {
+            this.shard = shard;
+            this.dualWriteShard = dualWriteShard;
+        }
+
+        public int getShard() { return shard; }
+
+        public int getDualWriteShard() { return dualWriteShard; }
+
+        public boolean isDualWrite() { return dualWriteShard != NO_SHARD; }
+    }
+
+    @PostConstruct
+    public void init() {
+        numBuckets = shardingProperties.getVirtualBuckets();
+        if (numBuckets <= 0 || numBuckets > SnowflakeIdGenerator.MAX_BUCKET + 1) {
+            throw new IllegalStateException("sharding.virtual-buckets must be between 1 and "
+                + (SnowflakeIdGenerator.MAX_BUCKET + 1));
+        }
+
+        // A guessed layout would misroute every bucket that has ever moved, so there is no
+        // fallback: without the table the service does not start
+        try {
+            createAndSeedRoutingTable();
+            reload();
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not load " + ROUTING_TABLE + " from shard 0", e);
+        }
+    }
+
+    public int getNumBuckets() {
+        return numBuckets;
+    }
+
+    public int getNumShards() {
+        return shardingConfig.getNumShards();
+    }
+
+    public int getBucket(Long userId) {
+        return (int) Math.floorMod(userId, (long) numBuckets);
+    }
+
+    public Route getRoute(int bucket) {
+        return routes[bucket];
+    }
+
+    public int getShardForBucket(int bucket) {
+        return routes[bucket].shard;
+    }
+
+    public int getShardForUser(Long userId) {
+        return getShardForBucket(getBucket(userId));
+    }
+
+    /**
+     * Shard owning an order, read from the bucket encoded in its ID.
+     */
+    public int getShardForOrderId(long orderId) {
+        return getShardForBucket(SnowflakeIdGenerator.bucketOf(orderId));
+    }
+
+    public DataSource getDataSourceForUser(Long userId) {
+        return shardingConfig.getDataSourceForShard(getShardForUser(userId));
+    }
+
+    /**
+     * Number of buckets currently owned by each shard.
+     */
+    public Map<Integer, Integer> getBucketCountsByShard() {
+        Map<Integer, Integer> counts = new TreeMap<>();
+        for (int shard = 0; shard < shardingConfig.getNumShards(); shard++) {
+            counts.put(shard, 0);
+        }
+        for (Route route : routes) {
+            counts.merge(route.shard, 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * Buckets currently mirrored to a second shard, with that shard.
+     */
+    public Map<Integer, Integer> getDualWriteBuckets() {
+        Map<Integer, Integer> dualWrites = new TreeMap<>();
+        Route[] current = routes;
+        for (int bucket = 0; bucket < current.length; bucket++) {
+            if (current[bucket].isDualWrite()) {
+                dualWrites.put(bucket, current[bucket].dualWriteShard);
+            }
+        }
+        return dualWrites;
+    }
+
+    /**
+     * Point a bucket at a different shard. Only call this once the bucket's data is on the target.
+     */
+    public void assignBucket(int bucket, int shard) {
+        checkBucketAndShard(bucket, shard);
+
+        catalog().update("UPDATE " + ROUTING_TABLE + " SET shard_index = ? WHERE bucket = ?", shard, bucket);
+        reload();
+        log.info("Bucket {} now routed to shard {}", bucket, shard);
+    }
+
+    /**
+     * Start mirroring writes for a bucket to a second shard.
+     */
+    public void startDualWrite(int bucket, int shard) {
+        checkBucketAndShard(bucket, shard);
+
+        catalog().update("UPDATE " + ROUTING_TABLE + " SET dual_write_shard = ? WHERE bucket = ?", shard, bucket);
+        reload();
+    }
+
+    /**
+     * Flip a bucket to {@code target} and keep mirroring writes back to {@code source}, in one
+     * statement. Instances that have not refreshed yet still write to both shards.
+     */
+    public void cutover(int bucket, int source, int target) {
+        checkBucketAndShard(bucket, target);
+
+        catalog().update("UPDATE " + ROUTING_TABLE + " SET shard_index = ?, dual_write_shard = ? " +
+                         "WHERE bucket = ? AND shard_index = ?", target, source, bucket, source);
+        reload();
+        log.info("Bucket {} cut over from shard {} to shard {}", bucket, source, target);
+    }
+
+    public void stopDualWrite(int bucket) {
+        catalog().update("UPDATE " + ROUTING_TABLE + " SET dual_write_shard = NULL WHERE bucket = ?", bucket);
+        reload();
+    }
+
+    public long getRefreshIntervalMs() {
+        return shardingProperties.getRouting().getRefreshIntervalMs();
+    }
+
+    private void checkBucketAndShard(int bucket, int shard) {
+        if (bucket < 0 || bucket >= numBuckets) {
+            throw new IllegalArgumentException("Unknown bucket: " + bucket);
+        }
+        shardingConfig.getDataSourceForShard(shard);
+    }
+
+    @Scheduled(fixedDelayString = "${sharding.routing.refresh-interval-ms:30000}")
+    public void refresh() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.warn("Routing table refresh failed, keeping current table", e);
+        }
+    }
+
+    /**
+     * Re-read the routing table and swap it in atomically. The table must cover every bucket
+     * with a configured shard; otherwise the current table is kept and this throws.
+     */
+    public void reload() {
+        List<Map<String, Object>> rows = catalog().queryForList(
+            "SELECT bucket, shard_index, dual_write_shard FROM " + ROUTING_TABLE);
+
+        int numShards = shardingConfig.getNumShards();
+        Route[] table = new Route[numBuckets];
+        for (Map<String, Object> row : rows) {
+            int bucket = ((Number) row.get("bucket")).intValue();
+            int shard = ((Number) row.get("shard_index")).intValue();
+            Number dualWrite = (Number) row.get("dual_write_shard");
+            if (bucket < 0 || bucket >= numBuckets) {
+                log.warn("Ignoring routing entry for bucket {}: outside sharding.virtual-buckets", bucket);
+                continue;
+            }
+            if (shard < 0 || shard >= numShards || (dualWrite != null && dualWrite.intValue() >= numShards)) {
+                throw new IllegalStateException("Bucket " + bucket + " is routed to shard " + shard
+                    + (dualWrite != null ? " (dual write " + dualWrite + ")" : "") + ", but only "
+                    + numShards + " shards are configured");
+            }
+            table[bucket] = new Route(shard, dualWrite != null ? dualWrite.intValue() : NO_SHARD);
+        }
+        for (int bucket = 0; bucket < numBuckets; bucket++) {
+            if (table[bucket] == null) {
+                throw new IllegalStateException(ROUTING_TABLE + " has no entry for bucket " + bucket);
+            }
+        }
+        routes = table;
+    }
+
+    private void createAndSeedRoutingTable() {
+        JdbcTemplate catalog = catalog();
+        catalog.execute("CREATE TABLE IF NOT EXISTS " + ROUTING_TABLE + " (" +
+                        "bucket INT PRIMARY KEY, " +
+                        "shard_index INT NOT NULL, " +
+                        "dual_write_shard INT NULL, " +
+                        "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP)");
+
+        Integer dualWriteColumn = catalog.queryForObject(
+            "SELECT COUNT(*) FROM information_schema.COLUMNS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = 'dual_write_shard'",
+            Integer.class, ROUTING_TABLE);
+        if (dualWriteColumn != null && dualWriteColumn == 0) {
+            catalog.execute("ALTER TABLE " + ROUTING_TABLE + " ADD COLUMN dual_write_shard INT NULL");
+        }
+
+        Integer existing = catalog.queryForObject("SELECT COUNT(*) FROM " + ROUTING_TABLE, Integer.class);
+        if (existing != null && existing >= numBuckets) {
+            return;
+        }
+
+        // Seeded once with bucket % shards; INSERT IGNORE keeps this safe when several instances
+        // start at once, and never touches buckets that already have a row
+        int numShards = shardingConfig.getNumShards();
+        catalog.batchUpdate("INSERT IGNORE INTO " + ROUTING_TABLE + " (bucket, shard_index) VALUES (?, ?)",
+            new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    ps.setInt(1, i);
+                    ps.setInt(2, i % numShards);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return numBuckets;
+                }
+            });
+    }
+
+    private JdbcTemplate catalog() {
+        return shardingConfig.getJdbcTemplate(0);
+    }
+}
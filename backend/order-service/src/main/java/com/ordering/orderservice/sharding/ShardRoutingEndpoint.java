@@ -0,0 +1,35 @@
+package com.ordering.orderservice.sharding;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * /actuator/shardrouting - current bucket layout; POST forces a reload of the routing table.
+ */
+@Component
+@Endpoint(id = "shardrouting")
+public class ShardRoutingEndpoint {
+    
+    @Autowired
+    private ShardRouter shardRouter;
+    
+    @ReadOperation
+    public Map<String, Object> routing() {
+        Map<String, Object> routing = new HashMap<>();
+        routing.put("virtualBuckets", shardRouter.getNumBuckets());
+        routing.put("bucketsPerShard", shardRouter.getBucketCountsByShard());
+        return routing;
+    }
+    
+    @WriteOperation
+    public Map<String, Object> reload() {
+        shardRouter.reload();
+        return routing();
+    }
+}
@@ -0,0 +1,17 @@
+package com.ordering.orderservice.sharding;
+
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * Order counts for one shard, broken down by status and by created_year.
+ */
+@Data
+public class ShardStats {
+    private int shardIndex;
+    private String databaseName;
+    private long orderCount;
+    private Map<String, Long> ordersByStatus;
+    private Map<Integer, Long> ordersByYear;
+}
@@ -0,0 +1,18 @@
+package com.ordering.orderservice.sharding;
+
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Point-in-time copy of the shard counters served by the stats endpoint.
+ * {@code reconciledAt} is the last time the counters were checked against the databases.
+ */
+@Data
+public class ShardStatsSnapshot {
+    private long totalOrders;
+    private List<ShardStats> shards;
+    private Instant generatedAt;
+    private Instant reconciledAt;
+}
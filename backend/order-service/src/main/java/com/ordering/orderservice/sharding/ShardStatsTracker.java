@@ -0,0 +1,155 @@
+package com.ordering.orderservice.sharding;
+
+import com.ordering.orderservice.config.ShardingConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-shard order counts by status and year, kept in memory so the stats endpoint never
+ * scans the orders tables.
+ *
+ * Counters start from a GROUP BY on every shard and are then moved by the repository on
+ * each insert and status change. Writes this instance does not see (other instances,
+ * the JPA path, bucket migrations) make them drift, so they are recounted from the shard
+ * primaries every {@code sharding.stats.reconcile-interval-ms}.
+ */
+@Component
+@Slf4j
+public class ShardStatsTracker {
+
+    @Autowired
+    private ShardingConfig shardingConfig;
+
+    @Value("${sharding.stats.snapshot-ttl-ms:1000}")
+    private long snapshotTtlMs;
+
+    // shard -> status -> created_year -> count
+    private final Map<Integer, Map<String, Map<Integer, LongAdder>>> counters = new ConcurrentHashMap<>();
+
+    private volatile Instant reconciledAt;
+    private volatile ShardStatsSnapshot snapshot;
+
+    public void recordInsert(int shardIndex, String status, int year) {
+        counter(shardIndex, status, year).increment();
+    }
+
+    public void recordStatusChange(int shardIndex, String from, String to, int year) {
+        if (from == null || from.equals(to)) {
+            return;
+        }
+        counter(shardIndex, from, year).decrement();
+        counter(shardIndex, to, year).increment();
+    }
+
+    private LongAdder counter(int shardIndex, String status, int year) {
+        return counters.computeIfAbsent(shardIndex, k -> new ConcurrentHashMap<>())
+                       .computeIfAbsent(status, k -> new ConcurrentHashMap<>())
+                       .computeIfAbsent(year, k -> new LongAdder());
+    }
+
+    /**
+     * Recount every shard. A shard that cannot be read keeps its current counters.
+     * <p>
+     * The recount is read from the primary, since a lagging replica would undo recent writes.
+     * It is applied as a correction, {@code recount - value before the recount}, rather than
+     * by replacing the counters, so inserts and status changes recorded while the query ran
+     * are kept.
+     */
+    @Scheduled(fixedDelayString = "${sharding.stats.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        boolean complete = true;
+        for (int shard = 0; shard < shardingConfig.getNumShards(); shard++) {
+            try {
+                Map<String, Map<Integer, Long>> before = new TreeMap<>();
+                counters.getOrDefault(shard, Map.of()).forEach((status, years) -> years.forEach(
+                    (year, adder) -> before.computeIfAbsent(status, k -> new TreeMap<>()).put(year, adder.sum())));
+
+                Map<String, Map<Integer, Long>> fresh = new TreeMap<>();
+                shardingConfig.getJdbcTemplate(shard).query(
+                    "SELECT status, created_year, COUNT(*) AS cnt FROM orders GROUP BY status, created_year",
+                    rs -> {
+                        fresh.computeIfAbsent(rs.getString("status"), k -> new TreeMap<>())
+                             .put(rs.getInt("created_year"), rs.getLong("cnt"));
+                    });
+
+                int shardIndex = shard;
+                fresh.forEach((status, years) -> years.forEach((year, count) -> counter(shardIndex, status, year)
+                    .add(count - before.getOrDefault(status, Map.of()).getOrDefault(year, 0L))));
+                // Counts that no longer appear in the recount go back to what was added since
+                before.forEach((status, years) -> years.forEach((year, count) -> {
+                    if (!fresh.getOrDefault(status, Map.of()).containsKey(year)) {
+                        counter(shardIndex, status, year).add(-count);
+                    }
+                }));
+            } catch (DataAccessException e) {
+                complete = false;
+                log.warn("Could not reconcile order counts for shard {}, keeping tracked counts", shard, e);
+            }
+        }
+        if (complete) {
+            reconciledAt = Instant.now();
+        }
+        snapshot = null;
+    }
+
+    /**
+     * Counts as of at most {@code sharding.stats.snapshot-ttl-ms} ago.
+     */
+    public ShardStatsSnapshot getSnapshot() {
+        ShardStatsSnapshot current = snapshot;
+        Instant now = Instant.now();
+        if (current == null || current.getGeneratedAt().plusMillis(snapshotTtlMs).isBefore(now)) {
+            current = buildSnapshot(now);
+            snapshot = current;
+        }
+        return current;
+    }
+
+    private ShardStatsSnapshot buildSnapshot(Instant now) {
+        List<ShardStats> shards = new ArrayList<>();
+        long total = 0;
+
+        for (int shard = 0; shard < shardingConfig.getNumShards(); shard++) {
+            Map<String, Long> byStatus = new TreeMap<>();
+            Map<Integer, Long> byYear = new TreeMap<>();
+            long shardTotal = 0;
+
+            for (Map.Entry<String, Map<Integer, LongAdder>> status : counters.getOrDefault(shard, Map.of()).entrySet()) {
+                for (Map.Entry<Integer, LongAdder> year : status.getValue().entrySet()) {
+                    long count = year.getValue().sum();
+                    byStatus.merge(status.getKey(), count, Long::sum);
+                    byYear.merge(year.getKey(), count, Long::sum);
+                    shardTotal += count;
+                }
+            }
+
+            ShardStats stats = new ShardStats();
+            stats.setShardIndex(shard);
+            stats.setDatabaseName(shardingConfig.getDatabaseName(shard));
+            stats.setOrderCount(shardTotal);
+            stats.setOrdersByStatus(byStatus);
+            stats.setOrdersByYear(byYear);
+            shards.add(stats);
+            total += shardTotal;
+        }
+
+        ShardStatsSnapshot built = new ShardStatsSnapshot();
+        built.setTotalOrders(total);
+        built.setShards(shards);
+        built.setGeneratedAt(now);
+        built.setReconciledAt(reconciledAt);
+        return built;
+    }
+}
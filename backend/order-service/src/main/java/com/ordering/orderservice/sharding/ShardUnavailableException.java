@@ -0,0 +1,22 @@
+package com.ordering.orderservice.sharding;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * A shard refused the call up front: its circuit is open or its bulkhead is full.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class ShardUnavailableException extends RuntimeException {
+    
+    private final int shardIndex;
+    
+    public ShardUnavailableException(int shardIndex, String reason) {
+        super("Shard " + shardIndex + " unavailable: " + reason);
+        this.shardIndex = shardIndex;
+    }
+    
+    public int getShardIndex() {
+        return shardIndex;
+    }
+}
@@ -0,0 +1,123 @@
+package com.ordering.orderservice.config;
+
+import com.ordering.common.util.SnowflakeIdGenerator;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 10,000 simultaneous checkouts on virtual threads against platform threads capped like Tomcat's
+ * default pool (200). A checkout blocks the way {@code OrderService.createOrder} does: a cart
+ * lookup, an order ID from the shared {@link SnowflakeIdGenerator}, the insert and the cart
+ * clear, each stood in for by a sleep. Reports elapsed time, peak checkouts in flight, peak
+ * platform threads and peak heap. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class VirtualThreadBenchmark {
+
+    private static final int CHECKOUTS = 10_000;
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final long CART_CALL_MS = 20;
+    private static final long INSERT_MS = 10;
+    private static final long CLEAR_CALL_MS = 10;
+
+    private final SnowflakeIdGenerator ids = new SnowflakeIdGenerator(1);
+
+    @Test
+    void virtualThreadsRunEveryCheckoutAtOnce() throws Exception {
+        Result platform = run(false);
+        Result virtual = run(true);
+        System.out.println("platform: " + platform);
+        System.out.println("virtual:  " + virtual);
+
+        assertThat(platform.peakInFlight()).isLessThanOrEqualTo(TOMCAT_MAX_THREADS);
+        assertThat(virtual.peakInFlight()).isGreaterThan(TOMCAT_MAX_THREADS);
+        assertThat(virtual.elapsedMs()).isLessThan(platform.elapsedMs());
+    }
+
+    private Result run(boolean virtual) throws Exception {
+        WorkerThreads workerThreads = new WorkerThreads();
+        ReflectionTestUtils.setField(workerThreads, "environment",
+                                     new MockEnvironment().withProperty("spring.threads.virtual.enabled",
+                                                                        String.valueOf(virtual)));
+        assertThat(workerThreads.isVirtual()).isEqualTo(virtual);
+
+        System.gc();
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+        threadBean.resetPeakThreadCount();
+        long heapBefore = memoryBean.getHeapMemoryUsage().getUsed();
+
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peakInFlight = new AtomicInteger();
+        AtomicLong peakHeap = new AtomicLong();
+        AtomicInteger done = new AtomicInteger();
+        Thread sampler = Thread.ofPlatform().daemon().start(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                peakHeap.accumulateAndGet(memoryBean.getHeapMemoryUsage().getUsed(), Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+
+        ExecutorService checkouts = virtual
+            ? Executors.newThreadPerTaskExecutor(workerThreads.factory("checkout"))
+            : Executors.newFixedThreadPool(TOMCAT_MAX_THREADS, workerThreads.factory("checkout"));
+        long start = System.nanoTime();
+        for (int i = 0; i < CHECKOUTS; i++) {
+            int userId = i;
+            checkouts.execute(() -> {
+                peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    checkout(userId);
+                    done.incrementAndGet();
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            });
+        }
+        checkouts.shutdown();
+        assertThat(checkouts.awaitTermination(5, TimeUnit.MINUTES)).isTrue();
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        sampler.interrupt();
+        sampler.join();
+
+        assertThat(done.get()).isEqualTo(CHECKOUTS);
+        return new Result(virtual ? "virtual" : "platform", elapsedMs, peakInFlight.get(),
+                          threadBean.getPeakThreadCount(), (peakHeap.get() - heapBefore) / (1024 * 1024));
+    }
+
+    private void checkout(int userId) {
+        sleep(CART_CALL_MS);
+        ids.nextId(userId % 1024);
+        sleep(INSERT_MS);
+        sleep(CLEAR_CALL_MS);
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Result(String mode, long elapsedMs, int peakInFlight, int peakPlatformThreads, long peakHeapMb) {
+    }
+}
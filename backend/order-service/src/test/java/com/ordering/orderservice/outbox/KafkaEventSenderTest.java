@@ -0,0 +1,129 @@
+package com.ordering.orderservice.outbox;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.SendResult;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.groups.Tuple.tuple;
+import static org.awaitility.Awaitility.await;
+
+class KafkaEventSenderTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private StandInKafka kafka;
+    private KafkaEventSender sender;
+
+    @BeforeEach
+    void setUp() {
+        kafka = new StandInKafka();
+        sender = kafka.sender(registry);
+    }
+
+    @Test
+    void sendReturnsBeforeTheAckAndTimesIt() {
+        CompletableFuture<SendResult<String, String>> send = sender.send("order-created", "42", "1001");
+
+        assertThat(send).isNotDone();
+        assertThat(registry.find("kafka.send.ack.latency").timer()).isNull();
+
+        kafka.completeNext();
+
+        assertThat(send).isCompleted();
+        assertThat(registry.get("kafka.send.ack.latency").tag("topic", "order-created").timer().count())
+            .isEqualTo(1);
+    }
+
+    @Test
+    void failedSendIsCounted() {
+        CompletableFuture<SendResult<String, String>> send = sender.send("order-created", "42", "1001");
+
+        kafka.errorNext(new IllegalStateException("broker went away"));
+
+        assertThat(send).isCompletedExceptionally();
+        assertThat(registry.get("kafka.send.failures").tag("topic", "order-created").counter().count())
+            .isEqualTo(1);
+        assertThat(registry.find("kafka.send.ack.latency").timer()).isNull();
+    }
+
+    @Test
+    void batchFillRatioIsAverageBatchOverBatchSize() {
+        assertThat(registry.get("kafka.send.batch.fill.ratio").gauge().value()).isZero();
+
+        MetricName batchSizeAvg = new MetricName("batch-size-avg", "producer-metrics", "", Map.of());
+        kafka.setMockMetrics(batchSizeAvg, new Metric() {
+            @Override
+            public MetricName metricName() {
+                return batchSizeAvg;
+            }
+
+            @Override
+            public Object metricValue() {
+                return 32768.0;
+            }
+        });
+
+        // The default throughput profile batches up to 128 KB
+        assertThat(registry.get("kafka.send.batch.fill.ratio").gauge().value()).isEqualTo(0.25);
+    }
+
+    @Test
+    void outboxBatchIsSentWholeBeforeWaitingForAcks() {
+        KafkaOutboxPublisher publisher = kafka.publisher(sender, 5000);
+        CompletableFuture<Void> publish = CompletableFuture.runAsync(() -> publisher.publish(List.of(
+            event(1, "order.created", 42L), event(2, "order.created", 43L), event(3, "order.status-changed", 42L))));
+
+        await().atMost(2, TimeUnit.SECONDS).until(() -> kafka.history().size() == 3);
+        assertThat(publish).isNotDone();
+        assertThat(kafka.history())
+            .extracting(ProducerRecord::topic, ProducerRecord::key, ProducerRecord::value)
+            .containsExactly(tuple("order-created", "42", "1"),
+                             tuple("order-created", "43", "2"),
+                             tuple("order-status-changed", "42", "3"));
+
+        kafka.completeNext();
+        kafka.completeNext();
+        assertThat(publish).isNotDone();
+        kafka.completeNext();
+
+        publish.join();
+    }
+
+    @Test
+    void outboxBatchFailsIfAnyAckFails() {
+        KafkaOutboxPublisher publisher = kafka.publisher(sender, 5000);
+        CompletableFuture<Void> publish = CompletableFuture.runAsync(() -> publisher.publish(List.of(
+            event(1, "order.created", 42L), event(2, "order.created", 43L))));
+        await().atMost(2, TimeUnit.SECONDS).until(() -> kafka.history().size() == 2);
+
+        kafka.completeNext();
+        kafka.errorNext(new IllegalStateException("not enough replicas"));
+
+        assertThatThrownBy(publish::join).hasCauseInstanceOf(IllegalStateException.class)
+                                         .hasMessageContaining("did not acknowledge 2 outbox events");
+    }
+
+    @Test
+    void outboxBatchFailsWhenAcksTakeTooLong() {
+        KafkaOutboxPublisher publisher = kafka.publisher(sender, 100);
+
+        assertThatThrownBy(() -> publisher.publish(List.of(event(1, "order.created", 42L))))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("Kafka did not acknowledge 1 outbox events");
+    }
+
+    private static OutboxEvent event(long aggregateId, String eventType, Long userId) {
+        return new OutboxEvent(aggregateId, eventType, aggregateId, userId, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,90 @@
+package com.ordering.orderservice.outbox;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Events/sec through the outbox's Kafka path against a stand-in broker that acks everything
+ * sent so far once per 2 ms round trip, as one produce request carrying every ready batch
+ * would. Compares {@link KafkaOutboxPublisher} (a relay batch sent without blocking, then
+ * one wait for all acks) with waiting for each event's ack before sending the next. The
+ * batched path must keep up with the lunch peak, 2,000 events/s unless
+ * {@code -Dbenchmark.peak-events-per-sec} says otherwise. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class KafkaProducerBenchmark {
+
+    private static final long ROUND_TRIP_MS = 2;
+    private static final int RELAY_BATCH = 200;
+    private static final long PEAK_EVENTS_PER_SEC = Long.getLong("benchmark.peak-events-per-sec", 2000);
+
+    @Test
+    void batchedAsyncSendsKeepUpWithThePeak() throws Exception {
+        double blocking = run(2_000, false);
+        double batched = run(40_000, true);
+        System.out.printf("peak to sustain:          %d events/s%n", PEAK_EVENTS_PER_SEC);
+
+        assertThat(batched).isGreaterThan(blocking)
+                           .isGreaterThanOrEqualTo(PEAK_EVENTS_PER_SEC);
+    }
+
+    private double run(int events, boolean batched) throws Exception {
+        StandInKafka kafka = new StandInKafka();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        KafkaEventSender sender = kafka.sender(registry);
+        KafkaOutboxPublisher publisher = kafka.publisher(sender, 5000);
+
+        Thread broker = Thread.ofPlatform().name("stand-in-broker").start(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    Thread.sleep(ROUND_TRIP_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                while (kafka.completeNext()) {
+                    // Ack everything this round trip carried
+                }
+            }
+        });
+        try {
+            long start = System.nanoTime();
+            if (batched) {
+                for (int sent = 0; sent < events; sent += RELAY_BATCH) {
+                    publisher.publish(batch(sent, RELAY_BATCH));
+                }
+            } else {
+                for (int i = 0; i < events; i++) {
+                    sender.send("order-created", String.valueOf(i % 500), String.valueOf(i)).get(5, TimeUnit.SECONDS);
+                }
+            }
+            double perSecond = events / ((System.nanoTime() - start) / 1e9);
+
+            Timer acks = registry.get("kafka.send.ack.latency").timer();
+            assertThat(acks.count()).isEqualTo(events);
+            System.out.printf("%-25s %.0f events/s, mean ack %.1f ms%n",
+                              batched ? "batches of " + RELAY_BATCH + ":" : "one blocking send each:",
+                              perSecond, acks.mean(TimeUnit.MILLISECONDS));
+            return perSecond;
+        } finally {
+            broker.interrupt();
+            broker.join();
+        }
+    }
+
+    private static List<OutboxEvent> batch(int first, int size) {
+        List<OutboxEvent> events = new ArrayList<>(size);
+        for (int i = first; i < first + size; i++) {
+            events.add(new OutboxEvent(i, "order.created", (long) i, (long) (i % 500), LocalDateTime.now()));
+        }
+        return events;
+    }
+}
@@ -0,0 +1,102 @@
+package com.ordering.orderservice.outbox;
+
+import com.ordering.orderservice.config.RabbitMQConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+class RabbitOutboxPublisherTest {
+
+    private final StandInRabbit rabbit = new StandInRabbit();
+
+    @Test
+    void batchIsPublishedWholeBeforeWaitingForConfirms() {
+        RabbitOutboxPublisher publisher = rabbit.publisher(5000);
+        CompletableFuture<Void> publish = CompletableFuture.runAsync(() -> publisher.publish(List.of(
+            event(1, "order.created", 1001L), event(2, "order.created", 1002L), event(3, "order.payment", 1001L))));
+
+        await().atMost(2, TimeUnit.SECONDS).until(() -> rabbit.pendingConfirms() == 3);
+        assertThat(publish).isNotDone();
+        assertThat(rabbit.queue(RabbitMQConfig.ORDER_QUEUE)).extracting(RabbitOutboxPublisherTest::body)
+                                                            .containsExactly("1001", "1002");
+        assertThat(rabbit.queue(RabbitMQConfig.PAYMENT_QUEUE)).extracting(RabbitOutboxPublisherTest::body)
+                                                              .containsExactly("1001");
+
+        rabbit.confirm(2, true, null);
+        assertThat(publish).isNotDone();
+        rabbit.confirmAll();
+
+        publish.join();
+    }
+
+    @Test
+    void payloadIsJsonNotJavaSerialization() {
+        RabbitOutboxPublisher publisher = rabbit.publisher(5000);
+        CompletableFuture<Void> publish =
+            CompletableFuture.runAsync(() -> publisher.publish(List.of(event(1, "order.created", 1001L))));
+        await().atMost(2, TimeUnit.SECONDS).until(() -> rabbit.pendingConfirms() == 1);
+
+        Message message = rabbit.queue(RabbitMQConfig.ORDER_QUEUE).get(0);
+
+        assertThat(message.getMessageProperties().getContentType()).isEqualTo(MessageProperties.CONTENT_TYPE_JSON);
+        assertThat(body(message)).isEqualTo("1001");
+        rabbit.confirmAll();
+        publish.join();
+    }
+
+    @Test
+    void nackFailsTheBatch() {
+        RabbitOutboxPublisher publisher = rabbit.publisher(5000);
+        CompletableFuture<Void> publish = CompletableFuture.runAsync(() -> publisher.publish(List.of(
+            event(1, "order.created", 1001L), event(2, "order.created", 1002L))));
+        await().atMost(2, TimeUnit.SECONDS).until(() -> rabbit.pendingConfirms() == 2);
+
+        rabbit.confirm(1, true, null);
+        rabbit.confirm(1, false, "queue full");
+
+        assertThatThrownBy(publish::join).hasCauseInstanceOf(AmqpException.class)
+                                         .hasMessageContaining("Broker nacked outbox event 2: queue full");
+    }
+
+    @Test
+    void unroutableEventFailsTheBatch() {
+        RabbitOutboxPublisher publisher = rabbit.publisher(5000);
+        CompletableFuture<Void> publish = CompletableFuture.runAsync(() -> publisher.publish(List.of(
+            event(1, "order.created", 1001L), event(2, "order.refunded", 1001L))));
+        await().atMost(2, TimeUnit.SECONDS).until(() -> rabbit.pendingConfirms() == 2);
+
+        // The broker acks a returned message too
+        rabbit.confirmAll();
+
+        assertThatThrownBy(publish::join).hasCauseInstanceOf(AmqpException.class)
+                                         .hasMessageContaining("Outbox event 2 was unroutable: NO_ROUTE");
+    }
+
+    @Test
+    void missingConfirmFailsTheBatch() {
+        RabbitOutboxPublisher publisher = rabbit.publisher(100);
+
+        assertThatThrownBy(() -> publisher.publish(List.of(event(1, "order.created", 1001L))))
+            .isInstanceOf(AmqpException.class)
+            .hasMessage("No confirm for outbox event 1");
+    }
+
+    private static String body(Message message) {
+        return new String(message.getBody(), StandardCharsets.UTF_8);
+    }
+
+    private static OutboxEvent event(long id, String eventType, Long orderId) {
+        return new OutboxEvent(id, eventType, orderId, 42L, LocalDateTime.now());
+    }
+}
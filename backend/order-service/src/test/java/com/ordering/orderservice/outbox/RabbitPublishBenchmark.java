@@ -0,0 +1,77 @@
+package com.ordering.orderservice.outbox;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Events/sec through {@link RabbitOutboxPublisher} against an in-JVM broker stand-in that
+ * confirms everything published so far once per 2 ms round trip. A relay batch of 200
+ * shares its confirm waits; the comparison publishes and confirms one event at a time. Also
+ * prints the message body size with the JSON converter against Java serialization. Run with
+ * {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class RabbitPublishBenchmark {
+
+    private static final long ROUND_TRIP_MS = 2;
+    private static final int RELAY_BATCH = 200;
+
+    @Test
+    void confirmsAwaitedPerBatchBeatOnePerEvent() throws Exception {
+        double oneByOne = run(2_000, 1);
+        double batched = run(40_000, RELAY_BATCH);
+        System.out.printf("confirm each event:  %.0f events/s%n", oneByOne);
+        System.out.printf("batches of %d:      %.0f events/s (%.0fx)%n", RELAY_BATCH, batched, batched / oneByOne);
+
+        int json = new Jackson2JsonMessageConverter().toMessage(1_234_567_890L, new MessageProperties()).getBody().length;
+        int java = new SimpleMessageConverter().toMessage(1_234_567_890L, new MessageProperties()).getBody().length;
+        System.out.printf("order ID body:       %d bytes as JSON, %d bytes Java-serialized%n", json, java);
+
+        assertThat(batched).isGreaterThan(oneByOne);
+        assertThat(json).isLessThan(java);
+    }
+
+    private double run(int events, int batchSize) throws Exception {
+        StandInRabbit rabbit = new StandInRabbit();
+        RabbitOutboxPublisher publisher = rabbit.publisher(5000);
+        Thread broker = Thread.ofPlatform().name("stand-in-broker").start(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    Thread.sleep(ROUND_TRIP_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                rabbit.confirmAll();
+            }
+        });
+        try {
+            long start = System.nanoTime();
+            for (int sent = 0; sent < events; sent += batchSize) {
+                publisher.publish(batch(sent, batchSize));
+            }
+            double perSecond = events / ((System.nanoTime() - start) / 1e9);
+            assertThat(rabbit.queue("order-queue")).hasSize(events);
+            return perSecond;
+        } finally {
+            broker.interrupt();
+            broker.join();
+        }
+    }
+
+    private static List<OutboxEvent> batch(int first, int size) {
+        List<OutboxEvent> events = new ArrayList<>(size);
+        for (int i = first; i < first + size; i++) {
+            events.add(new OutboxEvent(i, "order.created", (long) i, (long) (i % 500), LocalDateTime.now()));
+        }
+        return events;
+    }
+}
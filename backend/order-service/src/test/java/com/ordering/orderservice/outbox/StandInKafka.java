@@ -0,0 +1,45 @@
+package com.ordering.orderservice.outbox;
+
+import com.ordering.orderservice.config.KafkaProducerProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+/**
+ * An in-memory producer standing in for the Kafka cluster: sends are held until the test
+ * acks them with {@link #completeNext()} or fails them with {@link #errorNext}. KafkaTemplate
+ * closes a non-transactional producer after every send, so closing is a no-op here.
+ */
+class StandInKafka extends MockProducer<String, String> {
+
+    StandInKafka() {
+        super(false, new StringSerializer(), new StringSerializer());
+    }
+
+    @Override
+    public void close(Duration timeout) {
+    }
+
+    KafkaTemplate<String, String> template() {
+        return new KafkaTemplate<>(() -> this);
+    }
+
+    KafkaEventSender sender(MeterRegistry registry) {
+        KafkaEventSender sender = new KafkaEventSender();
+        ReflectionTestUtils.setField(sender, "kafkaTemplate", template());
+        ReflectionTestUtils.setField(sender, "producerProperties", new KafkaProducerProperties());
+        sender.bindTo(registry);
+        return sender;
+    }
+
+    KafkaOutboxPublisher publisher(KafkaEventSender sender, long confirmTimeoutMs) {
+        KafkaOutboxPublisher publisher = new KafkaOutboxPublisher();
+        ReflectionTestUtils.setField(publisher, "sender", sender);
+        ReflectionTestUtils.setField(publisher, "confirmTimeoutMs", confirmTimeoutMs);
+        return publisher;
+    }
+}
@@ -0,0 +1,84 @@
+package com.ordering.orderservice.outbox;
+
+import com.ordering.orderservice.config.RabbitMQConfig;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A RabbitTemplate that publishes into memory instead of to a broker. Messages go through
+ * the configured JSON converter and are routed by {@link RabbitMQConfig#QUEUES}; an unknown
+ * routing key comes back as returned, as with {@code mandatory: true}. Publisher confirms
+ * stay pending until the test confirms them.
+ */
+class StandInRabbit extends RabbitTemplate {
+
+    private final Map<String, List<Message>> queues = new ConcurrentHashMap<>();
+    private final Deque<CorrelationData> unconfirmed = new ArrayDeque<>();
+
+    StandInRabbit() {
+        setMessageConverter(new Jackson2JsonMessageConverter());
+    }
+
+    @Override
+    public void convertAndSend(String exchange, String routingKey, Object object, CorrelationData correlationData) {
+        Message message = getMessageConverter().toMessage(object, new MessageProperties());
+        String queue = RabbitMQConfig.ORDER_EXCHANGE.equals(exchange) ? RabbitMQConfig.QUEUES.get(routingKey) : null;
+        if (queue != null) {
+            queues.computeIfAbsent(queue, q -> new ArrayList<>()).add(message);
+        } else if (correlationData != null) {
+            correlationData.setReturned(new ReturnedMessage(message, 312, "NO_ROUTE", exchange, routingKey));
+        }
+        if (correlationData != null) {
+            synchronized (unconfirmed) {
+                unconfirmed.add(correlationData);
+            }
+        }
+    }
+
+    /**
+     * Ack (or nack) the oldest pending confirms, up to {@code count}; returns how many
+     */
+    int confirm(int count, boolean ack, String reason) {
+        List<CorrelationData> confirmed = new ArrayList<>();
+        synchronized (unconfirmed) {
+            while (confirmed.size() < count && !unconfirmed.isEmpty()) {
+                confirmed.add(unconfirmed.poll());
+            }
+        }
+        confirmed.forEach(correlation -> correlation.getFuture().complete(new CorrelationData.Confirm(ack, reason)));
+        return confirmed.size();
+    }
+
+    int confirmAll() {
+        return confirm(Integer.MAX_VALUE, true, null);
+    }
+
+    int pendingConfirms() {
+        synchronized (unconfirmed) {
+            return unconfirmed.size();
+        }
+    }
+
+    List<Message> queue(String name) {
+        return queues.getOrDefault(name, List.of());
+    }
+
+    RabbitOutboxPublisher publisher(long confirmTimeoutMs) {
+        RabbitOutboxPublisher publisher = new RabbitOutboxPublisher();
+        ReflectionTestUtils.setField(publisher, "rabbitTemplate", this);
+        ReflectionTestUtils.setField(publisher, "confirmTimeoutMs", confirmTimeoutMs);
+        return publisher;
+    }
+}
@@ -0,0 +1,81 @@
+package com.ordering.orderservice.repository;
+
+import com.ordering.common.model.CartItem;
+import com.ordering.orderservice.entity.Order;
+import com.ordering.orderservice.sharding.ScatterGatherExecutor;
+import com.ordering.orderservice.sharding.TestShards;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Orders/sec for {@link ShardedOrderRepository#insertAll} (per-shard JDBC batches, one
+ * transaction per batch) against one {@link ShardedOrderRepository#save} per order, on
+ * four in-memory shards. H2 has no network round trip or fsync per commit, so on MySQL the
+ * gap is wider; the ratio is what to watch. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class BulkInsertBenchmark {
+
+    private static final int ORDERS = 20_000;
+
+    @Test
+    void batchedInsertsBeatOneInsertPerOrder() {
+        double single = run(false);
+        double bulk = run(true);
+        System.out.printf("one insert per order: %.0f orders/s%n", single);
+        System.out.printf("bulk, 500 per batch:  %.0f orders/s (%.1fx)%n", bulk, bulk / single);
+
+        assertThat(bulk).isGreaterThan(single);
+    }
+
+    private double run(boolean bulk) {
+        TestShards shards = new TestShards(4);
+        ScatterGatherExecutor scatterGatherExecutor = shards.scatterGatherExecutor(2000);
+        ShardedOrderRepository repository = shards.orderRepository(scatterGatherExecutor);
+        List<Order> orders = orders();
+        try {
+            long start = System.nanoTime();
+            if (bulk) {
+                assertThat(repository.insertAll(orders)).containsOnlyNulls();
+            } else {
+                orders.forEach(repository::save);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            int stored = 0;
+            for (int shard = 0; shard < 4; shard++) {
+                stored += shards.jdbc(shard).queryForObject("SELECT COUNT(*) FROM orders", Integer.class);
+            }
+            assertThat(stored).isEqualTo(ORDERS);
+            return ORDERS / seconds;
+        } finally {
+            scatterGatherExecutor.shutdown();
+            shards.close();
+        }
+    }
+
+    private static List<Order> orders() {
+        CartItem item = new CartItem();
+        item.setMenuItemId(7L);
+        item.setName("Margherita");
+        item.setPrice(new BigDecimal("6.25"));
+        item.setQuantity(2);
+        item.setSubtotal(new BigDecimal("12.50"));
+
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        List<Order> orders = new ArrayList<>(ORDERS);
+        for (int i = 0; i < ORDERS; i++) {
+            Order order = TestShards.order(i, "PENDING", now);
+            order.setLineItems(List.of(item, item));
+            orders.add(order);
+        }
+        return orders;
+    }
+}
@@ -0,0 +1,138 @@
+package com.ordering.orderservice.repository;
+
+import com.ordering.common.dto.CursorPage;
+import com.ordering.common.util.CursorCodec;
+import com.ordering.common.util.InvalidCursorException;
+import com.ordering.orderservice.entity.Order;
+import com.ordering.orderservice.sharding.ScatterGatherExecutor;
+import com.ordering.orderservice.sharding.ShardUnavailableException;
+import com.ordering.orderservice.sharding.TestShards;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CursorPaginationTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 15, 10, 0);
+    private static final Comparator<Order> NEWEST_FIRST = Comparator
+        .comparing(Order::getCreatedAt, Comparator.reverseOrder())
+        .thenComparing(Order::getId, Comparator.reverseOrder());
+
+    private TestShards shards;
+    private ScatterGatherExecutor scatterGatherExecutor;
+    private ShardedOrderRepository repository;
+    private List<Order> orders;
+
+    @BeforeEach
+    void setUp() {
+        shards = new TestShards(4);
+        scatterGatherExecutor = shards.scatterGatherExecutor(2000);
+        repository = shards.orderRepository(scatterGatherExecutor);
+
+        orders = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            // Every third order shares its created_at with the one before, so pages must break ties on id
+            LocalDateTime createdAt = START.plusMinutes(i - (i % 3 == 2 ? 1 : 0));
+            orders.add(TestShards.order(100 + i % 7, i % 4 == 0 ? "DELIVERED" : "PENDING", createdAt));
+        }
+        assertThat(repository.insertAll(orders)).containsOnlyNulls();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scatterGatherExecutor.shutdown();
+        shards.close();
+    }
+
+    @Test
+    void cursorRoundTrips() {
+        CursorCodec.Position position = new CursorCodec.Position(START, "42");
+
+        CursorCodec.Position decoded = CursorCodec.decode(CursorCodec.encode(position));
+
+        assertThat(decoded.getCreatedAt()).isEqualTo(START);
+        assertThat(decoded.getLongId()).isEqualTo(42L);
+        assertThat(CursorCodec.decode(null)).isNull();
+        assertThat(CursorCodec.decode(" ")).isNull();
+    }
+
+    @Test
+    void foreignCursorsAreRejected() {
+        String perShard = Base64.getUrlEncoder().withoutPadding()
+                                .encodeToString("0:2024-01-15T10:30|42;1:".getBytes(StandardCharsets.UTF_8));
+
+        assertThatThrownBy(() -> CursorCodec.decode("not a cursor!")).isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> CursorCodec.decode(perShard)).isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> repository.findByStatusPage("PENDING", perShard, 5))
+            .isInstanceOf(InvalidCursorException.class);
+    }
+
+    @Test
+    void statusPagesWalkEveryShardOnceInOrder() {
+        List<Long> expected = orders.stream()
+                                    .filter(o -> "PENDING".equals(o.getStatus()))
+                                    .sorted(NEWEST_FIRST)
+                                    .map(Order::getId)
+                                    .collect(Collectors.toList());
+
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPage<Order> page = repository.findByStatusPage("PENDING", cursor, 7);
+            assertThat(page.getItems()).hasSizeLessThanOrEqualTo(7);
+            page.getItems().forEach(o -> seen.add(o.getId()));
+            cursor = page.getNextCursor();
+            assertThat(page.isHasMore()).isEqualTo(cursor != null);
+            pages++;
+        } while (cursor != null);
+
+        assertThat(seen).containsExactlyElementsOf(expected);
+        assertThat(pages).isEqualTo((expected.size() + 6) / 7);
+    }
+
+    @Test
+    void userPagesSeekPastTheCursor() {
+        long userId = 103;
+        List<Long> expected = orders.stream()
+                                    .filter(o -> o.getUserId() == userId)
+                                    .sorted(NEWEST_FIRST)
+                                    .map(Order::getId)
+                                    .collect(Collectors.toList());
+
+        List<Long> seen = new ArrayList<>();
+        CursorCodec.Position after = null;
+        while (true) {
+            List<Order> page = repository.findByUserIdPage(userId, after, 2);
+            if (page.isEmpty()) {
+                break;
+            }
+            page.forEach(o -> seen.add(o.getId()));
+            Order last = page.get(page.size() - 1);
+            after = new CursorCodec.Position(last.getCreatedAt(), last.getId().toString());
+        }
+
+        assertThat(seen).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void pageFailsRatherThanSkippingAShard() {
+        for (int i = 0; i < 5; i++) {
+            shards.guard(2).recordFailure();
+        }
+
+        assertThatThrownBy(() -> repository.findByStatusPage("PENDING", null, 5))
+            .isInstanceOf(ShardUnavailableException.class);
+    }
+}
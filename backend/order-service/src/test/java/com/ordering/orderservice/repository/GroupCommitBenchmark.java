@@ -0,0 +1,83 @@
+package com.ordering.orderservice.repository;
+
+import com.ordering.orderservice.config.ShardingProperties;
+import com.ordering.orderservice.entity.Order;
+import com.ordering.orderservice.sharding.CommitCountingDataSource;
+import com.ordering.orderservice.sharding.ScatterGatherExecutor;
+import com.ordering.orderservice.sharding.TestShards;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Concurrent checkouts inserting one order each through {@link ShardedOrderRepository#save},
+ * with group commit off (one commit per order) and on. Four in-memory shards stand in for
+ * MySQL, each holding every commit for 1 ms, one at a time, as a redo log flush would. Prints
+ * orders/sec, commits/sec and orders per commit. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class GroupCommitBenchmark {
+
+    private static final int SHARDS = 4;
+    private static final int CHECKOUT_THREADS = 64;
+    private static final int ORDERS = 8_000;
+    private static final long FLUSH_MICROS = 1000;
+
+    @Test
+    void groupCommitBeatsOneCommitPerOrder() throws Exception {
+        // Warm up the JIT on both paths before measuring
+        run(false, 1_000, false);
+        run(true, 1_000, false);
+        double single = run(false, ORDERS, true);
+        double grouped = run(true, ORDERS, true);
+
+        assertThat(grouped).isGreaterThan(single);
+    }
+
+    private double run(boolean groupCommit, int orders, boolean print) throws Exception {
+        TestShards shards = new TestShards(SHARDS);
+        ScatterGatherExecutor scatterGatherExecutor = shards.scatterGatherExecutor(2000);
+        ShardedOrderRepository repository = shards.orderRepository(scatterGatherExecutor);
+        List<CommitCountingDataSource> flushes = new ArrayList<>();
+        for (int shard = 0; shard < SHARDS; shard++) {
+            flushes.add(shards.countCommits(shard, FLUSH_MICROS));
+        }
+        ShardingProperties.GroupCommit config = shards.getShardingProperties().getGroupCommit();
+        config.setEnabled(groupCommit);
+        repository.startGroupCommit();
+        ExecutorService checkouts = Executors.newFixedThreadPool(CHECKOUT_THREADS);
+        try {
+            long start = System.nanoTime();
+            List<Future<Order>> saves = new ArrayList<>(orders);
+            for (int i = 0; i < orders; i++) {
+                Order order = TestShards.order(i, "PENDING", LocalDateTime.now());
+                saves.add(checkouts.submit(() -> repository.save(order)));
+            }
+            for (Future<Order> save : saves) {
+                save.get();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            long commits = flushes.stream().mapToLong(CommitCountingDataSource::getCommits).sum();
+            if (print) {
+                System.out.printf("%-22s %6.0f orders/s, %5.0f commits/s, %5.1f orders per commit%n",
+                                  groupCommit ? "group commit:" : "one commit per order:",
+                                  orders / seconds, commits / seconds, orders / (double) commits);
+            }
+            return orders / seconds;
+        } finally {
+            checkouts.shutdown();
+            repository.stopGroupCommit();
+            scatterGatherExecutor.shutdown();
+            shards.close();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.ordering.orderservice.repository;
+
+import com.ordering.common.util.SnowflakeIdGenerator;
+import com.ordering.orderservice.config.ShardingProperties;
+import com.ordering.orderservice.entity.Order;
+import com.ordering.orderservice.sharding.CommitCountingDataSource;
+import com.ordering.orderservice.sharding.ScatterGatherExecutor;
+import com.ordering.orderservice.sharding.TestShards;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GroupCommitInsertTest {
+
+    private TestShards shards;
+    private ScatterGatherExecutor scatterGatherExecutor;
+    private ShardedOrderRepository repository;
+    private final List<CommitCountingDataSource> commits = new ArrayList<>();
+    private final ExecutorService checkouts = Executors.newFixedThreadPool(50);
+
+    @BeforeEach
+    void setUp() {
+        shards = new TestShards(2);
+        scatterGatherExecutor = shards.scatterGatherExecutor(2000);
+        repository = shards.orderRepository(scatterGatherExecutor);
+        for (int shard = 0; shard < 2; shard++) {
+            commits.add(shards.countCommits(shard, 500));
+        }
+        ShardingProperties.GroupCommit groupCommit = shards.getShardingProperties().getGroupCommit();
+        groupCommit.setEnabled(true);
+        groupCommit.setMaxBatchSize(50);
+        groupCommit.setWritersPerShard(1);
+        repository.startGroupCommit();
+    }
+
+    @AfterEach
+    void tearDown() {
+        checkouts.shutdown();
+        repository.stopGroupCommit();
+        scatterGatherExecutor.shutdown();
+        shards.close();
+    }
+
+    @Test
+    void concurrentSavesShareTransactions() throws Exception {
+        List<CompletableFuture<Order>> saves = new ArrayList<>();
+        for (long userId = 0; userId < 200; userId++) {
+            Order order = TestShards.order(userId, "PENDING", LocalDateTime.now());
+            saves.add(CompletableFuture.supplyAsync(() -> repository.save(order), checkouts));
+        }
+
+        List<Order> saved = new ArrayList<>();
+        for (CompletableFuture<Order> save : saves) {
+            saved.add(save.get(10, TimeUnit.SECONDS));
+        }
+
+        assertThat(saved).extracting(Order::getId).doesNotContainNull().doesNotHaveDuplicates();
+        for (Order order : saved) {
+            assertThat(SnowflakeIdGenerator.bucketOf(order.getId())).isEqualTo((int) (order.getUserId() % 1024));
+            int shard = (int) (order.getUserId() % 2);
+            assertThat(shards.jdbc(shard).queryForObject("SELECT user_id FROM orders WHERE id = ?", Long.class,
+                                                         order.getId())).isEqualTo(order.getUserId());
+        }
+        long total = commits.get(0).getCommits() + commits.get(1).getCommits();
+        assertThat(total).isLessThan(100);
+    }
+
+    @Test
+    void duplicateFailsOnlyItsOwnInsert() throws Exception {
+        Order existing = repository.save(TestShards.order(2, "PENDING", LocalDateTime.now()));
+        Order duplicate = TestShards.order(2, "PENDING", LocalDateTime.now());
+        duplicate.setId(existing.getId());
+        List<CompletableFuture<Order>> others = new ArrayList<>();
+        for (long userId = 10; userId < 30; userId += 2) {
+            Order order = TestShards.order(userId, "PENDING", LocalDateTime.now());
+            others.add(CompletableFuture.supplyAsync(() -> repository.save(order), checkouts));
+        }
+
+        assertThatThrownBy(() -> repository.insert(duplicate)).isInstanceOf(DuplicateKeyException.class);
+
+        for (CompletableFuture<Order> other : others) {
+            assertThat(other.get(10, TimeUnit.SECONDS).getId()).isNotNull();
+        }
+        assertThat(shards.jdbc(0).queryForObject("SELECT COUNT(*) FROM orders", Integer.class)).isEqualTo(11);
+    }
+}
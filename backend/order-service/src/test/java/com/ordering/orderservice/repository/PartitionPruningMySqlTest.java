@@ -0,0 +1,138 @@
+package com.ordering.orderservice.repository;
+
+import com.ordering.orderservice.entity.Order;
+import com.ordering.orderservice.sharding.ScatterGatherExecutor;
+import com.ordering.orderservice.sharding.TestShards;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * EXPLAINs the range queries on a partitioned copy of the orders table (see
+ * docs/database/sharding-schema.sql) and checks which partitions MySQL reads. Needs a MySQL
+ * server: {@code mvn test -Dtest.mysql.url=jdbc:mysql://localhost:3306}.
+ */
+@EnabledIfSystemProperty(named = "test.mysql.url", matches = ".+")
+class PartitionPruningMySqlTest {
+
+    private TestShards shards;
+    private ScatterGatherExecutor scatterGatherExecutor;
+    private ShardedOrderRepository repository;
+    private RecordingJdbcTemplate recorder;
+
+    @BeforeEach
+    void setUp() {
+        shards = TestShards.over(List.of(TestShards.mysql("order_partition_test")));
+        JdbcTemplate jdbcTemplate = shards.jdbc(0);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS orders");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS order_items");
+        jdbcTemplate.execute("CREATE TABLE orders (" +
+                             "id BIGINT NOT NULL, " +
+                             "user_id BIGINT NOT NULL, " +
+                             "items TEXT NULL, " +
+                             "total_amount DECIMAL(10, 2) NOT NULL, " +
+                             "status VARCHAR(20) DEFAULT 'PENDING', " +
+                             "payment_method VARCHAR(50), " +
+                             "delivery_address TEXT, " +
+                             "created_year INT NOT NULL, " +
+                             "created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+                             "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, " +
+                             "version BIGINT NOT NULL DEFAULT 0, " +
+                             "PRIMARY KEY (id, created_year), " +
+                             "INDEX idx_user_id (user_id), " +
+                             "INDEX idx_status (status), " +
+                             "INDEX idx_created_at (created_at), " +
+                             "INDEX idx_user_created (user_id, created_at)" +
+                             ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 " +
+                             "PARTITION BY RANGE (created_year) (" +
+                             "PARTITION p2023 VALUES LESS THAN (2024), " +
+                             "PARTITION p2024 VALUES LESS THAN (2025), " +
+                             "PARTITION p2025 VALUES LESS THAN (2026), " +
+                             "PARTITION p2026 VALUES LESS THAN (2027), " +
+                             "PARTITION p2027 VALUES LESS THAN (2028), " +
+                             "PARTITION p_future VALUES LESS THAN MAXVALUE)");
+        jdbcTemplate.execute("CREATE TABLE order_items (" +
+                             "order_id BIGINT NOT NULL, " +
+                             "line_no INT NOT NULL, " +
+                             "user_id BIGINT NOT NULL, " +
+                             "menu_item_id BIGINT, " +
+                             "name VARCHAR(255), " +
+                             "price DECIMAL(10, 2), " +
+                             "quantity INT, " +
+                             "subtotal DECIMAL(10, 2), " +
+                             "PRIMARY KEY (order_id, line_no), " +
+                             "INDEX idx_user_id (user_id)" +
+                             ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+
+        scatterGatherExecutor = shards.scatterGatherExecutor(5000);
+        repository = shards.orderRepository(scatterGatherExecutor);
+        List<Order> orders = new ArrayList<>();
+        for (int year = 2023; year <= 2027; year++) {
+            orders.add(TestShards.order(1, "PAID", LocalDateTime.of(year, 6, 1, 12, 0)));
+            orders.add(TestShards.order(2, "PENDING", LocalDateTime.of(year, 12, 31, 23, 0)));
+        }
+        assertThat(repository.insertAll(orders)).containsOnlyNulls();
+
+        recorder = new RecordingJdbcTemplate(shards.dataSource(0));
+        when(shards.getShardingConfig().getJdbcTemplate(0)).thenReturn(recorder);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scatterGatherExecutor.shutdown();
+        shards.close();
+    }
+
+    @Test
+    void rangeWithinAYearReadsOnePartition() {
+        LocalDateTime from = LocalDateTime.of(2024, 3, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 6, 2, 0, 0);
+
+        assertThat(repository.findByUserIdInRange(1L, from, to, null, 20)).hasSize(1);
+        assertThat(repository.findByStatusInRange("PAID", from, to, 20).getRows()).hasSize(1);
+        assertThat(repository.findInRange(from, to, 20).getRows()).hasSize(1);
+
+        assertThat(recorder.getQueries()).hasSize(3)
+                                         .allSatisfy(q -> assertThat(partitions(q)).isEqualTo("p2024"));
+    }
+
+    @Test
+    void rangeAcrossNewYearReadsTwoPartitions() {
+        LocalDateTime from = LocalDateTime.of(2024, 12, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2025, 1, 1, 0, 0).plusMonths(7);
+
+        assertThat(repository.findInRange(from, to, 20).getRows()).hasSize(2);
+        assertThat(partitions(recorder.getQueries().get(0))).isEqualTo("p2024,p2025");
+    }
+
+    @Test
+    void createdAtAloneReadsEveryPartition() {
+        RecordingJdbcTemplate.Query pruned = recordRange();
+        String unpruned = pruned.sql().replace("created_year BETWEEN ? AND ? AND ", "");
+        Object[] args = new Object[pruned.args().length - 2];
+        args[0] = pruned.args()[0];
+        System.arraycopy(pruned.args(), 3, args, 1, args.length - 1);
+
+        assertThat(partitions(new RecordingJdbcTemplate.Query(unpruned, args)))
+            .isEqualTo("p2023,p2024,p2025,p2026,p2027,p_future");
+    }
+
+    private RecordingJdbcTemplate.Query recordRange() {
+        repository.findByUserIdInRange(1L, LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2025, 1, 1, 0, 0), null, 20);
+        return recorder.getQueries().get(0);
+    }
+
+    private String partitions(RecordingJdbcTemplate.Query query) {
+        return shards.jdbc(0).queryForObject("EXPLAIN " + query.sql(),
+                                             (rs, rowNum) -> rs.getString("partitions"), query.args());
+    }
+}
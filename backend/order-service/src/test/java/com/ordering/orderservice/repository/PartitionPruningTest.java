@@ -0,0 +1,119 @@
+package com.ordering.orderservice.repository;
+
+import com.ordering.common.util.CursorCodec;
+import com.ordering.orderservice.entity.Order;
+import com.ordering.orderservice.sharding.ScatterGatherExecutor;
+import com.ordering.orderservice.sharding.TestShards;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Time-range queries must bound created_year, the partition key, or MySQL reads every
+ * partition. H2 does not partition, so this checks the bounds each query binds and the rows
+ * it returns; {@link PartitionPruningMySqlTest} checks the EXPLAIN plan on MySQL.
+ */
+class PartitionPruningTest {
+
+    private static final LocalDateTime NEW_YEAR_2024 = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final LocalDateTime NEW_YEAR_2025 = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    private TestShards shards;
+    private ScatterGatherExecutor scatterGatherExecutor;
+    private ShardedOrderRepository repository;
+    private final List<RecordingJdbcTemplate> recorders = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        shards = new TestShards(2);
+        scatterGatherExecutor = shards.scatterGatherExecutor(2000);
+        repository = shards.orderRepository(scatterGatherExecutor);
+
+        List<Order> orders = new ArrayList<>();
+        for (long userId = 10; userId < 14; userId++) {
+            orders.add(TestShards.order(userId, "PAID", LocalDateTime.of(2023, 12, 31, 23, 59, 59)));
+            orders.add(TestShards.order(userId, "PAID", NEW_YEAR_2024));
+            orders.add(TestShards.order(userId, "PAID", LocalDateTime.of(2024, 6, 1, 12, 0)));
+            orders.add(TestShards.order(userId, "PAID", LocalDateTime.of(2024, 12, 31, 23, 59, 59)));
+            orders.add(TestShards.order(userId, "PAID", NEW_YEAR_2025));
+        }
+        assertThat(repository.insertAll(orders)).containsOnlyNulls();
+
+        for (int shard = 0; shard < 2; shard++) {
+            RecordingJdbcTemplate recorder = new RecordingJdbcTemplate(shards.dataSource(shard));
+            when(shards.getShardingConfig().getJdbcTemplate(shard)).thenReturn(recorder);
+            recorders.add(recorder);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        scatterGatherExecutor.shutdown();
+        shards.close();
+    }
+
+    @Test
+    void wholeYearReadsOnlyThatYear() {
+        List<Order> orders = repository.findByUserIdInRange(10L, NEW_YEAR_2024, NEW_YEAR_2025, null, 50);
+
+        // The exclusive upper bound at midnight on Jan 1 must not pull in 2025
+        assertThat(yearBounds(0)).containsExactly(List.of(2024, 2024));
+        assertThat(orders).extracting(Order::getCreatedAt).containsExactly(
+            LocalDateTime.of(2024, 12, 31, 23, 59, 59), LocalDateTime.of(2024, 6, 1, 12, 0), NEW_YEAR_2024);
+    }
+
+    @Test
+    void rangeAcrossNewYearReadsBothYears() {
+        LocalDateTime from = LocalDateTime.of(2023, 12, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 2, 1, 0, 0);
+
+        List<Order> orders = repository.findByStatusInRange("PAID", from, to, 50).getRows();
+
+        for (int shard = 0; shard < 2; shard++) {
+            assertThat(yearBounds(shard)).containsExactly(List.of(2023, 2024));
+        }
+        assertThat(orders).hasSize(8)
+                          .allMatch(o -> !o.getCreatedAt().isBefore(from) && o.getCreatedAt().isBefore(to));
+    }
+
+    @Test
+    void everyRangeQueryBoundsThePartitionKey() {
+        LocalDateTime from = LocalDateTime.of(2024, 3, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 6, 2, 0, 0);
+        CursorCodec.Position after = new CursorCodec.Position(LocalDateTime.of(2024, 6, 1, 12, 0), "0");
+
+        assertThat(repository.findInRange(from, to, 50).getRows()).hasSize(4);
+        assertThat(repository.findByStatusInRange("PAID", from, to, 50).getRows()).hasSize(4);
+        assertThat(repository.findByUserIdInRange(11L, from, to, null, 50)).hasSize(1);
+        assertThat(repository.findByUserIdInRange(11L, from, to, after, 50)).isEmpty();
+
+        List<RecordingJdbcTemplate.Query> queries = new ArrayList<>();
+        recorders.forEach(r -> queries.addAll(r.getQueries()));
+        assertThat(queries).hasSize(6)
+                           .allMatch(q -> q.sql().contains("created_year BETWEEN ? AND ?"));
+        for (int shard = 0; shard < 2; shard++) {
+            assertThat(yearBounds(shard)).allMatch(bounds -> bounds.equals(List.of(2024, 2024)));
+        }
+    }
+
+    /**
+     * The created_year values bound to each query on the shard, in the order they ran
+     */
+    private List<List<Object>> yearBounds(int shard) {
+        List<List<Object>> bounds = new ArrayList<>();
+        for (RecordingJdbcTemplate.Query query : recorders.get(shard).getQueries()) {
+            String beforeYears = query.sql().substring(0, query.sql().indexOf("created_year BETWEEN"));
+            int first = (int) beforeYears.chars().filter(c -> c == '?').count();
+            bounds.add(Arrays.asList(query.args()).subList(first, first + 2));
+        }
+        return bounds;
+    }
+}
@@ -0,0 +1,33 @@
+package com.ordering.orderservice.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A JdbcTemplate that keeps every row query it runs, so a test can check the SQL and
+ * bind values or EXPLAIN them afterwards
+ */
+class RecordingJdbcTemplate extends JdbcTemplate {
+
+    record Query(String sql, Object[] args) {}
+
+    private final List<Query> queries = new CopyOnWriteArrayList<>();
+
+    RecordingJdbcTemplate(DataSource dataSource) {
+        super(dataSource);
+    }
+
+    @Override
+    public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+        queries.add(new Query(sql, args));
+        return super.query(sql, rowMapper, args);
+    }
+
+    List<Query> getQueries() {
+        return queries;
+    }
+}
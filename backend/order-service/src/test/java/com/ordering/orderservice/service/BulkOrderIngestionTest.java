@@ -0,0 +1,148 @@
+package com.ordering.orderservice.service;
+
+import com.ordering.common.dto.BulkOrderResult;
+import com.ordering.common.dto.CartItemDTO;
+import com.ordering.common.dto.OrderDTO;
+import com.ordering.common.util.SnowflakeIdGenerator;
+import com.ordering.orderservice.client.CartClient;
+import com.ordering.orderservice.repository.ShardedOrderRepository;
+import com.ordering.orderservice.sharding.ScatterGatherExecutor;
+import com.ordering.orderservice.sharding.ShardStatsTracker;
+import com.ordering.orderservice.sharding.TestShards;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BulkOrderIngestionTest {
+
+    private TestShards shards;
+    private ScatterGatherExecutor scatterGatherExecutor;
+    private ShardedOrderRepository repository;
+    private ShardedOrderService service;
+
+    @BeforeEach
+    void setUp() {
+        shards = new TestShards(4);
+        scatterGatherExecutor = shards.scatterGatherExecutor(2000);
+        repository = shards.orderRepository(scatterGatherExecutor);
+        ReflectionTestUtils.setField(repository, "bulkBatchSize", 100);
+
+        service = new ShardedOrderService();
+        ReflectionTestUtils.setField(service, "shardedOrderRepository", repository);
+        ReflectionTestUtils.setField(service, "cartClient", mock(CartClient.class));
+        ReflectionTestUtils.setField(service, "shardStatsTracker", mock(ShardStatsTracker.class));
+        ReflectionTestUtils.setField(service, "maxBulkOrders", 5000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scatterGatherExecutor.shutdown();
+        shards.close();
+    }
+
+    @Test
+    void ordersAreWrittenPerShardInJdbcBatches() {
+        List<JdbcTemplate> spies = new ArrayList<>();
+        for (int shard = 0; shard < 4; shard++) {
+            JdbcTemplate jdbcTemplate = spy(shards.jdbc(shard));
+            when(shards.getShardingConfig().getJdbcTemplate(shard)).thenReturn(jdbcTemplate);
+            spies.add(jdbcTemplate);
+        }
+        List<OrderDTO> requests = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            requests.add(request(1000L + i, null));
+        }
+
+        List<BulkOrderResult> results = service.createOrders(requests);
+
+        assertThat(results).allMatch(BulkOrderResult::isSuccess);
+        for (int i = 0; i < results.size(); i++) {
+            assertThat(results.get(i).getIndex()).isEqualTo(i);
+            assertThat(SnowflakeIdGenerator.bucketOf(results.get(i).getOrderId())).isEqualTo((1000 + i) % 1024);
+        }
+        for (int shard = 0; shard < 4; shard++) {
+            // 250 orders per shard in batches of 100: three order batches and three item batches
+            assertThat(count(shard, "orders")).isEqualTo(250);
+            assertThat(count(shard, "order_items")).isEqualTo(500);
+            verify(spies.get(shard), times(3))
+                .batchUpdate(argThat((String sql) -> sql.startsWith("INSERT INTO orders ")), anyList());
+            verify(spies.get(shard), times(3))
+                .batchUpdate(argThat((String sql) -> sql.startsWith("INSERT INTO order_items ")), anyList());
+        }
+    }
+
+    @Test
+    void invalidOrdersAreRejectedOneByOne() {
+        OrderDTO unknownStatus = request(1L, "SHIPPED_TO_MARS");
+        OrderDTO noUser = request(null, null);
+        OrderDTO negative = request(3L, null);
+        negative.setTotalAmount(new BigDecimal("-1.00"));
+        OrderDTO backdated = request(4L, "paid");
+        backdated.setCreatedAt(LocalDateTime.of(2020, 1, 1, 0, 0));
+
+        List<BulkOrderResult> results = service.createOrders(List.of(unknownStatus, noUser, negative, backdated));
+
+        assertThat(results).extracting(BulkOrderResult::isSuccess).containsExactly(false, false, false, true);
+        assertThat(results.get(1).getError()).isEqualTo("userId is required");
+        // Client-supplied createdAt is ignored and the status is stored in its canonical form
+        assertThat(shards.jdbc(0).queryForObject("SELECT created_year FROM orders WHERE user_id = 4", Integer.class))
+            .isEqualTo(LocalDateTime.now().getYear());
+        assertThat(shards.jdbc(0).queryForObject("SELECT status FROM orders WHERE user_id = 4", String.class))
+            .isEqualTo("PAID");
+    }
+
+    @Test
+    void failedBatchIsRetriedRowByRow() {
+        List<OrderDTO> requests = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            requests.add(request(4L * i, null));
+        }
+        // Too long for the column; fails the whole batch on shard 0
+        requests.get(6).setDeliveryAddress("x".repeat(300));
+
+        List<BulkOrderResult> results = service.createOrders(requests);
+
+        assertThat(results).extracting(BulkOrderResult::isSuccess)
+                           .containsExactly(true, true, true, true, true, true, false, true, true, true);
+        assertThat(results.get(6).getError()).isNotBlank();
+        assertThat(count(0, "orders")).isEqualTo(9);
+    }
+
+    static OrderDTO request(Long userId, String status) {
+        CartItemDTO item = new CartItemDTO();
+        item.setMenuItemId(7L);
+        item.setName("Margherita");
+        item.setPrice(new BigDecimal("6.25"));
+        item.setQuantity(1);
+        item.setSubtotal(new BigDecimal("6.25"));
+
+        OrderDTO request = new OrderDTO();
+        request.setUserId(userId);
+        request.setStatus(status);
+        request.setItems(List.of(item, item));
+        request.setTotalAmount(new BigDecimal("12.50"));
+        request.setPaymentMethod("CREDIT_CARD");
+        request.setDeliveryAddress("1 Main St");
+        return request;
+    }
+
+    private int count(int shard, String table) {
+        return shards.jdbc(shard).queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+}
@@ -0,0 +1,91 @@
+package com.ordering.orderservice.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ordering.common.dto.CartItemDTO;
+import com.ordering.common.dto.OrderDTO;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Order pages/sec and bytes allocated per page when the stored items JSON is spliced into
+ * the response ({@link OrderDTO#setItemsJson}) against parsing it into CartItemDTOs and
+ * serializing those again. Pages hold 50 orders of 100 line items each. Run with
+ * {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class OrderItemsJsonBenchmark {
+
+    private static final int ORDERS_PER_PAGE = 50;
+    private static final int ITEMS_PER_ORDER = 100;
+    private static final int WARMUP_PAGES = 500;
+    private static final int PAGES = 2000;
+    private static final TypeReference<List<CartItemDTO>> ITEM_LIST = new TypeReference<>() {};
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void splicingBeatsParsingAndReserializing() throws Exception {
+        String stored = objectMapper.writeValueAsString(Collections.nCopies(ITEMS_PER_ORDER, OrderItemsJsonTest.item()));
+        assertThat(page(stored, true)).isEqualTo(page(stored, false));
+
+        Result reserialized = run(stored, false);
+        Result spliced = run(stored, true);
+        System.out.printf("parse and reserialize: %.0f pages/s, %.1f MB allocated per page%n",
+                          reserialized.pagesPerSecond, reserialized.bytesPerPage / 1e6);
+        System.out.printf("splice stored JSON:    %.0f pages/s (%.1fx), %.1f MB allocated per page%n",
+                          spliced.pagesPerSecond, spliced.pagesPerSecond / reserialized.pagesPerSecond,
+                          spliced.bytesPerPage / 1e6);
+
+        assertThat(spliced.pagesPerSecond).isGreaterThan(reserialized.pagesPerSecond);
+        assertThat(spliced.bytesPerPage).isLessThan(reserialized.bytesPerPage);
+    }
+
+    private record Result(double pagesPerSecond, double bytesPerPage) {}
+
+    private Result run(String stored, boolean splice) throws Exception {
+        for (int i = 0; i < WARMUP_PAGES; i++) {
+            page(stored, splice);
+        }
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < PAGES; i++) {
+            page(stored, splice);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        return new Result(PAGES / seconds, allocated / (double) PAGES);
+    }
+
+    /**
+     * One response page, built the way the services build it from stored rows
+     */
+    private String page(String stored, boolean splice) throws Exception {
+        List<OrderDTO> orders = new ArrayList<>(ORDERS_PER_PAGE);
+        for (long id = 0; id < ORDERS_PER_PAGE; id++) {
+            OrderDTO dto = new OrderDTO();
+            dto.setId(id);
+            dto.setUserId(42L);
+            dto.setStatus("DELIVERED");
+            dto.setCreatedAt(LocalDateTime.of(2024, 6, 1, 12, 0));
+            if (splice) {
+                dto.setItemsJson(stored);
+            } else {
+                dto.setItems(objectMapper.readValue(stored, ITEM_LIST));
+            }
+            orders.add(dto);
+        }
+        return objectMapper.writeValueAsString(orders);
+    }
+}
@@ -0,0 +1,62 @@
+package com.ordering.orderservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ordering.common.dto.CartItemDTO;
+import com.ordering.common.dto.OrderDTO;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderItemsJsonTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    void storedItemsAreWrittenVerbatim() throws Exception {
+        // Spacing, number scale and fields CartItemDTO does not know about all survive
+        String stored = "[ {\"menuItemId\": 7, \"name\": \"Margherita\", \"price\": 6.50, \"spicy\": true} ]";
+        OrderDTO dto = new OrderDTO();
+        dto.setId(1L);
+        dto.setItemsJson(stored);
+
+        String json = objectMapper.writeValueAsString(dto);
+
+        assertThat(json).contains("\"items\":" + stored)
+                        .doesNotContain("itemsJson");
+    }
+
+    @Test
+    void itemListIsWrittenWhenNothingIsStored() throws Exception {
+        OrderDTO dto = new OrderDTO();
+        dto.setItems(List.of(item()));
+
+        String json = objectMapper.writeValueAsString(dto);
+
+        assertThat(json).contains("\"items\":[{\"menuItemId\":7,\"name\":\"Margherita\",\"price\":6.25,"
+                                  + "\"quantity\":2,\"subtotal\":12.50}]");
+        assertThat(objectMapper.writeValueAsString(new OrderDTO())).contains("\"items\":null");
+    }
+
+    @Test
+    void requestsBindItemsToTheList() throws Exception {
+        OrderDTO dto = objectMapper.readValue(
+            "{\"userId\":4,\"items\":[{\"menuItemId\":7,\"quantity\":2}],\"itemsJson\":\"[]\"}", OrderDTO.class);
+
+        assertThat(dto.getItems()).singleElement()
+                                  .satisfies(item -> assertThat(item.getQuantity()).isEqualTo(2));
+        assertThat(dto.getItemsJson()).isNull();
+    }
+
+    static CartItemDTO item() {
+        CartItemDTO item = new CartItemDTO();
+        item.setMenuItemId(7L);
+        item.setName("Margherita");
+        item.setPrice(new BigDecimal("6.25"));
+        item.setQuantity(2);
+        item.setSubtotal(new BigDecimal("12.50"));
+        return item;
+    }
+}
@@ -0,0 +1,53 @@
+package com.ordering.orderservice.sharding;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Counts transaction commits and holds each one for a fixed time, one at a time, standing in
+ * for the redo log flush MySQL does on every commit (H2 in memory has none)
+ */
+public class CommitCountingDataSource extends DelegatingDataSource {
+
+    private final long commitDelayNanos;
+    private final AtomicLong commits = new AtomicLong();
+
+    public CommitCountingDataSource(DataSource target, long commitDelayMicros) {
+        super(target);
+        this.commitDelayNanos = TimeUnit.MICROSECONDS.toNanos(commitDelayMicros);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection = super.getConnection();
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Connection.class},
+            (proxy, method, args) -> {
+                try {
+                    Object result = method.invoke(connection, args);
+                    if ("commit".equals(method.getName())) {
+                        flush();
+                    }
+                    return result;
+                } catch (InvocationTargetException e) {
+                    throw e.getTargetException();
+                }
+            });
+    }
+
+    private synchronized void flush() {
+        commits.incrementAndGet();
+        LockSupport.parkNanos(commitDelayNanos);
+    }
+
+    public long getCommits() {
+        return commits.get();
+    }
+}
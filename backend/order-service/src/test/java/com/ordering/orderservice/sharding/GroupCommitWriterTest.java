@@ -0,0 +1,157 @@
+package com.ordering.orderservice.sharding;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+class GroupCommitWriterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private GroupCommitWriter<String> writer;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        writer.shutdown();
+    }
+
+    @Test
+    void concurrentInsertsShareCommits() throws Exception {
+        writer = new GroupCommitWriter<>(1, 1, 50, 5000, 1000, (shard, rows) -> batches.add(List.copyOf(rows)), registry);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(100);
+        List<CompletableFuture<CompletableFuture<String>>> submits = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            String row = "order-" + i;
+            submits.add(CompletableFuture.supplyAsync(() -> {
+                waitFor(start);
+                return writer.submit(0, row);
+            }, callers));
+        }
+
+        start.countDown();
+        for (int i = 0; i < 400; i++) {
+            assertThat(submits.get(i).get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS)).isEqualTo("order-" + i);
+        }
+        callers.shutdown();
+
+        assertThat(batches.stream().mapToInt(List::size).sum()).isEqualTo(400);
+        assertThat(batches).allMatch(batch -> batch.size() <= 50);
+        assertThat(batches.size()).isLessThan(100);
+        assertThat(registry.get("shard.group_commit.commits").tag("shard", "0").counter().count())
+            .isEqualTo(batches.size());
+        assertThat(registry.get("shard.group_commit.batch_size").tag("shard", "0").summary().totalAmount())
+            .isEqualTo(400);
+    }
+
+    @Test
+    void queuedRowsAreWrittenInBatchesOfAtMostMaxSize() throws Exception {
+        writer = new GroupCommitWriter<>(1, 1, 10, 0, 1000, blockingOnFirstBatch(), registry);
+        CompletableFuture<String> first = writer.submit(0, "first");
+        await().atMost(2, TimeUnit.SECONDS).until(() -> batches.size() == 1);
+        List<CompletableFuture<String>> queued = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            queued.add(writer.submit(0, "queued-" + i));
+        }
+
+        release.countDown();
+        CompletableFuture.allOf(queued.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        assertThat(first).isCompletedWithValue("first");
+        assertThat(batches).extracting(List::size).containsExactly(1, 10, 10, 5);
+    }
+
+    @Test
+    void eachShardCommitsOnlyItsOwnRows() throws Exception {
+        List<String> misrouted = new CopyOnWriteArrayList<>();
+        writer = new GroupCommitWriter<>(3, 2, 20, 1000, 1000, (shard, rows) -> rows.stream()
+            .filter(row -> !row.startsWith(shard + ":"))
+            .forEach(misrouted::add), registry);
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            futures.add(writer.submit(i % 3, i % 3 + ":" + i));
+        }
+
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        assertThat(misrouted).isEmpty();
+        for (int shard = 0; shard < 3; shard++) {
+            assertThat(registry.get("shard.group_commit.batch_size").tag("shard", String.valueOf(shard))
+                               .summary().totalAmount()).isEqualTo(100);
+        }
+    }
+
+    @Test
+    void failedBatchIsRetriedRowByRow() throws Exception {
+        GroupCommitWriter.BatchWriter<String> blocking = blockingOnFirstBatch();
+        writer = new GroupCommitWriter<>(1, 1, 10, 0, 1000, (shard, rows) -> {
+            if (rows.contains("duplicate")) {
+                throw new IllegalStateException("Duplicate entry");
+            }
+            blocking.write(shard, rows);
+        }, registry);
+        writer.submit(0, "first");
+        await().atMost(2, TimeUnit.SECONDS).until(() -> batches.size() == 1);
+        CompletableFuture<String> a = writer.submit(0, "a");
+        CompletableFuture<String> duplicate = writer.submit(0, "duplicate");
+        CompletableFuture<String> b = writer.submit(0, "b");
+
+        release.countDown();
+
+        assertThat(a.get(5, TimeUnit.SECONDS)).isEqualTo("a");
+        assertThat(b.get(5, TimeUnit.SECONDS)).isEqualTo("b");
+        assertThatThrownBy(() -> duplicate.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class)
+                                                                      .hasMessageContaining("Duplicate entry");
+        assertThat(batches).containsExactly(List.of("first"), List.of("a"), List.of("b"));
+    }
+
+    @Test
+    void shutdownFailsQueuedAndLaterRows() {
+        writer = new GroupCommitWriter<>(1, 1, 10, 0, 1000, blockingOnFirstBatch(), registry);
+        CompletableFuture<String> inFlight = writer.submit(0, "first");
+        await().atMost(2, TimeUnit.SECONDS).until(() -> batches.size() == 1);
+        CompletableFuture<String> queued = writer.submit(0, "queued");
+
+        writer.shutdown();
+        release.countDown();
+
+        assertThat(inFlight.join()).isEqualTo("first");
+        assertThatThrownBy(() -> queued.get(5, TimeUnit.SECONDS)).hasMessageContaining("Group commit writer stopped");
+        assertThat(writer.submit(0, "late")).isCompletedExceptionally();
+    }
+
+    /**
+     * Records every batch; the first one holds its writer until {@link #release} opens
+     */
+    private GroupCommitWriter.BatchWriter<String> blockingOnFirstBatch() {
+        return (shard, rows) -> {
+            batches.add(List.copyOf(rows));
+            if (batches.size() == 1) {
+                waitFor(release);
+            }
+        };
+    }
+
+    private static void waitFor(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.ordering.orderservice.sharding;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+class ReplicaRouterTest {
+
+    private static final Function<JdbcTemplate, String> WHOAMI =
+        jdbcTemplate -> jdbcTemplate.queryForObject("SELECT name FROM whoami", String.class);
+
+    private TestShards shards;
+    private StandInReplica replicaA;
+    private StandInReplica replicaB;
+    private ReplicaRouter router;
+
+    @BeforeEach
+    void setUp() {
+        shards = new TestShards(1);
+        identify(shards.jdbc(0), "primary");
+        replicaA = new StandInReplica("replica_a");
+        replicaB = new StandInReplica("replica_b");
+        when(shards.getShardingConfig().getReplicaDataSources(0)).thenReturn(List.of(replicaA, replicaB));
+
+        router = new ReplicaRouter();
+        ReflectionTestUtils.setField(router, "shardingConfig", shards.getShardingConfig());
+        ReflectionTestUtils.setField(router, "shardingProperties", shards.getShardingProperties());
+        router.init();
+        router.checkLag();
+    }
+
+    @AfterEach
+    void tearDown() {
+        replicaA.close();
+        replicaB.close();
+        shards.close();
+    }
+
+    @Test
+    void readsRotateAcrossReplicasInSync() {
+        assertThat(reads(null, 4)).containsExactly("replica_a", "replica_b", "replica_a", "replica_b");
+        assertThat(router.getReplicaStatus().get(0))
+            .extracting(entry -> entry.get("usable"))
+            .containsExactly(true, true);
+    }
+
+    @Test
+    void laggingReplicaIsSkippedUntilItCatchesUp() {
+        replicaB.setLag(30L);
+        router.checkLag();
+
+        assertThat(reads(null, 3)).containsOnly("replica_a");
+
+        replicaB.setLag(5L);
+        router.checkLag();
+
+        assertThat(reads(null, 2)).containsExactlyInAnyOrder("replica_a", "replica_b");
+    }
+
+    @Test
+    void noReplicaInRangeFallsBackToPrimary() {
+        replicaA.setLag(30L);
+        // NULL: the replication threads are stopped
+        replicaB.setLag(null);
+        router.checkLag();
+
+        assertThat(reads(null, 2)).containsOnly("primary");
+        Map<String, Object> stopped = router.getReplicaStatus().get(0).get(1);
+        assertThat(stopped.get("lagSeconds")).isNull();
+        assertThat(stopped.get("usable")).isEqualTo(false);
+    }
+
+    @Test
+    void failedReplicaReadIsRetriedOnPrimary() {
+        replicaA.jdbc().execute("DROP TABLE whoami");
+
+        assertThat(reads(null, 3)).containsExactly("primary", "replica_b", "replica_b");
+
+        identify(replicaA.jdbc(), "replica_a");
+        router.checkLag();
+
+        assertThat(reads(null, 2)).containsExactlyInAnyOrder("replica_a", "replica_b");
+    }
+
+    @Test
+    void failedLagCheckTakesReplicaOutOfRotation() {
+        replicaA.jdbc().execute("DROP TABLE replica_status");
+        router.checkLag();
+
+        assertThat(reads(null, 3)).containsOnly("replica_b");
+    }
+
+    @Test
+    void writerReadsOwnWritesFromPrimary() throws InterruptedException {
+        shards.getShardingProperties().getReplicas().setReadYourWritesMs(200);
+
+        router.recordWrite(7L);
+
+        assertThat(router.read(0, 7L, WHOAMI)).isEqualTo("primary");
+        assertThat(router.read(0, 8L, WHOAMI)).startsWith("replica_");
+        assertThat(router.read(0, null, WHOAMI)).startsWith("replica_");
+
+        Thread.sleep(250);
+
+        assertThat(router.read(0, 7L, WHOAMI)).startsWith("replica_");
+    }
+
+    private List<String> reads(Long userId, int count) {
+        List<String> servedBy = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            servedBy.add(router.read(0, userId, WHOAMI));
+        }
+        return servedBy;
+    }
+
+    private static void identify(JdbcTemplate jdbcTemplate, String name) {
+        jdbcTemplate.execute("CREATE TABLE whoami (name VARCHAR(32))");
+        jdbcTemplate.update("INSERT INTO whoami VALUES (?)", name);
+    }
+
+    /**
+     * An H2 database posing as a MySQL replica. H2 has no SHOW REPLICA STATUS, so that
+     * statement is answered from a one-row table whose lag the test sets; an empty table
+     * reads like a server that is not replicating.
+     */
+    private static final class StandInReplica extends HikariDataSource {
+
+        private StandInReplica(String name) {
+            setPoolName(name);
+            setJdbcUrl("jdbc:h2:mem:" + name + "_" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+            setUsername("sa");
+            setMaximumPoolSize(4);
+            identify(jdbc(), name);
+            jdbc().execute("CREATE TABLE replica_status (Seconds_Behind_Source BIGINT)");
+            setLag(0L);
+        }
+
+        JdbcTemplate jdbc() {
+            return new JdbcTemplate(this);
+        }
+
+        void setLag(Long seconds) {
+            jdbc().update("DELETE FROM replica_status");
+            jdbc().update("INSERT INTO replica_status VALUES (?)", seconds);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection connection = super.getConnection();
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    return method.getName().equals("createStatement") ? showReplicaStatus((Statement) result) : result;
+                });
+        }
+
+        private static Statement showReplicaStatus(Statement statement) {
+            return (Statement) Proxy.newProxyInstance(StandInReplica.class.getClassLoader(), new Class<?>[] {Statement.class},
+                (proxy, method, args) -> {
+                    if (args != null && "SHOW REPLICA STATUS".equals(args[0])) {
+                        args[0] = "SELECT Seconds_Behind_Source FROM replica_status";
+                    }
+                    return invoke(statement, method, args);
+                });
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.ordering.orderservice.sharding;
+
+import com.ordering.orderservice.config.ShardingConfig;
+import com.ordering.orderservice.config.ShardingProperties;
+import com.ordering.orderservice.config.WorkerThreads;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ScatterGatherExecutorTest {
+
+    private static final Comparator<Integer> DESCENDING = Comparator.reverseOrder();
+
+    private final Map<Integer, ShardGuard> guards = new HashMap<>();
+    private ScatterGatherExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        WorkerThreads workerThreads = new WorkerThreads();
+        ReflectionTestUtils.setField(workerThreads, "environment", new MockEnvironment());
+        executor = new ScatterGatherExecutor(4, 16, 200, workerThreads);
+
+        ShardingConfig shardingConfig = mock(ShardingConfig.class);
+        ShardingProperties.Resilience settings = new ShardingProperties.Resilience();
+        settings.setFailureThreshold(1);
+        for (int shard = 0; shard < 4; shard++) {
+            ShardGuard guard = new ShardGuard(shard, settings);
+            guards.put(shard, guard);
+            when(shardingConfig.getGuardedDataSource(shard))
+                .thenReturn(new GuardedShardDataSource(new HikariDataSource(), guard));
+        }
+        ReflectionTestUtils.setField(executor, "shardingConfig", shardingConfig);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void mergeInterleavesSortedListsInOrder() {
+        List<Integer> merged = ScatterGatherExecutor.merge(
+            List.of(List.of(9, 5, 1), List.of(8, 7), List.of(), List.of(6, 2)), DESCENDING, 0);
+
+        assertThat(merged).containsExactly(9, 8, 7, 6, 5, 2, 1);
+    }
+
+    @Test
+    void mergeStopsAtLimit() {
+        List<Integer> merged = ScatterGatherExecutor.merge(
+            List.of(List.of(9, 5, 1), List.of(8, 7), List.of(6, 2)), DESCENDING, 3);
+
+        assertThat(merged).containsExactly(9, 8, 7);
+    }
+
+    @Test
+    void mergeOfNothingIsEmpty() {
+        assertThat(ScatterGatherExecutor.merge(List.<List<Integer>>of(), DESCENDING, 10)).isEmpty();
+        assertThat(ScatterGatherExecutor.merge(List.of(List.<Integer>of()), DESCENDING, 10)).isEmpty();
+    }
+
+    @Test
+    void queriesShardsInParallel() {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        long start = System.nanoTime();
+
+        ScatterGatherResult<Integer> result = executor.query(List.of(0, 1, 2, 3), shard -> {
+            threads.add(Thread.currentThread().getName());
+            sleep(100);
+            return List.of(40 + shard, 10 + shard);
+        }, DESCENDING, 5);
+
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        assertThat(result.isPartial()).isFalse();
+        assertThat(result.getRows()).containsExactly(43, 42, 41, 40, 13);
+        assertThat(threads).hasSize(4);
+        assertThat(elapsedMs).isLessThan(200);
+    }
+
+    @Test
+    void slowShardIsReportedAndCountedAgainstItsCircuit() {
+        ScatterGatherResult<Integer> result = executor.query(List.of(0, 1, 2), shard -> {
+            if (shard == 1) {
+                sleep(2000);
+            }
+            return List.of(shard);
+        }, DESCENDING, 0);
+
+        assertThat(result.getRows()).containsExactly(2, 0);
+        assertThat(result.getFailedShards()).containsExactly(1);
+        assertThat(guards.get(1).getState()).isEqualTo(ShardGuard.CircuitState.OPEN);
+    }
+
+    @Test
+    void failingShardGivesPartialResult() {
+        ScatterGatherResult<Integer> result = executor.query(List.of(0, 1), shard -> {
+            if (shard == 0) {
+                throw new IllegalStateException("shard down");
+            }
+            return List.of(7);
+        }, DESCENDING, 0);
+
+        assertThat(result.getRows()).containsExactly(7);
+        assertThat(result.getFailedShards()).containsExactly(0);
+    }
+
+    @Test
+    void openCircuitShardIsNotQueried() {
+        guards.get(2).recordFailure();
+        Set<Integer> asked = ConcurrentHashMap.newKeySet();
+
+        ScatterGatherResult<Integer> result = executor.query(List.of(0, 1, 2, 3), shard -> {
+            asked.add(shard);
+            return List.of(shard);
+        }, DESCENDING, 0);
+
+        assertThat(asked).containsExactlyInAnyOrder(0, 1, 3);
+        assertThat(result.getRows()).containsExactly(3, 1, 0);
+        assertThat(result.getFailedShards()).containsExactly(2);
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.ordering.orderservice.sharding;
+
+import com.ordering.orderservice.config.ShardingProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShardGuardTest {
+
+    private ShardingProperties.Resilience settings;
+
+    @BeforeEach
+    void setUp() {
+        settings = new ShardingProperties.Resilience();
+        settings.setFailureThreshold(3);
+        settings.setFailureWindowMs(10000);
+        settings.setOpenDurationMs(50);
+        settings.setMaxConcurrent(2);
+        settings.setBulkheadWaitMs(20);
+    }
+
+    @Test
+    void opensAtFailureThreshold() {
+        ShardGuard guard = new ShardGuard(3, settings);
+
+        guard.recordFailure();
+        guard.recordFailure();
+        assertThat(guard.getState()).isEqualTo(ShardGuard.CircuitState.CLOSED);
+        assertThat(guard.allowRequest()).isTrue();
+
+        guard.recordFailure();
+
+        assertThat(guard.getState()).isEqualTo(ShardGuard.CircuitState.OPEN);
+        assertThat(guard.isAvailable()).isFalse();
+        assertThat(guard.allowRequest()).isFalse();
+        assertThatThrownBy(guard::acquire)
+            .isInstanceOf(ShardUnavailableException.class)
+            .hasMessage("Shard 3 unavailable: circuit open");
+        assertThat(guard.getRejected()).isEqualTo(1);
+        assertThat(guard.getFailures()).isEqualTo(3);
+        assertThat(guard.getInFlight()).isZero();
+    }
+
+    @Test
+    void failuresOutsideTheWindowDoNotAddUp() throws InterruptedException {
+        settings.setFailureWindowMs(50);
+        ShardGuard guard = new ShardGuard(0, settings);
+
+        guard.recordFailure();
+        guard.recordFailure();
+        Thread.sleep(80);
+        guard.recordFailure();
+        guard.recordFailure();
+
+        assertThat(guard.getState()).isEqualTo(ShardGuard.CircuitState.CLOSED);
+    }
+
+    @Test
+    void halfOpenLetsOneTrialThroughAndSuccessCloses() throws InterruptedException {
+        ShardGuard guard = open(new ShardGuard(0, settings));
+        Thread.sleep(60);
+
+        // Asking does not claim the trial
+        assertThat(guard.isAvailable()).isTrue();
+        assertThat(guard.getState()).isEqualTo(ShardGuard.CircuitState.OPEN);
+
+        assertThat(guard.allowRequest()).isTrue();
+        assertThat(guard.getState()).isEqualTo(ShardGuard.CircuitState.HALF_OPEN);
+        assertThat(guard.allowRequest()).isFalse();
+        assertThat(guard.isAvailable()).isFalse();
+
+        guard.recordSuccess();
+
+        assertThat(guard.getState()).isEqualTo(ShardGuard.CircuitState.CLOSED);
+        assertThat(guard.allowRequest()).isTrue();
+        // The failure count started over
+        guard.recordFailure();
+        guard.recordFailure();
+        assertThat(guard.getState()).isEqualTo(ShardGuard.CircuitState.CLOSED);
+    }
+
+    @Test
+    void failedTrialOpensAgainForAnotherFullPeriod() throws InterruptedException {
+        ShardGuard guard = open(new ShardGuard(0, settings));
+        Thread.sleep(60);
+        assertThat(guard.allowRequest()).isTrue();
+
+        guard.recordFailure();
+
+        assertThat(guard.getState()).isEqualTo(ShardGuard.CircuitState.OPEN);
+        assertThat(guard.allowRequest()).isFalse();
+        Thread.sleep(60);
+        assertThat(guard.allowRequest()).isTrue();
+    }
+
+    @Test
+    void bulkheadRejectsCallersBeyondMaxConcurrent() {
+        ShardGuard guard = new ShardGuard(1, settings);
+        guard.acquire();
+        guard.acquire();
+
+        assertThatThrownBy(guard::acquire)
+            .isInstanceOf(ShardUnavailableException.class)
+            .hasMessage("Shard 1 unavailable: bulkhead full");
+        assertThat(guard.getInFlight()).isEqualTo(2);
+        assertThat(guard.getRejected()).isEqualTo(1);
+        // A full bulkhead is back-pressure, not a shard failure
+        assertThat(guard.getState()).isEqualTo(ShardGuard.CircuitState.CLOSED);
+
+        guard.release();
+        guard.acquire();
+        assertThat(guard.getInFlight()).isEqualTo(2);
+    }
+
+    @Test
+    void trialThatFindsTheBulkheadFullIsHandedBack() throws InterruptedException {
+        settings.setMaxConcurrent(1);
+        ShardGuard guard = new ShardGuard(0, settings);
+        guard.acquire();
+        open(guard);
+        Thread.sleep(60);
+
+        assertThatThrownBy(guard::acquire).hasMessageContaining("bulkhead full");
+
+        assertThat(guard.getState()).isEqualTo(ShardGuard.CircuitState.OPEN);
+        assertThat(guard.isAvailable()).isTrue();
+        guard.release();
+        guard.acquire();
+        assertThat(guard.getState()).isEqualTo(ShardGuard.CircuitState.HALF_OPEN);
+    }
+
+    @Test
+    void guardedConnectionHoldsItsPermitUntilClosed() throws SQLException {
+        ShardGuard guard = new ShardGuard(0, settings);
+        HikariDataSource pool = TestShards.database("guarded_" + System.nanoTime());
+        try {
+            GuardedShardDataSource dataSource = new GuardedShardDataSource(pool, guard);
+
+            Connection connection = dataSource.getConnection();
+            assertThat(guard.getInFlight()).isEqualTo(1);
+
+            connection.close();
+            connection.close();
+            assertThat(guard.getInFlight()).isZero();
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    void connectionFailuresOpenTheCircuit() {
+        ShardGuard guard = new ShardGuard(0, settings);
+        GuardedShardDataSource dataSource = new GuardedShardDataSource(new HikariDataSource() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                throw new SQLTransientConnectionException("Connection is not available, request timed out");
+            }
+        }, guard);
+
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+        }
+
+        assertThat(guard.getState()).isEqualTo(ShardGuard.CircuitState.OPEN);
+        assertThat(guard.getInFlight()).isZero();
+        assertThatThrownBy(dataSource::getConnection).isInstanceOf(ShardUnavailableException.class);
+    }
+
+    private ShardGuard open(ShardGuard guard) {
+        for (int i = 0; i < settings.getFailureThreshold(); i++) {
+            guard.recordFailure();
+        }
+        assertThat(guard.getState()).isEqualTo(ShardGuard.CircuitState.OPEN);
+        return guard;
+    }
+}
@@ -0,0 +1,230 @@
+package com.ordering.orderservice.sharding;
+
+import com.ordering.common.util.SnowflakeIdGenerator;
+import com.ordering.orderservice.config.ShardingConfig;
+import com.ordering.orderservice.config.ShardingProperties;
+import com.ordering.orderservice.config.WorkerThreads;
+import com.ordering.orderservice.entity.Order;
+import com.ordering.orderservice.repository.OutboxRepository;
+import com.ordering.orderservice.repository.ShardedOrderRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * In-memory H2 databases (MySQL mode) standing in for the order shards, with a mocked
+ * {@link ShardingConfig} and {@link ShardRouter} wired to them. A user lives on shard
+ * {@code userId % 1024 % numShards}. Good for the SQL and batching paths; partition pruning
+ * and replication need a real MySQL.
+ */
+public class TestShards {
+
+    private final int numShards;
+    private final List<HikariDataSource> dataSources = new ArrayList<>();
+    private final List<JdbcTemplate> jdbcTemplates = new ArrayList<>();
+    private final List<ShardGuard> guards = new ArrayList<>();
+    private final ShardingProperties shardingProperties = new ShardingProperties();
+    private final ShardingConfig shardingConfig = mock(ShardingConfig.class);
+    private final ShardRouter shardRouter = mock(ShardRouter.class);
+
+    public TestShards(int numShards) {
+        this(h2Databases(numShards));
+        jdbcTemplates.forEach(TestShards::createOrderTables);
+    }
+
+    private TestShards(List<HikariDataSource> databases) {
+        this.numShards = databases.size();
+        when(shardingConfig.getNumShards()).thenReturn(numShards);
+        when(shardRouter.getNumShards()).thenReturn(numShards);
+        when(shardRouter.getBucket(anyLong())).thenAnswer(call -> (int) (call.<Long>getArgument(0) % 1024));
+        when(shardRouter.getRoute(anyInt()))
+            .thenAnswer(call -> new ShardRouter.Route(call.<Integer>getArgument(0) % numShards, ShardRouter.NO_SHARD));
+        when(shardRouter.getShardForUser(anyLong()))
+            .thenAnswer(call -> (int) (call.<Long>getArgument(0) % 1024 % numShards));
+
+        for (int shard = 0; shard < numShards; shard++) {
+            HikariDataSource dataSource = databases.get(shard);
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            ShardGuard guard = new ShardGuard(shard, shardingProperties.getResilience());
+            dataSources.add(dataSource);
+            jdbcTemplates.add(jdbcTemplate);
+            guards.add(guard);
+
+            TransactionTemplate transactionTemplate =
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+            when(shardingConfig.getJdbcTemplate(shard)).thenReturn(jdbcTemplate);
+            when(shardingConfig.getTransactionTemplate(shard)).thenReturn(transactionTemplate);
+            when(shardingConfig.getDataSourceForShard(shard)).thenReturn(dataSource);
+            when(shardingConfig.getReplicaDataSources(shard)).thenReturn(List.of());
+            when(shardingConfig.getGuardedDataSource(shard))
+                .thenReturn(new GuardedShardDataSource(new HikariDataSource(), guard));
+        }
+    }
+
+    /**
+     * Shards over databases the caller has already set up, e.g. real MySQL schemas
+     */
+    public static TestShards over(List<HikariDataSource> databases) {
+        return new TestShards(databases);
+    }
+
+    private static List<HikariDataSource> h2Databases(int numShards) {
+        String run = UUID.randomUUID().toString();
+        List<HikariDataSource> databases = new ArrayList<>();
+        for (int shard = 0; shard < numShards; shard++) {
+            databases.add(database("order_db_" + shard + "_" + run));
+        }
+        return databases;
+    }
+
+    /**
+     * A fresh, empty in-memory database behind a small pool; it is dropped when the pool closes
+     */
+    public static HikariDataSource database(String name) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(name);
+        dataSource.setJdbcUrl("jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+        dataSource.setUsername("sa");
+        dataSource.setMaximumPoolSize(8);
+        return dataSource;
+    }
+
+    /**
+     * A schema on the MySQL server named by {@code -Dtest.mysql.url} (e.g.
+     * {@code jdbc:mysql://localhost:3306}), created if missing. Credentials come from
+     * {@code test.mysql.username} and {@code test.mysql.password}, default root/password.
+     */
+    public static HikariDataSource mysql(String schema) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(schema);
+        dataSource.setJdbcUrl(System.getProperty("test.mysql.url") + "/" + schema + "?createDatabaseIfNotExist=true");
+        dataSource.setUsername(System.getProperty("test.mysql.username", "root"));
+        dataSource.setPassword(System.getProperty("test.mysql.password", "password"));
+        dataSource.setMaximumPoolSize(4);
+        return dataSource;
+    }
+
+    /**
+     * Sends the shard's statements and transactions through connections that count commits
+     * and hold each one for {@code commitDelayMicros}
+     */
+    public CommitCountingDataSource countCommits(int shard, long commitDelayMicros) {
+        CommitCountingDataSource dataSource = new CommitCountingDataSource(dataSources.get(shard), commitDelayMicros);
+        when(shardingConfig.getJdbcTemplate(shard)).thenReturn(new JdbcTemplate(dataSource));
+        when(shardingConfig.getTransactionTemplate(shard))
+            .thenReturn(new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+        return dataSource;
+    }
+
+    public void close() {
+        dataSources.forEach(HikariDataSource::close);
+    }
+
+    public static void createOrderTables(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("CREATE TABLE orders (" +
+                             "id BIGINT PRIMARY KEY, " +
+                             "user_id BIGINT NOT NULL, " +
+                             "items TEXT NULL, " +
+                             "total_amount DECIMAL(10, 2) NOT NULL, " +
+                             "status VARCHAR(20) NOT NULL, " +
+                             "payment_method VARCHAR(255), " +
+                             "delivery_address VARCHAR(255), " +
+                             "created_year INT NOT NULL, " +
+                             "created_at TIMESTAMP(3) NOT NULL, " +
+                             "updated_at TIMESTAMP(3), " +
+                             "version BIGINT NOT NULL DEFAULT 0)");
+        jdbcTemplate.execute("CREATE TABLE order_items (" +
+                             "order_id BIGINT NOT NULL, " +
+                             "line_no INT NOT NULL, " +
+                             "user_id BIGINT NOT NULL, " +
+                             "menu_item_id BIGINT, " +
+                             "name VARCHAR(255), " +
+                             "price DECIMAL(10, 2), " +
+                             "quantity INT, " +
+                             "subtotal DECIMAL(10, 2), " +
+                             "PRIMARY KEY (order_id, line_no))");
+    }
+
+    /**
+     * Platform threads, as with {@code spring.threads.virtual.enabled} off
+     */
+    public static WorkerThreads platformThreads() {
+        WorkerThreads workerThreads = new WorkerThreads();
+        ReflectionTestUtils.setField(workerThreads, "environment", new MockEnvironment());
+        return workerThreads;
+    }
+
+    public ScatterGatherExecutor scatterGatherExecutor(long shardTimeoutMs) {
+        ScatterGatherExecutor executor = new ScatterGatherExecutor(numShards * 2, 64, shardTimeoutMs, platformThreads());
+        ReflectionTestUtils.setField(executor, "shardingConfig", shardingConfig);
+        return executor;
+    }
+
+    /**
+     * A repository over these shards with a primary-only replica router and no group commit;
+     * the outbox and shard stats are mocks
+     */
+    public ShardedOrderRepository orderRepository(ScatterGatherExecutor scatterGatherExecutor) {
+        ReplicaRouter replicaRouter = new ReplicaRouter();
+        ReflectionTestUtils.setField(replicaRouter, "shardingConfig", shardingConfig);
+        ReflectionTestUtils.setField(replicaRouter, "shardingProperties", shardingProperties);
+        replicaRouter.init();
+
+        ShardedOrderRepository repository = new ShardedOrderRepository();
+        ReflectionTestUtils.setField(repository, "shardingConfig", shardingConfig);
+        ReflectionTestUtils.setField(repository, "shardRouter", shardRouter);
+        ReflectionTestUtils.setField(repository, "scatterGatherExecutor", scatterGatherExecutor);
+        ReflectionTestUtils.setField(repository, "orderIdGenerator", new SnowflakeIdGenerator(1));
+        ReflectionTestUtils.setField(repository, "shardStatsTracker", mock(ShardStatsTracker.class));
+        ReflectionTestUtils.setField(repository, "replicaRouter", replicaRouter);
+        ReflectionTestUtils.setField(repository, "outboxRepository", mock(OutboxRepository.class));
+        ReflectionTestUtils.setField(repository, "shardingProperties", shardingProperties);
+        ReflectionTestUtils.setField(repository, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(repository, "bulkBatchSize", 500);
+        return repository;
+    }
+
+    /**
+     * A new, unsaved order
+     */
+    public static Order order(long userId, String status, LocalDateTime createdAt) {
+        Order order = new Order();
+        order.setUserId(userId);
+        order.setStatus(status);
+        order.setTotalAmount(new BigDecimal("12.50"));
+        order.setPaymentMethod("CREDIT_CARD");
+        order.setDeliveryAddress("1 Main St");
+        order.setCreatedAt(createdAt);
+        order.setUpdatedAt(createdAt);
+        return order;
+    }
+
+    public int getNumShards() { return numShards; }
+
+    public JdbcTemplate jdbc(int shard) { return jdbcTemplates.get(shard); }
+
+    public HikariDataSource dataSource(int shard) { return dataSources.get(shard); }
+
+    public ShardGuard guard(int shard) { return guards.get(shard); }
+
+    public ShardingConfig getShardingConfig() { return shardingConfig; }
+
+    public ShardingProperties getShardingProperties() { return shardingProperties; }
+
+    public ShardRouter getShardRouter() { return shardRouter; }
+}
@@ -73,7 +73,7 @@ USE order_db_0;
 CREATE TABLE IF NOT EXISTS orders (
     id BIGINT AUTO_INCREMENT,
     user_id BIGINT NOT NULL,
-    items TEXT NOT NULL,
+    items TEXT NULL,  -- Legacy JSON line items; new orders use order_items
     total_amount DECIMAL(10, 2) NOT NULL,
     status VARCHAR(20) DEFAULT 'PENDING',
     payment_method VARCHAR(50),
@@ -81,6 +81,7 @@ CREATE TABLE IF NOT EXISTS orders (
     created_year INT NOT NULL,  -- Partitioning column
     created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0,  -- Bumped by every status change (optimistic concurrency)
     PRIMARY KEY (id, created_year),
     INDEX idx_user_id (user_id),
     INDEX idx_status (status),
@@ -96,13 +97,77 @@ PARTITION BY RANGE (created_year) (
     PARTITION p_future VALUES LESS THAN MAXVALUE
 );
 
+-- Line items, written in the same transaction as the order. Not partitioned:
+-- it is only read by order_id, one batch per page.
+CREATE TABLE IF NOT EXISTS order_items (
+    order_id BIGINT NOT NULL,
+    line_no INT NOT NULL,
+    user_id BIGINT NOT NULL,  -- Lets bucket migration find a bucket's items
+    menu_item_id BIGINT,
+    name VARCHAR(255),
+    price DECIMAL(10, 2),
+    quantity INT,
+    subtotal DECIMAL(10, 2),
+    PRIMARY KEY (order_id, line_no),
+    INDEX idx_user_id (user_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Order events waiting to be relayed to the broker, written with the order
+CREATE TABLE IF NOT EXISTS order_outbox (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    event_type VARCHAR(64) NOT NULL,  -- e.g. order.created
+    aggregate_id BIGINT NOT NULL,     -- Order ID
+    user_id BIGINT NULL,              -- Message key
+    created_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Asynchronous order intake queue; only in order_db_0, next to the orders OrderService writes
+CREATE TABLE IF NOT EXISTS order_intake (
+    order_id BIGINT PRIMARY KEY,      -- Snowflake ID reserved when the order is accepted
+    user_id BIGINT NOT NULL,
+    payment_method VARCHAR(255) NULL,
+    delivery_address VARCHAR(255) NULL,
+    items TEXT NOT NULL,              -- Cart items (JSON) validated at accept time
+    total_amount DECIMAL(10, 2) NOT NULL,
+    status VARCHAR(16) NOT NULL,      -- PENDING, PROCESSING, COMMITTED, FAILED
+    error VARCHAR(255) NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),  -- Retry backoff
+    created_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    INDEX idx_intake_status_next (status, next_attempt_at),
+    INDEX idx_intake_status_updated (status, updated_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Bucket-to-shard routing table (created and seeded by order-service on first start).
+-- user_id % 1024 gives the virtual bucket; this table maps each bucket to an order shard.
+CREATE TABLE IF NOT EXISTS shard_bucket_routing (
+    bucket INT PRIMARY KEY,
+    shard_index INT NOT NULL,
+    dual_write_shard INT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Checkpoints for buckets being moved between shards
+CREATE TABLE IF NOT EXISTS shard_bucket_migration (
+    bucket INT PRIMARY KEY,
+    source_shard INT NOT NULL,
+    target_shard INT NOT NULL,
+    state VARCHAR(20) NOT NULL,
+    last_copied_id BIGINT NOT NULL DEFAULT 0,
+    rows_copied BIGINT NOT NULL DEFAULT 0,
+    copy_since DATETIME NULL,
+    message VARCHAR(255),
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
 -- ============ ORDER DATABASE 1 ============
 USE order_db_1;
 
 CREATE TABLE IF NOT EXISTS orders (
     id BIGINT AUTO_INCREMENT,
     user_id BIGINT NOT NULL,
-    items TEXT NOT NULL,
+    items TEXT NULL,  -- Legacy JSON line items; new orders use order_items
     total_amount DECIMAL(10, 2) NOT NULL,
     status VARCHAR(20) DEFAULT 'PENDING',
     payment_method VARCHAR(50),
@@ -110,6 +175,7 @@ CREATE TABLE IF NOT EXISTS orders (
     created_year INT NOT NULL,  -- Partitioning column
     created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0,  -- Bumped by every status change (optimistic concurrency)
     PRIMARY KEY (id, created_year),
     INDEX idx_user_id (user_id),
     INDEX idx_status (status),
@@ -125,13 +191,37 @@ PARTITION BY RANGE (created_year) (
     PARTITION p_future VALUES LESS THAN MAXVALUE
 );
 
+-- Line items, written in the same transaction as the order. Not partitioned:
+-- it is only read by order_id, one batch per page.
+CREATE TABLE IF NOT EXISTS order_items (
+    order_id BIGINT NOT NULL,
+    line_no INT NOT NULL,
+    user_id BIGINT NOT NULL,  -- Lets bucket migration find a bucket's items
+    menu_item_id BIGINT,
+    name VARCHAR(255),
+    price DECIMAL(10, 2),
+    quantity INT,
+    subtotal DECIMAL(10, 2),
+    PRIMARY KEY (order_id, line_no),
+    INDEX idx_user_id (user_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Order events waiting to be relayed to the broker, written with the order
+CREATE TABLE IF NOT EXISTS order_outbox (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    event_type VARCHAR(64) NOT NULL,  -- e.g. order.created
+    aggregate_id BIGINT NOT NULL,     -- Order ID
+    user_id BIGINT NULL,              -- Message key
+    created_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
 -- ============ ORDER DATABASE 2 ============
 USE order_db_2;
 
 CREATE TABLE IF NOT EXISTS orders (
     id BIGINT AUTO_INCREMENT,
     user_id BIGINT NOT NULL,
-    items TEXT NOT NULL,
+    items TEXT NULL,  -- Legacy JSON line items; new orders use order_items
     total_amount DECIMAL(10, 2) NOT NULL,
     status VARCHAR(20) DEFAULT 'PENDING',
     payment_method VARCHAR(50),
@@ -139,6 +229,7 @@ CREATE TABLE IF NOT EXISTS orders (
     created_year INT NOT NULL,  -- Partitioning column
     created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0,  -- Bumped by every status change (optimistic concurrency)
     PRIMARY KEY (id, created_year),
     INDEX idx_user_id (user_id),
     INDEX idx_status (status),
@@ -154,13 +245,37 @@ PARTITION BY RANGE (created_year) (
     PARTITION p_future VALUES LESS THAN MAXVALUE
 );
 
+-- Line items, written in the same transaction as the order. Not partitioned:
+-- it is only read by order_id, one batch per page.
+CREATE TABLE IF NOT EXISTS order_items (
+    order_id BIGINT NOT NULL,
+    line_no INT NOT NULL,
+    user_id BIGINT NOT NULL,  -- Lets bucket migration find a bucket's items
+    menu_item_id BIGINT,
+    name VARCHAR(255),
+    price DECIMAL(10, 2),
+    quantity INT,
+    subtotal DECIMAL(10, 2),
+    PRIMARY KEY (order_id, line_no),
+    INDEX idx_user_id (user_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Order events waiting to be relayed to the broker, written with the order
+CREATE TABLE IF NOT EXISTS order_outbox (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    event_type VARCHAR(64) NOT NULL,  -- e.g. order.created
+    aggregate_id BIGINT NOT NULL,     -- Order ID
+    user_id BIGINT NULL,              -- Message key
+    created_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
 -- ============ ORDER DATABASE 3 ============
 USE order_db_3;
 
 CREATE TABLE IF NOT EXISTS orders (
     id BIGINT AUTO_INCREMENT,
     user_id BIGINT NOT NULL,
-    items TEXT NOT NULL,
+    items TEXT NULL,  -- Legacy JSON line items; new orders use order_items
     total_amount DECIMAL(10, 2) NOT NULL,
     status VARCHAR(20) DEFAULT 'PENDING',
     payment_method VARCHAR(50),
@@ -168,6 +283,7 @@ CREATE TABLE IF NOT EXISTS orders (
     created_year INT NOT NULL,  -- Partitioning column
     created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0,  -- Bumped by every status change (optimistic concurrency)
     PRIMARY KEY (id, created_year),
     INDEX idx_user_id (user_id),
     INDEX idx_status (status),
@@ -183,6 +299,30 @@ PARTITION BY RANGE (created_year) (
     PARTITION p_future VALUES LESS THAN MAXVALUE
 );
 
+-- Line items, written in the same transaction as the order. Not partitioned:
+-- it is only read by order_id, one batch per page.
+CREATE TABLE IF NOT EXISTS order_items (
+    order_id BIGINT NOT NULL,
+    line_no INT NOT NULL,
+    user_id BIGINT NOT NULL,  -- Lets bucket migration find a bucket's items
+    menu_item_id BIGINT,
+    name VARCHAR(255),
+    price DECIMAL(10, 2),
+    quantity INT,
+    subtotal DECIMAL(10, 2),
+    PRIMARY KEY (order_id, line_no),
+    INDEX idx_user_id (user_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Order events waiting to be relayed to the broker, written with the order
+CREATE TABLE IF NOT EXISTS order_outbox (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    event_type VARCHAR(64) NOT NULL,  -- e.g. order.created
+    aggregate_id BIGINT NOT NULL,     -- Order ID
+    user_id BIGINT NULL,              -- Message key
+    created_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
 -- ============ VERIFY PARTITIONING ============
 SELECT 
     TABLE_SCHEMA,